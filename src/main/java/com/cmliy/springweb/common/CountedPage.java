@@ -0,0 +1,53 @@
+package com.cmliy.springweb.common;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * 🔢 带总数精度标记的分页结果 - Counted Page
+ *
+ * 在Spring Data的PageImpl上增加totalExact字段，其余响应字段保持不变：
+ * - totalExact=true: totalElements是本次请求执行COUNT或由当前页推断出的精确值
+ * - totalExact=false: totalElements来自数据库统计估算，或是短时间内缓存的计数结果
+ *
+ * 响应格式（在原有分页字段基础上）：
+ * {
+ *   "content": [...],
+ *   "totalElements": 1024,
+ *   "totalExact": false,
+ *   ...
+ * }
+ *
+ * @param <T> 列表元素类型
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    /**
+     * ✅ 总数是否精确
+     */
+    private final boolean totalExact;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+
+    /**
+     * 🔄 转换列表元素，保留总数和精度标记
+     *
+     * @param converter 元素转换函数
+     * @return 转换后的分页结果
+     */
+    @Override
+    public <U> CountedPage<U> map(Function<? super T, ? extends U> converter) {
+        return new CountedPage<>(getContent().stream().<U>map(converter).toList(),
+                getPageable(), getTotalElements(), totalExact);
+    }
+}
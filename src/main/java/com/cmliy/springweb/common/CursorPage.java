@@ -0,0 +1,76 @@
+package com.cmliy.springweb.common;
+
+import java.util.List;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 📜 游标分页结果 - Cursor Page
+ *
+ * 键集（Keyset/Seek）分页的响应格式，与Spring Data的Page并存：
+ * 不返回总数和页码，只返回本页数据和下一页游标，因此不需要COUNT查询，
+ * 翻到再深的位置也只是一次索引范围扫描。
+ *
+ * 响应格式：
+ * {
+ *   "content": [...],          // 本页数据
+ *   "size": 10,                // 请求的每页大小
+ *   "hasNext": true,           // 是否还有下一页
+ *   "nextCursor": "eyJz..."    // 下一页游标，没有下一页时为null
+ * }
+ *
+ * @param <T> 列表元素类型
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * 📋 本页数据
+     */
+    private List<T> content;
+
+    /**
+     * 📏 请求的每页大小
+     */
+    private int size;
+
+    /**
+     * ➡️ 是否还有下一页
+     */
+    private boolean hasNext;
+
+    /**
+     * 🔖 下一页游标（不透明字符串），原样传回即可获取下一页
+     */
+    private String nextCursor;
+
+    /**
+     * 🏗️ 由多查询一条的结果构建游标分页
+     *
+     * 查询时取size+1条，多出的一条只用来判断是否还有下一页。
+     *
+     * @param rows 按排序键查询出的最多size+1条记录
+     * @param size 每页大小
+     * @param cursorOf 由本页最后一条记录生成游标的函数
+     * @param mapper 记录到响应元素的转换函数
+     * @return 游标分页结果
+     */
+    public static <R, T> CursorPage<T> fromRows(List<R> rows, int size,
+                                               Function<R, String> cursorOf, Function<R, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<R> pageRows = hasNext ? rows.subList(0, size) : rows;
+        return CursorPage.<T>builder()
+                .content(pageRows.stream().map(mapper).toList())
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? cursorOf.apply(pageRows.get(pageRows.size() - 1)) : null)
+                .build();
+    }
+}
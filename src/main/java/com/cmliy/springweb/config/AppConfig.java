@@ -1,5 +1,8 @@
 package com.cmliy.springweb.config;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import lombok.Data;
@@ -30,6 +33,21 @@ public class AppConfig {
          * JWT过期时间（毫秒）
          */
         private Long expiration;
+
+        /**
+         * 刷新令牌过期时间（毫秒）
+         */
+        private Long refreshExpiration = 604_800_000L;
+
+        /**
+         * 吊销布隆过滤器的预期容量
+         */
+        private long revocationExpectedInsertions = 100_000;
+
+        /**
+         * 吊销布隆过滤器的期望误判率
+         */
+        private double revocationFalsePositiveRate = 0.01;
     }
 
     /**
@@ -58,6 +76,252 @@ public class AppConfig {
         private Boolean allowCredentials;
     }
 
+    /**
+     * 用户缓存配置
+     */
+    @Data
+    public static class UserCacheConfig {
+        /**
+         * 最大缓存用户数
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * 写入后过期时间（秒）
+         */
+        private long expireAfterWriteSeconds = 600;
+    }
+
+    /**
+     * 商品详情缓存配置
+     */
+    @Data
+    public static class ProductCacheConfig {
+        /**
+         * 最大缓存商品数
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * 写入后过期时间（秒），只作兜底，正常由写操作主动失效
+         */
+        private long expireAfterWriteSeconds = 300;
+    }
+
+    /**
+     * 分页总数缓存配置
+     */
+    @Data
+    public static class PageCountConfig {
+        /**
+         * 最多缓存的过滤条件数
+         */
+        private long maximumSize = 10_000;
+
+        /**
+         * 计数写入后过期时间（秒），不做写失效，保持较短
+         */
+        private long expireAfterWriteSeconds = 30;
+    }
+
+    /**
+     * 商品搜索索引配置（内嵌Lucene）
+     */
+    @Data
+    public static class ProductSearchConfig {
+        /**
+         * 索引目录，为空时索引只保存在内存中（启动时总会从数据库全量重建）
+         */
+        private String indexPath = "";
+
+        /**
+         * 近实时刷新间隔（毫秒），写入后最多这么久可以被搜索到
+         */
+        private long refreshIntervalMillis = 1000;
+
+        /**
+         * 全量重建时每批从数据库读取的商品数
+         */
+        private int rebuildBatchSize = 500;
+
+        /**
+         * 每个规格维度最多返回的分面值数量
+         */
+        private int facetTopN = 20;
+
+        /**
+         * 输入提示：每个前缀保存的销量最高商品数，也是一次最多返回的提示数
+         */
+        private int suggestTopK = 10;
+
+        /**
+         * 输入提示：建立前缀节点的最大字符数，更长的输入按这个长度截断匹配
+         */
+        private int suggestMaxPrefixLength = 24;
+
+        /**
+         * 分面引擎：价格区间的分界点（升序），例如[50, 100]划分出 0-50、50-100、100+ 三个区间
+         */
+        private List<BigDecimal> facetPriceBreaks = List.of(
+                new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("200"),
+                new BigDecimal("500"), new BigDecimal("1000"));
+    }
+
+    /**
+     * 密码哈希线程池配置
+     */
+    @Data
+    public static class PasswordHashingConfig {
+        /**
+         * 工作线程数，小于等于0时使用CPU核数
+         */
+        private int threads = 0;
+
+        /**
+         * 等待队列容量，队列满时直接拒绝
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * 调用方等待哈希结果的超时时间（毫秒）
+         */
+        private long timeoutMillis = 5000;
+    }
+
+    /**
+     * 登录/注册限流配置（令牌桶）
+     */
+    @Data
+    public static class LoginThrottleConfig {
+        /**
+         * 每个用户名的令牌桶容量（允许的突发尝试次数）
+         */
+        private int usernameCapacity = 5;
+
+        /**
+         * 每个用户名每分钟补充的令牌数
+         */
+        private int usernameRefillPerMinute = 5;
+
+        /**
+         * 每个客户端IP的令牌桶容量
+         */
+        private int ipCapacity = 20;
+
+        /**
+         * 每个客户端IP每分钟补充的令牌数
+         */
+        private int ipRefillPerMinute = 20;
+
+        /**
+         * 最多跟踪的令牌桶数量，超过时淘汰最久未访问的桶
+         */
+        private int maxBuckets = 100_000;
+
+        /**
+         * 令牌桶空闲多久后被清理（秒）
+         */
+        private long idleSeconds = 600;
+    }
+
+    /**
+     * 秒杀配置
+     */
+    @Data
+    public static class FlashSaleConfig {
+        /**
+         * 库存令牌分片数，小于等于0时使用CPU核数的2倍
+         */
+        private int shards = 0;
+
+        /**
+         * 每批写回数据库的最大抢购数
+         */
+        private int flushBatchSize = 500;
+
+        /**
+         * 后台写回的间隔（毫秒）
+         */
+        private long flushIntervalMillis = 20;
+
+        /**
+         * 等待写回的抢购队列容量，队列满时拒绝并归还令牌
+         */
+        private int queueCapacity = 100_000;
+
+        /**
+         * 单次抢购的最大数量
+         */
+        private int maxQuantityPerClaim = 5;
+
+        /**
+         * 抢购结果保留多久供客户端查询（秒）
+         */
+        private long claimResultExpireSeconds = 600;
+    }
+
+    /**
+     * 下单合并提交配置
+     */
+    @Data
+    public static class OrderIntakeConfig {
+        /**
+         * 是否开启：开启后单个商品下单进入合并队列，多个订单一次插入、一次提交
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每批最多合并的订单数
+         */
+        private int maxBatchSize = 100;
+
+        /**
+         * 收到第一个订单后最多再等待多久凑批（毫秒）
+         */
+        private long maxDelayMillis = 5;
+
+        /**
+         * 等待合并的队列容量，队列满时直接拒绝
+         */
+        private int queueCapacity = 10_000;
+
+        /**
+         * 调用方等待下单结果的超时时间（毫秒）
+         */
+        private long timeoutMillis = 5000;
+    }
+
+    /**
+     * 订单库存预留配置
+     */
+    @Data
+    public static class OrderReservationConfig {
+        /**
+         * 待处理订单保留库存的时长（秒），超时未支付自动取消；小于等于0表示不过期
+         */
+        private long ttlSeconds = 1800;
+
+        /**
+         * 超时时间轮的刻度（毫秒），也是检查到期的间隔
+         */
+        private long tickMillis = 1000;
+
+        /**
+         * 时间轮每层的格子数
+         */
+        private int wheelSize = 60;
+
+        /**
+         * 时间轮层数，覆盖范围为 tick × wheelSize^levels
+         */
+        private int levels = 4;
+
+        /**
+         * 每条取消语句最多处理的订单数
+         */
+        private int releaseBatchSize = 500;
+    }
+
     /**
      * JWT配置实例
      */
@@ -67,4 +331,49 @@ public class AppConfig {
      * CORS配置实例
      */
     private CorsConfig cors = new CorsConfig();
-}
\ No newline at end of file
+
+    /**
+     * 用户缓存配置实例
+     */
+    private UserCacheConfig userCache = new UserCacheConfig();
+
+    /**
+     * 商品详情缓存配置实例
+     */
+    private ProductCacheConfig productCache = new ProductCacheConfig();
+
+    /**
+     * 分页总数缓存配置实例
+     */
+    private PageCountConfig pageCount = new PageCountConfig();
+
+    /**
+     * 商品搜索索引配置实例
+     */
+    private ProductSearchConfig productSearch = new ProductSearchConfig();
+
+    /**
+     * 密码哈希线程池配置实例
+     */
+    private PasswordHashingConfig passwordHashing = new PasswordHashingConfig();
+
+    /**
+     * 登录/注册限流配置实例
+     */
+    private LoginThrottleConfig loginThrottle = new LoginThrottleConfig();
+
+    /**
+     * 秒杀配置实例
+     */
+    private FlashSaleConfig flashSale = new FlashSaleConfig();
+
+    /**
+     * 下单合并提交配置实例
+     */
+    private OrderIntakeConfig orderIntake = new OrderIntakeConfig();
+
+    /**
+     * 订单库存预留配置实例
+     */
+    private OrderReservationConfig orderReservation = new OrderReservationConfig();
+}
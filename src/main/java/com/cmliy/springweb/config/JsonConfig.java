@@ -5,6 +5,9 @@ package com.cmliy.springweb.config;
 import com.fasterxml.jackson.databind.ObjectMapper;           // 导入Jackson JSON处理库
 import com.fasterxml.jackson.databind.SerializationFeature;   // 导入Jackson序列化特性
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;  // 导入Java 8时间模块
+import com.cmliy.springweb.converter.ProductDataCodec;          // 导入商品扩展数据编解码器
+import org.hibernate.cfg.AvailableSettings;                     // 导入Hibernate配置项常量
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer; // 导入Hibernate属性定制接口
 import org.springframework.context.annotation.Bean;            // 导入Spring Bean注解
 import org.springframework.context.annotation.Configuration;      // 导入Spring配置注解
 
@@ -50,4 +53,17 @@ public class JsonConfig { // public class: 定义公共类，其他类可以访
         // 📤 返回配置好的ObjectMapper
         return mapper; // 返回配置完成的ObjectMapper实例
     }
-}
\ No newline at end of file
+
+    /**
+     * 🗄️ 指定Hibernate的JSON格式映射器
+     *
+     * JSON类型的实体字段（Product.productData）统一使用ProductDataCodec读写，
+     * 与应用其他地方共享同一组预先构建的Jackson reader/writer。
+     *
+     * @return Hibernate属性定制器
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jsonFormatMapperCustomizer() {
+        return properties -> properties.put(AvailableSettings.JSON_FORMAT_MAPPER, ProductDataCodec.INSTANCE);
+    }
+}
@@ -217,6 +217,11 @@ public class SecurityConfig {  // public class: 定义公共类，其他类可
         // appConfig.getCors().getAllowCredentials(): 从配置文件读取凭证设置
         configuration.setAllowCredentials(appConfig.getCors().getAllowCredentials());
 
+        // 📤 暴露响应头
+        // .setExposedHeaders(): 允许前端脚本读取的响应头
+        // Retry-After: 限流(429)和繁忙(503)响应告诉客户端多久后重试
+        configuration.setExposedHeaders(Arrays.asList("Retry-After"));
+
         // ⏰ 配置预检请求缓存时间
         // .setMaxAge(): 设置浏览器缓存CORS预检结果的时间（秒）
         // 3600L: 缓存1小时，减少预检请求频率
@@ -3,11 +3,13 @@ package com.cmliy.springweb.controller;
 
 // import: 导入其他包中的类，以便在当前类中使用
 import com.cmliy.springweb.common.ApiResponse;  // 导入统一API响应包装类
+import com.cmliy.springweb.common.CursorPage;  // 导入游标分页结果
 import com.cmliy.springweb.dto.UserManagementDTO;  // 导入用户管理DTO
 import com.cmliy.springweb.dto.UserQueryRequestDTO;  // 导入用户查询请求DTO
 import com.cmliy.springweb.dto.UserStatisticsDTO;  // 导入用户统计DTO
 import com.cmliy.springweb.model.User;  // 导入用户实体
 import com.cmliy.springweb.repository.UserRepository;  // 导入用户数据访问层
+import com.cmliy.springweb.service.ProductService;  // 导入商品服务
 import com.cmliy.springweb.service.UserService;  // 导入用户服务
 import com.cmliy.springweb.util.JwtUtil;  // 导入JWT工具类
 import org.springframework.data.domain.Page;  // 导入Spring Data分页接口
@@ -63,13 +65,17 @@ public class AdminController extends BaseController {  // 🚀 继承BaseControl
      * @param userRepository 用户数据访问层（传递给基类）
      * @param jwtUtil JWT工具类（传递给基类）
      * @param userService 用户服务（用于用户管理功能）
+     * @param productService 商品服务（用于商品搜索索引维护）
      */
     private final UserService userService;  // 用户服务
+    private final ProductService productService;  // 商品服务
 
-    public AdminController(UserRepository userRepository, JwtUtil jwtUtil, UserService userService) {
+    public AdminController(UserRepository userRepository, JwtUtil jwtUtil, UserService userService,
+                           ProductService productService) {
         // 🚀 调用父类构造函数，传递基类需要的字段
         super(userRepository, jwtUtil);
         this.userService = userService;
+        this.productService = productService;
     }
 
     /**
@@ -190,6 +196,33 @@ public class AdminController extends BaseController {  // 🚀 继承BaseControl
         });
     }
 
+    /**
+     * 📜 获取用户列表（游标分页）
+     *
+     * 筛选条件与 /admin/users/list 相同，但按 (排序字段, id) 键集翻页，
+     * 不返回总数，翻到深处也不会变慢。只支持按id或createdAt排序。
+     *
+     * @param query 查询条件DTO（page参数被忽略）
+     * @param cursor 上一页返回的游标（第一页不传）
+     * @return ResponseEntity<ApiResponse<CursorPage<UserManagementDTO>>> 包含游标分页用户数据的HTTP响应
+     */
+    @GetMapping("/users/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPage<UserManagementDTO>>> scrollUserList(
+            UserQueryRequestDTO query,
+            @RequestParam(required = false) String cursor) {
+        return executeWithLog("游标获取用户列表", () -> {
+            Long adminId = getCurrentUserId();
+            CursorPage<UserManagementDTO> userPage = userService.scrollUsers(query, cursor);
+
+            logOperation("获取用户列表", adminId,
+                String.format("管理员ID: %d 游标查询了用户列表，页大小: %d，结果数: %d",
+                    adminId, query.getSize(), userPage.getContent().size()));
+
+            return success(userPage, "用户列表获取成功");
+        });
+    }
+
     /**
      * 📊 获取用户统计信息
      *
@@ -333,4 +366,27 @@ public class AdminController extends BaseController {  // 🚀 继承BaseControl
             }
         }, userId, role);
     }
-}
\ No newline at end of file
+
+    /**
+     * 🔄 重建商品搜索索引
+     *
+     * 搜索索引随商品写操作在事务提交后更新，启动时也会全量建立一次。
+     * 当索引与数据库不一致（例如直接改库、或索引写入失败）时，管理员可以调用此接口全量重建。
+     * 重建期间搜索继续使用旧索引。
+     *
+     * @return ResponseEntity<ApiResponse<Long>> 写入索引的商品数
+     */
+    @PostMapping("/products/search-index/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Long>> rebuildProductSearchIndex() {
+        return executeWithLog("重建商品搜索索引", () -> {
+            Long adminId = getCurrentUserId();
+            long indexed = productService.rebuildSearchIndex();
+
+            logOperation("重建商品搜索索引", adminId,
+                String.format("管理员ID: %d 重建了商品搜索索引，商品数: %d", adminId, indexed));
+
+            return success(indexed, "商品搜索索引重建成功");
+        });
+    }
+}
@@ -6,12 +6,12 @@ import java.time.LocalDateTime;                      // 导入用户实体类
 import java.util.Map;       // 导入用户数据访问层接口
 import java.util.Optional;                    // 导入JWT工具类
 
+import jakarta.servlet.http.HttpServletRequest;
+
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager; // 导入自定义用户详情服务
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;            // 导入登录响应DTO
 import org.springframework.security.core.Authentication;         // 导入注册响应DTO
 import org.springframework.security.core.context.SecurityContextHolder;                     // 导入用户信息DTO
-import org.springframework.security.core.userdetails.UserDetails;         // 导入用户转换器
 import org.springframework.security.crypto.password.PasswordEncoder;         // 导入DTO转换工具类
 import org.springframework.web.bind.annotation.GetMapping; // 导入Spring依赖注入注解
 import org.springframework.web.bind.annotation.PostMapping;               // 导入Spring HTTP响应实体类
@@ -25,13 +25,18 @@ import com.cmliy.springweb.dto.LoginResponseDTO; // 导入密码编码器接口
 import com.cmliy.springweb.dto.RegisterResponseDTO;    // 导入Spring Web GET请求映射注解
 import com.cmliy.springweb.dto.UserDTO;   // 导入Spring Web POST请求映射注解
 import com.cmliy.springweb.exception.BusinessException; // 导入业务异常类
+import com.cmliy.springweb.exception.ServiceBusyException; // 导入服务繁忙异常类
 import com.cmliy.springweb.model.User;   // 导入Spring Web请求体绑定注解
 import com.cmliy.springweb.repository.UserRepository; // 导入Spring Web REST控制器注解
-import com.cmliy.springweb.security.CustomUserDetailsService; // 导入Spring Web请求映射注解
+import com.cmliy.springweb.security.JwtAuthenticationFilter;  // 导入JWT认证过滤器
+import com.cmliy.springweb.security.JwtUserPrincipal;         // 导入JWT认证主体
+import com.cmliy.springweb.security.LoginRateLimiter;         // 导入登录/注册限流器
+import com.cmliy.springweb.service.RefreshTokenService; // 导入刷新令牌服务
 import com.cmliy.springweb.service.UserService;    // 导入用户服务
 import com.cmliy.springweb.util.DtoConverterUtils;  // 导入Java 8日期时间类，用于获取当前时间
 import com.cmliy.springweb.util.JwtUtil;           // 导入Java Map接口，用于处理请求参数
 
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;      // 导入Java 8 Optional容器类，避免空指针异常
 
 /**
@@ -100,44 +105,34 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      *
      * @param userRepository 用户数据访问层（传递给基类）
      * @param jwtUtil JWT工具类（传递给基类）
-     * @param authenticationManager 认证管理器（当前类需要）
      * @param passwordEncoder 密码编码器（当前类需要）
-     * @param userDetailsService 用户详情服务（当前类需要）
+     * @param loginRateLimiter 登录/注册限流器（当前类需要）
+     * @param refreshTokenService 刷新令牌服务（当前类需要）
      */
     public AuthController(UserRepository userRepository,
                          JwtUtil jwtUtil,
-                         AuthenticationManager authenticationManager,
                          PasswordEncoder passwordEncoder,
-                         CustomUserDetailsService userDetailsService,
                          UserService userService,
                          UserConverter userConverter,
-                         DtoConverterUtils dtoConverter) {
+                         DtoConverterUtils dtoConverter,
+                         LoginRateLimiter loginRateLimiter,
+                         RefreshTokenService refreshTokenService) {
         // 🚀 调用父类构造函数，传递基类需要的字段
         super(userRepository, jwtUtil);
 
         // 🚀 赋值当前类的字段
-        this.authenticationManager = authenticationManager;
         this.passwordEncoder = passwordEncoder;
-        this.userDetailsService = userDetailsService;
         this.userService = userService;
         this.userConverter = userConverter;
         this.dtoConverter = dtoConverter;
+        this.loginRateLimiter = loginRateLimiter;
+        this.refreshTokenService = refreshTokenService;
     }
 
     // ===== 依赖注入的字段 (Lombok简化版) =====
     // 🚀 Lombok的@RequiredArgsConstructor会自动生成包含所有final字段的构造函数
     // 注意：由于继承BaseController，UserRepository和JwtUtil已经由基类管理
 
-    /**
-     * 🔑 认证管理器
-     *
-     * Spring Security的核心组件，负责验证用户凭据（用户名和密码）的有效性。
-     * 会调用UserDetailsService加载用户信息并进行密码比对。
-     *
-     * final关键字：表示这个字段一旦初始化就不能再修改，确保线程安全和不可变性
-     */
-    private final AuthenticationManager authenticationManager; // 🚀 Lombok会自动生成构造函数注入
-
     /**
      * 🔒 密码编码器
      *
@@ -146,14 +141,6 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      */
     private final PasswordEncoder passwordEncoder; // 🚀 Lombok会自动生成构造函数注入
 
-    /**
-     * 👤 自定义用户详情服务
-     *
-     * 实现Spring Security的UserDetailsService接口，
-     * 在认证过程中从数据库加载用户信息。
-     */
-    private final CustomUserDetailsService userDetailsService; // 🚀 Lombok会自动生成构造函数注入
-
     /**
      * 👤 用户服务
      *
@@ -175,6 +162,20 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      */
     private final DtoConverterUtils dtoConverter; // 🚀 通用DTO转换工具
 
+    /**
+     * 🚦 登录/注册限流器
+     *
+     * 按用户名和客户端IP限制尝试频率，超出配额时返回429。
+     */
+    private final LoginRateLimiter loginRateLimiter; // 🚀 令牌桶限流器
+
+    /**
+     * 🔄 刷新令牌服务
+     *
+     * 签发和轮换刷新令牌，登出时吊销访问令牌和刷新令牌。
+     */
+    private final RefreshTokenService refreshTokenService; // 🚀 刷新令牌服务
+
     // 🚀 Lombok生成的构造函数等效代码（包含基类字段）：
     // public AuthController(
     //     // 基类需要的字段
@@ -202,7 +203,7 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      *
      * 登录流程详解：
      * 1. 接收前端发送的用户名和密码
-     * 2. 使用AuthenticationManager验证凭据
+     * 2. 使用UserService校验凭据（单次用户查询 + 哈希线程池中的BCrypt校验）
      * 3. 设置Spring Security安全上下文
      * 4. 生成JWT访问令牌
      * 5. 使用UserConverter转换用户信息
@@ -212,54 +213,54 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      *              "/login": 这个方法处理 /auth/login 路径的请求
      *
      * @param loginRequest Map<String, String> 包含用户名和密码的请求体
+     * @param request HTTP请求，用于获取客户端IP进行限流
      * @return ResponseEntity<ApiResponse<LoginResponseDTO>> 包含JWT令牌和用户信息的HTTP响应
      */
     @PostMapping("/login") // @PostMapping注解：声明这是一个处理POST请求的方法
-    public ResponseEntity<ApiResponse<LoginResponseDTO>> login(@RequestBody Map<String, String> loginRequest) {
+    public ResponseEntity<ApiResponse<LoginResponseDTO>> login(@RequestBody Map<String, String> loginRequest,
+                                                               HttpServletRequest request) {
+        // 🚦 限流检查：超出配额时抛出TooManyRequestsException，由全局异常处理器返回429
+        loginRateLimiter.acquire(loginRequest.get("username"), request.getRemoteAddr());
+
         try {
             // 📥 第一步：解析请求参数
             String username = loginRequest.get("username");
             String password = loginRequest.get("password");
 
-            // 🔍 第二步：使用UserService验证用户存在性和状态
-            if (!userService.existsByUsername(username)) {
-                return error(401, "用户名不存在");
-            }
-
-            // 👤 第三步：获取用户信息（使用UserService集成）
-            UserDTO userDTO = userService.getUserByUsername(username);
+            // 🔐 第二步：校验凭据（只加载一次用户，BCrypt在独立的哈希线程池中执行）
+            User user = userService.authenticate(username, password);
 
-            // 🔒 第四步：验证用户账户状态（启用/禁用）
-            if (!userDTO.isEnabled()) {
-                return error(401, "账户已被禁用");
-            }
+            // 👤 第三步：由同一个用户快照构建认证主体和用户信息，无需再次查询
+            JwtUserPrincipal principal = JwtUserPrincipal.fromUser(user);
+            principal.eraseCredentials();
+            UserDTO userDTO = userConverter.toDTO(user);
 
-            // 🔐 第五步：执行用户认证（核心认证逻辑）
-            Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(username, password)
+            // 🛡️ 第四步：设置安全上下文
+            SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())
             );
 
-            // 🛡️ 第六步：设置安全上下文
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            // 👤 第七步：获取用户详情信息（用于JWT生成）
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            // 🎫 第八步：生成JWT访问令牌
-            String token = jwtUtil.generateTokenWithUserId(userDetails, userDTO.getId());
+            // 🎫 第五步：生成JWT访问令牌（携带userId、角色、启用状态和令牌版本）
+            String token = jwtUtil.generateToken(principal);
+            String refreshToken = refreshTokenService.issue(user.getId());
 
-            // 📊 第九步：使用Builder模式创建LoginResponseDTO对象
+            // 📊 第六步：使用Builder模式创建LoginResponseDTO对象
             LoginResponseDTO loginResponseDTO = LoginResponseDTO.builder()
                 .token(token)
                 .tokenType("Bearer")
                 .expiresIn(jwtUtil.getExpiration())
-                .user(userDTO)  // 使用UserService获取的完整用户信息
+                .refreshToken(refreshToken)
+                .refreshExpiresIn(jwtUtil.getRefreshExpiration())
+                .user(userDTO)  // 使用登录校验得到的用户信息
                 .timestamp(LocalDateTime.now().toString())
                 .build();
 
-            // 🚀 第十步：使用BaseController的success()方法 - 大幅简化！
+            // 🚀 第七步：使用BaseController的success()方法 - 大幅简化！
             return success(loginResponseDTO, "登录成功");
 
+        } catch (ServiceBusyException e) {
+            // 🚦 密码哈希线程池已满：交给全局异常处理器返回503和Retry-After
+            throw e;
         } catch (BusinessException e) {
             // 🚨 业务异常处理：用户不存在或被禁用
             log.warn("登录业务验证失败: {}", e.getMessage());
@@ -295,10 +296,15 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      * - 新账户默认启用状态
      *
      * @param registerRequest Map<String, String> 包含注册信息的请求体
+     * @param request HTTP请求，用于获取客户端IP进行限流
      * @return ResponseEntity<ApiResponse<RegisterResponseDTO>> 注册结果响应
      */
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<RegisterResponseDTO>> register(@RequestBody Map<String, String> registerRequest) {
+    public ResponseEntity<ApiResponse<RegisterResponseDTO>> register(@RequestBody Map<String, String> registerRequest,
+                                                                     HttpServletRequest request) {
+        // 🚦 限流检查：超出配额时抛出TooManyRequestsException，由全局异常处理器返回429
+        loginRateLimiter.acquire(registerRequest.get("username"), request.getRemoteAddr());
+
         try {
             // 📥 第一步：解析注册信息
             String username = registerRequest.get("username");
@@ -318,6 +324,9 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
             // 🚀 第四步：使用BaseController的success()方法 - 一行搞定！
             return success(201, registerResponseDTO, "注册成功");
 
+        } catch (ServiceBusyException e) {
+            // 🚦 密码哈希线程池已满：交给全局异常处理器返回503和Retry-After
+            throw e;
         } catch (IllegalArgumentException e) {
             // 🚨 业务异常处理：用户名或邮箱已存在
             log.warn("注册业务验证失败: {}", e.getMessage());
@@ -371,12 +380,56 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
         }
     }
 
+    /**
+     * 🔄 刷新访问令牌接口
+     *
+     * 使用刷新令牌换取新的访问令牌。刷新令牌每次使用后都会轮换，
+     * 响应中返回新的刷新令牌，旧令牌立即作废；旧令牌被重放时会吊销该用户全部刷新令牌。
+     *
+     * @PostMapping: Spring Web注解，将HTTP POST请求映射到这个方法
+     *              "/refresh": 这个方法处理 /auth/refresh 路径的请求
+     *
+     * @param refreshRequest Map<String, String> 包含refreshToken的请求体
+     * @param request HTTP请求，用于获取客户端IP进行限流
+     * @return ResponseEntity<ApiResponse<LoginResponseDTO>> 新的令牌对和用户信息
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<LoginResponseDTO>> refresh(@RequestBody Map<String, String> refreshRequest,
+                                                                 HttpServletRequest request) {
+        // 🚦 限流检查：刷新接口只按IP限流
+        loginRateLimiter.acquire(null, request.getRemoteAddr());
+
+        try {
+            RefreshTokenService.IssuedTokens tokens = refreshTokenService.refresh(refreshRequest.get("refreshToken"));
+
+            LoginResponseDTO loginResponseDTO = LoginResponseDTO.builder()
+                .token(tokens.accessToken())
+                .tokenType("Bearer")
+                .expiresIn(jwtUtil.getExpiration())
+                .refreshToken(tokens.refreshToken())
+                .refreshExpiresIn(jwtUtil.getRefreshExpiration())
+                .user(userConverter.toDTO(tokens.user()))
+                .timestamp(LocalDateTime.now().toString())
+                .build();
+
+            return success(loginResponseDTO, "令牌刷新成功");
+
+        } catch (BusinessException e) {
+            // 🚨 业务异常处理：刷新令牌无效、过期、被重放或账户不可用
+            log.warn("刷新令牌失败: {}", e.getMessage());
+            return error(401, e.getMessage());
+        } catch (Exception e) {
+            log.error("刷新令牌失败: {}", e.getMessage(), e);
+            return error(500, "刷新令牌失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 🚪 用户登出接口 (Lombok + BaseController优化版本)
      *
      * 处理用户登出请求。
-     * 由于JWT是无状态的，后端无法真正"注销"令牌。
-     * 这个接口主要用于通知前端清除本地存储的认证信息。
+     * 当前访问令牌的jti会被写入吊销表和布隆过滤器，请求体中提交的刷新令牌也会被吊销，
+     * 之后这两个令牌都无法再使用。
      *
      * 🚀 优化亮点：
      * - 使用BaseController的success()和error()方法，代码从8行缩减到3行
@@ -385,15 +438,19 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
      *
      * 登出流程：
      * 1. 验证用户是否已认证（可选，因为登出时可能已经过期）
-     * 2. 返回成功响应，前端收到后清除localStorage中的token和用户信息
+     * 2. 吊销当前访问令牌（jti）和提交的刷新令牌
+     * 3. 返回成功响应，前端收到后清除localStorage中的token和用户信息
      *
      * @PostMapping: Spring Web注解，将HTTP POST请求映射到这个方法
      *              "/logout": 这个方法处理 /auth/logout 路径的请求
      *
+     * @param logoutRequest Map<String, String> 可选请求体，可包含refreshToken
+     * @param request HTTP请求，用于读取过滤器已验证的JWT声明
      * @return ResponseEntity<ApiResponse<Void>> 登出操作结果响应
      */
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<Void>> logout() {
+    public ResponseEntity<ApiResponse<Void>> logout(@RequestBody(required = false) Map<String, String> logoutRequest,
+                                                    HttpServletRequest request) {
         try {
             // 🔍 获取当前认证信息
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -403,6 +460,11 @@ public class AuthController extends BaseController {  // 🚀 继承BaseControll
                 username = authentication.getName();
             }
 
+            // 🚫 吊销访问令牌和刷新令牌
+            Object claims = request.getAttribute(JwtAuthenticationFilter.JWT_CLAIMS_ATTRIBUTE);
+            String refreshToken = logoutRequest != null ? logoutRequest.get("refreshToken") : null;
+            refreshTokenService.logout(claims instanceof Claims ? (Claims) claims : null, refreshToken);
+
             // 👤 使用UserService处理登出逻辑
             userService.logoutUser(username);
 
@@ -4,11 +4,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import com.cmliy.springweb.common.ApiResponse;
 import com.cmliy.springweb.repository.UserRepository;
+import com.cmliy.springweb.security.JwtAuthenticationFilter;
+import com.cmliy.springweb.security.JwtUserPrincipal;
 import com.cmliy.springweb.util.JwtUtil;
 
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -45,7 +50,28 @@ public abstract class BaseController {
             throw new RuntimeException("用户未认证");
         }
 
-        // 方案1：优先从JWT claims中获取用户ID（性能更好）
+        // 方案1：JWT过滤器构建的类型化主体直接携带用户ID
+        if (authentication.getPrincipal() instanceof JwtUserPrincipal) {
+            Long userId = ((JwtUserPrincipal) authentication.getPrincipal()).getUserId();
+            if (userId != null) {
+                return userId;
+            }
+        }
+
+        // 方案2：使用过滤器已解析的JWT claims（无需再次解析令牌）
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            Object claims = requestAttributes.getAttribute(
+                    JwtAuthenticationFilter.JWT_CLAIMS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (claims instanceof Claims) {
+                Long userId = jwtUtil.getUserId((Claims) claims);
+                if (userId != null) {
+                    return userId;
+                }
+            }
+        }
+
+        // 方案3：从认证凭证中的JWT token获取用户ID
         try {
             // 从认证信息中获取JWT token
             if (authentication.getCredentials() instanceof String) {
@@ -66,7 +92,7 @@ public abstract class BaseController {
             log.debug("从JWT claims获取用户ID失败，使用备用方案: {}", e.getMessage());
         }
 
-        // 方案2：备用方案 - 从用户名查询用户ID
+        // 方案4：备用方案 - 从用户名查询用户ID
         String username = authentication.getName();
         try {
             return userRepository.findByUsername(username)
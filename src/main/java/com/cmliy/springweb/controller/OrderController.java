@@ -21,7 +21,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.cmliy.springweb.common.ApiResponse;
+import com.cmliy.springweb.common.CountedPage;
+import com.cmliy.springweb.common.CursorPage;
+import com.cmliy.springweb.dto.order.FlashSaleClaimDTO;
+import com.cmliy.springweb.exception.ServiceBusyException;
 import com.cmliy.springweb.model.Order;
+import com.cmliy.springweb.service.FlashSaleService;
 import com.cmliy.springweb.service.OrderService;
 import com.cmliy.springweb.service.OrderSecurityService;
 import com.cmliy.springweb.repository.UserRepository;
@@ -41,11 +46,14 @@ public class OrderController extends BaseController {
 
     private final OrderService orderService;
     private final OrderSecurityService orderSecurityService;
+    private final FlashSaleService flashSaleService;
 
-    public OrderController(UserRepository userRepository, JwtUtil jwtUtil, OrderService orderService, OrderSecurityService orderSecurityService) {
+    public OrderController(UserRepository userRepository, JwtUtil jwtUtil, OrderService orderService,
+                           OrderSecurityService orderSecurityService, FlashSaleService flashSaleService) {
         super(userRepository, jwtUtil);
         this.orderService = orderService;
         this.orderSecurityService = orderSecurityService;
+        this.flashSaleService = flashSaleService;
     }
 
     /**
@@ -59,8 +67,10 @@ public class OrderController extends BaseController {
 
         try {
             Long userId = getCurrentUserId();
-            Order order = orderService.createOrder(userId, productId, quantity);
+            Order order = orderService.placeOrder(userId, productId, quantity);
             return ResponseEntity.ok(ApiResponse.success(order, "订单创建成功"));
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("创建订单失败", e);
             return ResponseEntity.badRequest()
@@ -68,6 +78,42 @@ public class OrderController extends BaseController {
         }
     }
 
+    /**
+     * ⚡ 秒杀抢购
+     *
+     * 只在内存中领取库存令牌，立即返回202和抢购凭证，订单由后台批量写入；
+     * 用 GET /orders/flash-sale/claims/{claimId} 查询结果。
+     */
+    @PostMapping("/flash-sale/claim")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<FlashSaleClaimDTO>> claimFlashSale(
+            @RequestParam Long productId,
+            @RequestParam(defaultValue = "1") Integer quantity) {
+
+        try {
+            Long userId = getCurrentUserId();
+            FlashSaleClaimDTO claim = flashSaleService.claim(userId, productId, quantity);
+            return ResponseEntity.accepted().body(ApiResponse.success(claim, "抢购成功，订单创建中"));
+        } catch (ServiceBusyException e) {
+            throw e;
+        } catch (Exception e) {
+            log.debug("秒杀抢购失败: productId={}, reason={}", productId, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("抢购失败: " + e.getMessage(), 400));
+        }
+    }
+
+    /**
+     * 🔍 查询秒杀抢购结果
+     */
+    @GetMapping("/flash-sale/claims/{claimId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<FlashSaleClaimDTO>> getFlashSaleClaim(@PathVariable String claimId) {
+        return flashSaleService.getClaim(claimId, getCurrentUserId())
+                .map(claim -> success(claim, "获取抢购结果成功"))
+                .orElseGet(() -> error(404, "抢购凭证不存在或已过期"));
+    }
+
     /**
      * 🛒 从购物车创建订单
      */
@@ -150,6 +196,27 @@ public class OrderController extends BaseController {
         }
     }
 
+    /**
+     * 📜 获取用户订单列表（游标分页）
+     */
+    @GetMapping("/my-orders/scroll")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ApiResponse<CursorPage<Order>>> scrollUserOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String status) {
+
+        try {
+            Long userId = getCurrentUserId();
+            CursorPage<Order> orderPage = orderService.scrollUserOrders(userId, status, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(orderPage, "获取订单列表成功"));
+        } catch (Exception e) {
+            log.error("游标获取用户订单失败", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("获取订单列表失败: " + e.getMessage(), 400));
+        }
+    }
+
     /**
      * 📋 获取商家订单列表
      */
@@ -158,7 +225,8 @@ public class OrderController extends BaseController {
     public ResponseEntity<ApiResponse<Map<String, Object>>> getSellerOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "true") boolean exactTotal) {
 
         try {
             Long userId = getCurrentUserId();
@@ -171,18 +239,14 @@ public class OrderController extends BaseController {
 
             Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
 
-            Page<Order> orderPage;
-            if (status != null && !status.trim().isEmpty()) {
-                orderPage = orderService.getSellerOrdersByStatus(userId, status, pageable);
-            } else {
-                orderPage = orderService.getSellerOrders(userId, pageable);
-            }
+            CountedPage<Order> orderPage = orderService.getSellerOrders(userId, status, pageable, exactTotal);
 
             Map<String, Object> response = new HashMap<>();
             response.put("orders", orderPage.getContent());
             response.put("currentPage", orderPage.getNumber());
             response.put("totalPages", orderPage.getTotalPages());
             response.put("totalElements", orderPage.getTotalElements());
+            response.put("totalExact", orderPage.isTotalExact());
             response.put("hasNext", orderPage.hasNext());
             response.put("hasPrevious", orderPage.hasPrevious());
 
@@ -194,6 +258,27 @@ public class OrderController extends BaseController {
         }
     }
 
+    /**
+     * 📜 获取商家订单列表（游标分页）
+     */
+    @GetMapping("/seller-orders/scroll")
+    @PreAuthorize("hasRole('SHOPER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPage<Order>>> scrollSellerOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String status) {
+
+        try {
+            Long userId = getCurrentUserId();
+            CursorPage<Order> orderPage = orderService.scrollSellerOrders(userId, status, cursor, size);
+            return ResponseEntity.ok(ApiResponse.success(orderPage, "获取商家订单列表成功"));
+        } catch (Exception e) {
+            log.error("游标获取商家订单失败", e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("获取商家订单列表失败: " + e.getMessage(), 400));
+        }
+    }
+
     /**
      * 🔄 更新订单状态
      */
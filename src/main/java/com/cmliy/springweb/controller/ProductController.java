@@ -1,5 +1,6 @@
 package com.cmliy.springweb.controller;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -19,17 +20,24 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.cmliy.springweb.common.ApiResponse;
+import com.cmliy.springweb.common.CursorPage;
 import com.cmliy.springweb.converter.ProductConverter;
+import com.cmliy.springweb.dto.ProductAttributeFilterDTO;
 import com.cmliy.springweb.dto.ProductCreateRequestDTO;
 import com.cmliy.springweb.dto.ProductDetailDTO;
+import com.cmliy.springweb.dto.ProductFacetQueryDTO;
+import com.cmliy.springweb.dto.ProductFacetsDTO;
 import com.cmliy.springweb.dto.ProductListItemDTO;
 import com.cmliy.springweb.dto.ProductQueryRequestDTO;
 import com.cmliy.springweb.dto.ProductResponseDTO;
+import com.cmliy.springweb.dto.ProductSearchResultDTO;
+import com.cmliy.springweb.dto.ProductSuggestionDTO;
 import com.cmliy.springweb.dto.ProductSummaryDTO;
 import com.cmliy.springweb.dto.ProductUpdateRequestDTO;
+import com.cmliy.springweb.dto.order.FlashSaleDTO;
 import com.cmliy.springweb.repository.UserRepository;
+import com.cmliy.springweb.service.FlashSaleService;
 import com.cmliy.springweb.service.ImageService;
-import com.cmliy.springweb.service.ProductDataService;
 import com.cmliy.springweb.service.ProductService;
 import com.cmliy.springweb.util.JwtUtil;
 
@@ -53,20 +61,20 @@ public class ProductController extends BaseController {
 
     private final ProductService productService;
     private final ImageService imageService;
-    private final ProductDataService productDataService;
     private final ProductConverter productConverter;
+    private final FlashSaleService flashSaleService;
 
     public ProductController(ProductService productService,
                            ImageService imageService,
-                           ProductDataService productDataService,
                            ProductConverter productConverter,
+                           FlashSaleService flashSaleService,
                            UserRepository userRepository,
                            JwtUtil jwtUtil) {
         super(userRepository, jwtUtil);
         this.productService = productService;
         this.imageService = imageService;
-        this.productDataService = productDataService;
         this.productConverter = productConverter;
+        this.flashSaleService = flashSaleService;
     }
 
     /**
@@ -74,9 +82,12 @@ public class ProductController extends BaseController {
      *
      * @param page 页码（从0开始，默认0）
      * @param size 每页大小（默认10）
-     * @param sortBy 排序字段（默认id）
+     * @param sortBy 排序字段（默认id，effectivePrice按实付单价排序）
      * @param sortDirection 排序方向（ASC/DESC，默认DESC）
      * @param isAvailable 是否上架（可选，true=只显示上架商品，false=只显示下架商品，null=显示所有商品）
+     * @param minEffectivePrice 最低实付单价（可选，按折后价筛选）
+     * @param maxEffectivePrice 最高实付单价（可选，按折后价筛选）
+     * @param exactTotal 是否要求精确总数（默认true；false时返回估算或缓存的总数，响应中totalExact=false）
      * @return 分页商品列表
      */
     @GetMapping
@@ -85,12 +96,43 @@ public class ProductController extends BaseController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDirection,
-            @RequestParam(required = false) Boolean isAvailable) {
+            @RequestParam(required = false) Boolean isAvailable,
+            @RequestParam(required = false) BigDecimal minEffectivePrice,
+            @RequestParam(required = false) BigDecimal maxEffectivePrice,
+            @RequestParam(defaultValue = "true") boolean exactTotal) {
+
+        log.info("获取商品列表请求: page={}, size={}, sortBy={}, sortDirection={}, isAvailable={}, effectivePrice={}~{}, exactTotal={}",
+                page, size, sortBy, sortDirection, isAvailable, minEffectivePrice, maxEffectivePrice, exactTotal);
 
-        log.info("获取商品列表请求: page={}, size={}, sortBy={}, sortDirection={}, isAvailable={}",
-                page, size, sortBy, sortDirection, isAvailable);
+        Page<ProductListItemDTO> productPage = productService.getProductList(page, size, sortBy, sortDirection,
+                isAvailable, minEffectivePrice, maxEffectivePrice, exactTotal);
+
+        return success(productPage, "获取商品列表成功");
+    }
+
+    /**
+     * 📜 获取商品列表（游标分页）
+     *
+     * 与分页接口返回相同的列表项，但不返回总数和页码；
+     * 把响应中的nextCursor原样传回即可获取下一页。
+     *
+     * @param cursor 上一页返回的游标（第一页不传）
+     * @param size 每页大小（默认10）
+     * @param sortBy 排序字段（id/createdAt/salesCount/price/effectivePrice，默认id）
+     * @param sortDirection 排序方向（ASC/DESC，默认DESC）
+     * @param isAvailable 是否上架（可选）
+     * @return 游标分页商品列表
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPage<ProductListItemDTO>>> scrollProductList(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(required = false) Boolean isAvailable) {
 
-        Page<ProductListItemDTO> productPage = productService.getProductList(page, size, sortBy, sortDirection, isAvailable);
+        CursorPage<ProductListItemDTO> productPage =
+                productService.scrollProductList(cursor, size, sortBy, sortDirection, isAvailable);
 
         return success(productPage, "获取商品列表成功");
     }
@@ -254,6 +296,108 @@ public class ProductController extends BaseController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 🏷️ 搜索商品并返回规格分面
+     *
+     * 由内嵌搜索索引处理，返回当前页商品、命中总数，以及命中商品在各规格（分类、品牌、颜色、尺寸等）下的取值计数。
+     *
+     * @param queryRequest 查询请求DTO（page从1开始，未指定pageSize时返回全部命中）
+     * @return 搜索结果和规格分面
+     */
+    @PostMapping("/search/facets")
+    public ResponseEntity<ApiResponse<ProductSearchResultDTO>> searchProductsWithFacets(
+            @RequestBody ProductQueryRequestDTO queryRequest) {
+
+        log.info("分面搜索商品请求: keyword={}, category={}, brand={}",
+                queryRequest.getKeyword(), queryRequest.getCategory(), queryRequest.getBrand());
+
+        return success(productService.searchProductsWithFacets(queryRequest), "搜索商品成功");
+    }
+
+    /**
+     * 🧩 按规格属性筛选商品（分页）
+     *
+     * 筛选面板使用：任意数量的规格键值约束（同一规格任一值，不同规格同时满足）、
+     * 规格数值区间和价格/库存区间。规格约束由productData上的GIN索引支撑。
+     *
+     * @param filter 筛选条件
+     * @return 分页商品列表，附带totalExact标记
+     */
+    @PostMapping("/filter")
+    public ResponseEntity<ApiResponse<Page<ProductListItemDTO>>> filterProducts(
+            @RequestBody ProductAttributeFilterDTO filter) {
+
+        log.info("属性筛选商品请求: specifications={}, page={}, size={}",
+                filter.getSpecifications(), filter.getPage(), filter.getSize());
+
+        return success(productService.filterProducts(filter), "筛选商品成功");
+    }
+
+    /**
+     * 🧮 筛选面板分面计数
+     *
+     * 返回当前选择下的命中总数，以及每个规格值、价格区间、上架状态、有货状态的商品数。
+     * 由内存中的压缩位图计算，不访问数据库，适合筛选面板每次勾选后刷新。
+     *
+     * @param query 筛选面板的当前选择
+     * @return 分面计数
+     */
+    @PostMapping("/facets")
+    public ResponseEntity<ApiResponse<ProductFacetsDTO>> getProductFacets(@RequestBody ProductFacetQueryDTO query) {
+        log.debug("商品分面计数请求: specifications={}, priceRanges={}", query.getSpecifications(), query.getPriceRanges());
+
+        return success(productService.getProductFacets(query), "获取分面计数成功");
+    }
+
+    /**
+     * 🔎 按相关度检索商品（分页）
+     *
+     * 基于PostgreSQL全文检索（中文按相邻两字切分）和pg_trgm模糊匹配，
+     * 结果按相关度排序，名称命中优先于描述命中。
+     *
+     * @param keyword 搜索关键词
+     * @param page 页码（从0开始，默认0）
+     * @param size 每页大小（默认10）
+     * @param onlyAvailable 是否只检索上架商品（默认true）
+     * @param exactTotal 是否要求精确总数（默认true）
+     * @return 按相关度排序的分页商品列表
+     */
+    @GetMapping("/search/ranked")
+    public ResponseEntity<ApiResponse<Page<ProductListItemDTO>>> searchProductsByRelevance(
+            @RequestParam String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "true") boolean onlyAvailable,
+            @RequestParam(defaultValue = "true") boolean exactTotal) {
+
+        log.info("相关度检索商品请求: keyword={}, page={}, size={}, onlyAvailable={}", keyword, page, size, onlyAvailable);
+
+        Page<ProductListItemDTO> productPage =
+                productService.searchProductsByRelevance(keyword, page, size, onlyAvailable, exactTotal);
+
+        return success(productPage, "搜索商品成功");
+    }
+
+    /**
+     * 💡 商品输入提示（自动补全）
+     *
+     * 搜索框每次输入都会调用，由内存前缀索引直接返回，不访问数据库，
+     * 结果为名称（或名称中某个词、名称全拼、名称首字母）以输入内容开头的上架商品，按销量排序。
+     *
+     * @param prefix 用户已输入的内容
+     * @param limit 最多返回条数（默认10）
+     * @return 输入提示列表
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<ProductSuggestionDTO>>> suggestProducts(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        log.debug("商品输入提示请求: prefix={}, limit={}", prefix, limit);
+
+        return success(productService.suggestProducts(prefix, limit), "获取输入提示成功");
+    }
+
     /**
      * 📊 获取商品摘要列表
      *
@@ -381,6 +525,7 @@ public class ProductController extends BaseController {
      * @param isAvailable 是否上架（可选）
      * @param sortBy 排序字段（默认createdAt）
      * @param sortDirection 排序方向（默认desc）
+     * @param exactTotal 是否要求精确总数（默认true；false时返回短时缓存的总数，响应中totalExact=false）
      * @return 商家商品分页列表
      */
     @GetMapping("/merchant")
@@ -392,7 +537,8 @@ public class ProductController extends BaseController {
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Boolean isAvailable,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDirection) {
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(defaultValue = "true") boolean exactTotal) {
 
         log.info("获取商家商品列表请求: page={}, size={}, keyword={}, category={}, isAvailable={}, sortBy={}, sortDirection={}, operator={}",
                 page, size, keyword, category, isAvailable, sortBy, sortDirection, getCurrentUsername());
@@ -400,7 +546,7 @@ public class ProductController extends BaseController {
         try {
             Long currentUserId = getCurrentUserId();
             Page<ProductListItemDTO> productPage = productService.getMerchantProducts(
-                    currentUserId, page, size, keyword, category, isAvailable, sortBy, sortDirection);
+                    currentUserId, page, size, keyword, category, isAvailable, sortBy, sortDirection, exactTotal);
 
             ApiResponse<Page<ProductListItemDTO>> response = ApiResponse.success(productPage, "获取商家商品列表成功");
             return ResponseEntity.ok(response);
@@ -458,17 +604,17 @@ public class ProductController extends BaseController {
             Long currentUserId = getCurrentUserId();
 
             // 验证商品所有权
-            com.cmliy.springweb.model.Product product = productService.getProductByIdForUpdate(id, currentUserId)
-                    .orElseThrow(() -> new RuntimeException("商品不存在或无权限访问"));
+            if (!productService.isProductOwnedBy(id, currentUserId)) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
 
             // 上传图片（使用商品ID+image+时间戳命名规则）
             com.cmliy.springweb.service.ImageService.ImageUploadResult uploadResult = imageService.uploadProductImage(file, id);
 
-            // 更新商品图片数据
-            productDataService.updateProductImageData(product, uploadResult.getImageUrl());
-
-            // 保存商品
-            productService.saveProduct(product);
+            // 更新商品图片数据（只改写image_data.main_image）
+            if (!productService.updateProductMainImage(id, currentUserId, uploadResult.getImageUrl())) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
 
             // 返回前端期望的格式
             Map<String, String> responseData = Map.of("imageUrl", uploadResult.getImageUrl());
@@ -515,11 +661,8 @@ public class ProductController extends BaseController {
                 imageService.softDeleteProductImage(id, currentFilename);
             }
 
-            // 清除商品图片数据
-            productDataService.updateProductImageData(product, null);
-
-            // 保存商品
-            productService.saveProduct(product);
+            // 清除商品图片数据（只删除image_data.main_image）
+            productService.updateProductMainImage(id, currentUserId, null);
 
             ApiResponse<Void> response = ApiResponse.success(null, "图片删除成功");
             return ResponseEntity.ok(response);
@@ -531,6 +674,186 @@ public class ProductController extends BaseController {
         }
     }
 
+    /**
+     * 🖼️ 上传图片并追加到商品图库
+     *
+     * @param id 商品ID
+     * @param file 上传的图片文件
+     * @return 上传结果，包含图片URL
+     */
+    @PostMapping("/{id}/gallery")
+    @PreAuthorize("hasRole('SHOPER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, String>>> addGalleryImage(
+            @PathVariable Long id,
+            @RequestParam("file") MultipartFile file) {
+
+        log.info("上传商品图库图片请求: id={}, filename={}", id, file.getOriginalFilename());
+
+        try {
+            Long currentUserId = getCurrentUserId();
+
+            if (!productService.isProductOwnedBy(id, currentUserId)) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
+
+            com.cmliy.springweb.service.ImageService.ImageUploadResult uploadResult = imageService.uploadProductImage(file, id);
+
+            // 只改写image_data.gallery
+            if (!productService.addProductGalleryImage(id, currentUserId, uploadResult.getImageUrl())) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
+
+            Map<String, String> responseData = Map.of("imageUrl", uploadResult.getImageUrl());
+            return ResponseEntity.ok(ApiResponse.success(responseData, "图库图片上传成功"));
+
+        } catch (com.cmliy.springweb.exception.ImageUploadException e) {
+            log.error("图库图片上传失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage(), 400));
+        } catch (RuntimeException e) {
+            log.error("处理图库图片上传失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage(), 400));
+        }
+    }
+
+    /**
+     * 🗑️ 从商品图库移除图片（软删除图片文件）
+     *
+     * @param id 商品ID
+     * @param imageUrl 要移除的图片URL
+     * @return 删除结果
+     */
+    @DeleteMapping("/{id}/gallery")
+    @PreAuthorize("hasRole('SHOPER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> removeGalleryImage(
+            @PathVariable Long id,
+            @RequestParam("imageUrl") String imageUrl) {
+
+        log.info("移除商品图库图片请求: id={}, imageUrl={}", id, imageUrl);
+
+        try {
+            Long currentUserId = getCurrentUserId();
+
+            // 只改写image_data.gallery；图库中没有该图片或无权限时不做任何修改
+            if (!productService.removeProductGalleryImage(id, currentUserId, imageUrl)) {
+                throw new RuntimeException("商品不存在、无权限访问或图库中没有该图片");
+            }
+
+            String filename = extractFilenameFromUrl(imageUrl);
+            if (filename != null) {
+                imageService.softDeleteProductImage(id, filename);
+            }
+
+            return ResponseEntity.ok(ApiResponse.success(null, "图库图片删除成功"));
+
+        } catch (RuntimeException e) {
+            log.error("移除图库图片失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage(), 400));
+        }
+    }
+
+    /**
+     * 📋 替换商品规格
+     *
+     * 只改写productData.specifications，不加载和重写整个商品数据；请求体为空对象时清除规格。
+     *
+     * @param id 商品ID
+     * @param specifications 规格名 → 规格值（字符串或字符串列表）
+     * @return 更新结果
+     */
+    @PutMapping("/{id}/specifications")
+    @PreAuthorize("hasRole('SHOPER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> replaceSpecifications(
+            @PathVariable Long id,
+            @RequestBody Map<String, Object> specifications) {
+
+        log.info("替换商品规格请求: id={}, specifications={}", id, specifications);
+
+        try {
+            Long currentUserId = getCurrentUserId();
+
+            if (!productService.replaceProductSpecifications(id, currentUserId, specifications)) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
+
+            return ResponseEntity.ok(ApiResponse.success(null, "商品规格更新成功"));
+
+        } catch (RuntimeException e) {
+            log.error("替换商品规格失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage(), 400));
+        }
+    }
+
+    /**
+     * ⚡ 开启秒杀
+     *
+     * 把可售数量拆成内存令牌，之后该商品只能通过 /orders/flash-sale/claim 抢购。
+     *
+     * @param id 商品ID
+     * @param quantity 投放数量（可选，默认全部当前库存）
+     * @param unitPrice 秒杀单价（可选，默认当前折后价）
+     * @return 活动状态
+     */
+    @PostMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('SHOPER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<FlashSaleDTO>> startFlashSale(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer quantity,
+            @RequestParam(required = false) BigDecimal unitPrice) {
+
+        log.info("开启秒杀请求: id={}, quantity={}, unitPrice={}, operator={}", id, quantity, unitPrice, getCurrentUsername());
+
+        try {
+            if (!productService.isProductOwnedBy(id, getCurrentUserId())) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
+            FlashSaleDTO flashSale = flashSaleService.startFlashSale(id, quantity, unitPrice);
+            return ResponseEntity.ok(ApiResponse.success(flashSale, "秒杀已开启"));
+
+        } catch (RuntimeException e) {
+            log.error("开启秒杀失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage(), 400));
+        }
+    }
+
+    /**
+     * ⏹️ 结束秒杀（已抢到的订单仍会写入）
+     *
+     * @param id 商品ID
+     * @return 操作结果
+     */
+    @DeleteMapping("/{id}/flash-sale")
+    @PreAuthorize("hasRole('SHOPER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> stopFlashSale(@PathVariable Long id) {
+        log.info("结束秒杀请求: id={}, operator={}", id, getCurrentUsername());
+
+        try {
+            if (!productService.isProductOwnedBy(id, getCurrentUserId())) {
+                throw new RuntimeException("商品不存在或无权限访问");
+            }
+            if (!flashSaleService.stopFlashSale(id)) {
+                throw new RuntimeException("商品未在秒杀中");
+            }
+            return ResponseEntity.ok(ApiResponse.success(null, "秒杀已结束"));
+
+        } catch (RuntimeException e) {
+            log.error("结束秒杀失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage(), 400));
+        }
+    }
+
+    /**
+     * 📊 获取秒杀状态（剩余数量、是否售罄），只读内存，不访问数据库
+     *
+     * @param id 商品ID
+     * @return 活动状态
+     */
+    @GetMapping("/{id}/flash-sale")
+    public ResponseEntity<ApiResponse<FlashSaleDTO>> getFlashSale(@PathVariable Long id) {
+        return flashSaleService.getFlashSale(id)
+                .map(flashSale -> success(flashSale, "获取秒杀状态成功"))
+                .orElseGet(() -> error(404, "商品未在秒杀中"));
+    }
+
     /**
      * 📦 根据商品ID列表获取商品详情
      *
@@ -1,5 +1,6 @@
 package com.cmliy.springweb.converter;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
@@ -12,7 +13,9 @@ import com.cmliy.springweb.dto.ProductResponseDTO;
 import com.cmliy.springweb.dto.ProductSummaryDTO;
 import com.cmliy.springweb.dto.ProductUpdateRequestDTO;
 import com.cmliy.springweb.model.Product;          // @Slf4j: 自动生成Logger实例
+import com.cmliy.springweb.model.ProductData;
 import com.cmliy.springweb.model.User;   // @RequiredArgsConstructor: 自动生成构造函数
+import com.cmliy.springweb.repository.ProductListRow;
 import com.cmliy.springweb.service.ProductDataService;
 
 import lombok.RequiredArgsConstructor;
@@ -176,14 +179,9 @@ public class ProductConverter extends BaseConverter<Product, ProductResponseDTO>
             dto.setMainImageUrl(p.getMainImage());
 
             // 从 productData 中提取图片数据
-            @SuppressWarnings("unchecked")
-            Map<String, Object> imageData = (Map<String, Object>) p.getProductData().getOrDefault("image_data", new java.util.HashMap<>());
-            @SuppressWarnings("unchecked")
-            Map<String, String> thumbnails = (Map<String, String>) imageData.getOrDefault("thumbnails", new java.util.HashMap<>());
-            Integer totalImages = (Integer) imageData.getOrDefault("total_images", 0);
-
-            dto.setThumbnails(thumbnails);
-            dto.setTotalImages(totalImages);
+            ProductData.ImageData imageData = p.getProductData().getImageData();
+            dto.setThumbnails(imageData.getThumbnails());
+            dto.setTotalImages(imageData.getTotalImages() != null ? imageData.getTotalImages() : 0);
 
             // 统一规格信息 - 只返回specifications
             dto.setSpecifications(p.getAllSpecifications());
@@ -221,15 +219,9 @@ public class ProductConverter extends BaseConverter<Product, ProductResponseDTO>
         dto.setSalesCount(product.getSalesCount());
         dto.setDiscount(product.getDiscount());
         dto.setMainImageUrl(product.getMainImage());
-        // 从specifications中动态获取分类和品牌信息（如果存在）
-        Object category = product.getSpecification("分类");
-        Object brand = product.getSpecification("品牌");
-        if (category instanceof String) {
-            dto.setCategory((String) category);
-        }
-        if (brand instanceof String) {
-            dto.setBrand((String) brand);
-        }
+        // 分类和品牌来自数据库生成列，不再逐行解析specifications
+        dto.setCategory(product.getCategory());
+        dto.setBrand(product.getBrand());
         dto.setFormattedPrice(product.getFormattedPrice());
         dto.setFormattedDiscountedPrice(product.getFormattedDiscountedPrice());
         dto.setStockStatus(product.getStockStatus());
@@ -267,6 +259,73 @@ public class ProductConverter extends BaseConverter<Product, ProductResponseDTO>
         return dto;
     }
 
+    /**
+     * 🔄 列表投影转ProductListItemDTO
+     *
+     * 与toListItemDTO(Product)输出相同的字段，description为截取后的摘要。
+     *
+     * @param row 商品列表行投影
+     * @return ProductListItemDTO
+     */
+    public ProductListItemDTO toListItemDTO(ProductListRow row) {
+        if (row == null) {
+            return null;
+        }
+
+        BigDecimal discountedPrice = effectivePriceOf(row);
+        ProductListItemDTO dto = new ProductListItemDTO();
+        dto.setId(row.id());
+        dto.setProductName(row.productName());
+        dto.setPrice(row.price());
+        dto.setDiscount(row.discount());
+        dto.setSalesCount(row.salesCount());
+        dto.setMainImageUrl(row.mainImage());
+        dto.setFormattedPrice(Product.formatPrice(row.price()));
+        dto.setFormattedDiscountedPrice(Product.formatPrice(discountedPrice));
+        dto.setStockStatus(Product.stockStatusOf(row.stockQuantity()));
+        dto.setIsAvailable(row.isAvailable());
+        dto.setStockQuantity(row.stockQuantity());
+        dto.setDescription(row.descriptionSnippet());
+
+        return dto;
+    }
+
+    /**
+     * 🔄 列表投影转ProductSummaryDTO
+     *
+     * @param row 商品列表行投影
+     * @return ProductSummaryDTO
+     */
+    public ProductSummaryDTO toSummaryDTO(ProductListRow row) {
+        if (row == null) {
+            return null;
+        }
+
+        ProductSummaryDTO dto = new ProductSummaryDTO();
+        dto.setId(row.id());
+        dto.setProductName(row.productName());
+        dto.setPrice(row.price());
+        dto.setSalesCount(row.salesCount());
+        dto.setDiscount(row.discount());
+        dto.setMainImageUrl(row.mainImage());
+        dto.setCategory(row.category());
+        dto.setBrand(row.brand());
+        dto.setFormattedPrice(Product.formatPrice(row.price()));
+        dto.setFormattedDiscountedPrice(Product.formatPrice(effectivePriceOf(row)));
+        dto.setStockStatus(Product.stockStatusOf(row.stockQuantity()));
+        dto.setStockQuantity(row.stockQuantity());
+        dto.setIsAvailable(row.isAvailable());
+
+        return dto;
+    }
+
+    /**
+     * 实付单价优先取生成列，投影来源没有该列时按价格和折扣计算
+     */
+    private static BigDecimal effectivePriceOf(ProductListRow row) {
+        return row.effectivePrice() != null ? row.effectivePrice() : Product.discountedPrice(row.price(), row.discount());
+    }
+
     /**
      * 🔄 ProductCreateRequestDTO转Product实体
      *
@@ -0,0 +1,120 @@
+package com.cmliy.springweb.converter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.JavaType;
+import org.hibernate.type.format.FormatMapper;
+
+import com.cmliy.springweb.model.ProductData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * 🔄 商品扩展数据编解码器 - Product Data Codec
+ *
+ * ProductData与JSONB文本之间的唯一转换入口。ObjectMapper和ProductData专用的
+ * ObjectReader/ObjectWriter在类加载时构建一次，之后所有读写共享，不再按调用创建。
+ *
+ * 同时作为Hibernate的JSON FormatMapper（见JsonConfig），
+ * 实体加载和刷新时product_data列直接经由这里读写。
+ */
+public final class ProductDataCodec implements FormatMapper {
+
+    /**
+     * 注册给Hibernate的共享实例
+     */
+    public static final ProductDataCodec INSTANCE = new ProductDataCodec();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY) // 兼容旧数据中写成单个字符串的规格值
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final ObjectReader READER = MAPPER.readerFor(ProductData.class);
+    private static final ObjectWriter WRITER = MAPPER.writerFor(ProductData.class);
+    private static final ObjectWriter SPECIFICATIONS_WRITER = MAPPER.writerFor(new TypeReference<Map<String, List<String>>>() {
+    });
+
+    private ProductDataCodec() {
+    }
+
+    /**
+     * 📥 解析JSONB文本
+     *
+     * @param json JSON文本，null或空白返回ProductData.EMPTY
+     * @return 商品扩展数据
+     * @throws IllegalArgumentException 文本不是合法的商品扩展数据
+     */
+    public static ProductData read(String json) {
+        if (json == null || json.isBlank()) {
+            return ProductData.EMPTY;
+        }
+        try {
+            return READER.readValue(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("商品数据格式不正确", e);
+        }
+    }
+
+    /**
+     * 📤 序列化为JSONB文本
+     *
+     * @param data 商品扩展数据，null按ProductData.EMPTY处理
+     * @return JSON文本
+     */
+    public static String write(ProductData data) {
+        try {
+            return WRITER.writeValueAsString(data != null ? data : ProductData.EMPTY);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("商品数据无法序列化", e);
+        }
+    }
+
+    /**
+     * 📤 只序列化规格子文档，供jsonb_set局部更新使用
+     *
+     * @param specifications 规格名 → 规格值列表
+     * @return JSON文本，null按空对象处理
+     */
+    public static String writeSpecifications(Map<String, List<String>> specifications) {
+        try {
+            return SPECIFICATIONS_WRITER.writeValueAsString(specifications != null ? specifications : Map.of());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("规格数据无法序列化", e);
+        }
+    }
+
+    // ==================== 🗄️ Hibernate FormatMapper ====================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T fromString(CharSequence charSequence, JavaType<T> javaType, WrapperOptions wrapperOptions) {
+        if (javaType.getJavaTypeClass() == ProductData.class) {
+            return (T) read(charSequence.toString());
+        }
+        try {
+            return MAPPER.readValue(charSequence.toString(), MAPPER.constructType(javaType.getJavaType()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON无法转换为 " + javaType.getJavaType().getTypeName(), e);
+        }
+    }
+
+    @Override
+    public <T> String toString(T value, JavaType<T> javaType, WrapperOptions wrapperOptions) {
+        if (javaType.getJavaTypeClass() == ProductData.class) {
+            return write((ProductData) value);
+        }
+        try {
+            return MAPPER.writerFor(MAPPER.constructType(javaType.getJavaType())).writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("无法序列化为JSON: " + javaType.getJavaType().getTypeName(), e);
+        }
+    }
+}
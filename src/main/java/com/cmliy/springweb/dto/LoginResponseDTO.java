@@ -32,6 +32,10 @@ public class LoginResponseDTO {
 
     private Long expiresIn;
 
+    private String refreshToken;
+
+    private Long refreshExpiresIn;
+
     private UserDTO user;
 
     @ToString.Include
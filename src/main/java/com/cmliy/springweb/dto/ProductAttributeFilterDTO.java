@@ -0,0 +1,99 @@
+package com.cmliy.springweb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🧩 商品属性筛选请求DTO
+ *
+ * 筛选面板提交的条件：任意数量的规格键值约束、规格数值区间，以及价格/库存等列上的区间。
+ * 规格约束编译为productData上的JSONB包含判断，由GIN索引支撑。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductAttributeFilterDTO {
+    /**
+     * 规格约束：规格名 → 可接受的值（同一规格任一值即可，不同规格同时满足）
+     * 例如 {"颜色": ["白色", "黑色"], "尺寸": ["M"]}
+     */
+    private Map<String, List<String>> specifications;
+
+    /**
+     * 规格数值区间：规格名 → 区间，按规格值开头的数字比较（如 "38"、"8cm"）
+     */
+    private Map<String, Range> specificationRanges;
+
+    /**
+     * 最低价格
+     */
+    private BigDecimal minPrice;
+
+    /**
+     * 最高价格
+     */
+    private BigDecimal maxPrice;
+
+    /**
+     * 最低库存
+     */
+    private Integer minStock;
+
+    /**
+     * 最高库存
+     */
+    private Integer maxStock;
+
+    /**
+     * 是否上架（null表示不限）
+     */
+    private Boolean isAvailable;
+
+    /**
+     * 页码（从0开始）
+     */
+    @Builder.Default
+    private int page = 0;
+
+    /**
+     * 每页大小
+     */
+    @Builder.Default
+    private int size = 10;
+
+    /**
+     * 排序字段
+     */
+    @Builder.Default
+    private String sortBy = "id";
+
+    /**
+     * 排序方向（asc/desc）
+     */
+    @Builder.Default
+    private String sortDirection = "desc";
+
+    /**
+     * 是否要求精确总数（false时使用按筛选条件短时缓存的计数）
+     */
+    @Builder.Default
+    private boolean exactTotal = true;
+
+    /**
+     * 📏 数值区间，两端都包含，null表示不限
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Range {
+        private BigDecimal min;
+        private BigDecimal max;
+    }
+}
@@ -103,7 +103,7 @@ public class ProductDetailDTO {
      * 📋 商品规格 - 商品规格属性（颜色、尺寸等）
      * 数据来源：Product实体的getAllSpecifications()方法
      */
-    private Map<String, Object> specifications;
+    private Map<String, List<String>> specifications;
 
     /**
      * ✅ 是否可购买 - 商品是否可购买（上架且有库存）
@@ -0,0 +1,40 @@
+package com.cmliy.springweb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🧮 商品分面查询请求DTO
+ *
+ * 筛选面板当前的选择，由内存分面引擎计算命中数和各选项的商品数，不访问数据库。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetQueryDTO {
+    /**
+     * 已选规格：规格名 → 已勾选的值（同一规格任一值即可，不同规格同时满足）
+     */
+    private Map<String, List<String>> specifications;
+
+    /**
+     * 已选价格区间标签（如 "50-100"、"1000+"），任一即可
+     */
+    private List<String> priceRanges;
+
+    /**
+     * 是否上架（null表示不限）
+     */
+    private Boolean isAvailable;
+
+    /**
+     * 是否只看有货（null或false表示不限）
+     */
+    private Boolean hasStock;
+}
@@ -0,0 +1,50 @@
+package com.cmliy.springweb.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 🧮 商品分面DTO - 筛选面板计数
+ *
+ * 每个维度的计数都排除该维度自身的选择（其余选择照常生效），
+ * 因此勾选一个颜色后，其他颜色仍然显示可选的商品数。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+    /**
+     * 🔢 命中总数 - 满足全部选择的商品数
+     * 数据来源：内存分面引擎
+     */
+    private long total;
+
+    /**
+     * 🏷️ 规格计数 - 规格名 → (规格值 → 商品数)
+     * 数据来源：productData.specifications
+     */
+    private Map<String, Map<String, Long>> specifications;
+
+    /**
+     * 💰 价格区间计数 - 区间标签 → 商品数
+     * 数据来源：products表price字段，分界点见配置facet-price-breaks
+     */
+    private Map<String, Long> priceRanges;
+
+    /**
+     * 🟢 上架状态计数 - "true"/"false" → 商品数
+     * 数据来源：products表is_available字段
+     */
+    private Map<String, Long> availability;
+
+    /**
+     * 📦 有货商品数 - 满足其余选择且库存大于0的商品数
+     * 数据来源：products表stock_quantity字段
+     */
+    private long inStock;
+}
@@ -53,6 +53,18 @@ public class ProductQueryRequestDTO {
      */
     private BigDecimal maxPrice;
 
+    /**
+     * 💸 最低实付单价 - 按折后价筛选的最低值
+     * 前端数据来源：价格筛选器（按到手价筛选时）
+     */
+    private BigDecimal minEffectivePrice;
+
+    /**
+     * 💸 最高实付单价 - 按折后价筛选的最高值
+     * 前端数据来源：价格筛选器（按到手价筛选时）
+     */
+    private BigDecimal maxEffectivePrice;
+
     /**
      * 📦 最低库存 - 最低库存筛选
      * 前端数据来源：库存筛选器的最低值
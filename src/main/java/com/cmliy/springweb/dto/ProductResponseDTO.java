@@ -92,7 +92,7 @@ public class ProductResponseDTO {
      * 📋 商品规格 - 商品规格属性（颜色、尺寸等）
      * 数据来源：Product实体的getAllSpecifications()方法
      */
-    private Map<String, Object> specifications;
+    private Map<String, List<String>> specifications;
 
     /**
      * 🏷️ 商品分类 - 商品所属分类
@@ -0,0 +1,50 @@
+package com.cmliy.springweb.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🔎 商品搜索结果DTO - 商品搜索响应
+ *
+ * 由内嵌搜索索引直接返回，不访问数据库
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    /**
+     * 📋 当前页商品 - 按相关度或指定字段排序
+     * 数据来源：搜索索引中保存的列表字段
+     */
+    private List<ProductListItemDTO> items;
+
+    /**
+     * 🔢 命中总数 - 满足所有筛选条件的商品数
+     * 数据来源：搜索索引
+     */
+    private long total;
+
+    /**
+     * 📄 页码 - 当前页码（从1开始）
+     * 数据来源：请求参数，未分页时为1
+     */
+    private int page;
+
+    /**
+     * 📏 每页数量 - 本次返回的最大条数
+     * 数据来源：请求参数，未分页时为命中总数
+     */
+    private int pageSize;
+
+    /**
+     * 🏷️ 规格分面 - 规格名 → (规格值 → 商品数)
+     * 数据来源：搜索索引中的规格分面，统计范围是当前命中的全部商品
+     */
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,35 @@
+package com.cmliy.springweb.dto;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+/**
+ * 💡 商品输入提示DTO - 搜索框自动补全
+ *
+ * 由内存中的前缀索引直接返回，不访问数据库
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionDTO {
+    /**
+     * 🔢 商品ID - 数据库主键
+     * 数据来源：数据库自增主键
+     */
+    private Long id;
+
+    /**
+     * 🏷️ 商品名称 - 提示中显示的名称
+     * 数据来源：数据库products表product_name字段
+     */
+    private String productName;
+
+    /**
+     * 📊 销售数量 - 提示的排序依据
+     * 数据来源：数据库products表sales_count字段
+     */
+    private Integer salesCount;
+}
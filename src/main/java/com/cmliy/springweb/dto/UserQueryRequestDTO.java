@@ -61,4 +61,10 @@ public class UserQueryRequestDTO {
      * 排序方向（asc/desc）
      */
     private String sortDirection = "desc";
+
+    /**
+     * 是否要求精确总数（false时返回估算或短时缓存的总数）
+     */
+    @Builder.Default
+    private boolean exactTotal = true;
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.cmliy.springweb.dto.order;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ⚡ 秒杀抢购结果DTO
+ *
+ * 抢到令牌后立即返回PENDING，订单由后台批量写入数据库；
+ * 客户端用claimId轮询，写入后变为CONFIRMED并带上订单ID，数据库库存不足时为FAILED。
+ * 查询不到claimId（过期或服务重启）按未成交处理。
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleClaimDTO {
+
+    public static final String PENDING = "PENDING";      // 已抢到，等待写入
+    public static final String CONFIRMED = "CONFIRMED";  // 订单已创建
+    public static final String FAILED = "FAILED";        // 写入失败，未成交
+
+    /**
+     * 🎫 抢购凭证ID
+     */
+    private String claimId;
+
+    /**
+     * 📦 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 🔢 购买数量
+     */
+    private Integer quantity;
+
+    /**
+     * 💰 秒杀单价
+     */
+    private BigDecimal unitPrice;
+
+    /**
+     * 📊 状态：PENDING / CONFIRMED / FAILED
+     */
+    private String status;
+
+    /**
+     * 📋 订单ID（CONFIRMED时有值）
+     */
+    private Long orderId;
+
+    /**
+     * 💬 失败原因
+     */
+    private String message;
+
+    /**
+     * 👤 买家ID，只用于校验查询者，不返回给客户端
+     */
+    @JsonIgnore
+    private Long userId;
+}
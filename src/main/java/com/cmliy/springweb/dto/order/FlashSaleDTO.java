@@ -0,0 +1,64 @@
+package com.cmliy.springweb.dto.order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ⚡ 秒杀活动状态DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleDTO {
+
+    /**
+     * 🆔 活动ID
+     */
+    private Long id;
+
+    /**
+     * 📦 商品ID
+     */
+    private Long productId;
+
+    /**
+     * 💰 秒杀单价
+     */
+    private BigDecimal unitPrice;
+
+    /**
+     * 🎟️ 投放数量
+     */
+    private Integer allocated;
+
+    /**
+     * ✅ 已写回数据库的成交数量
+     */
+    private Integer confirmed;
+
+    /**
+     * 🎟️ 内存中剩余的令牌数（近似值）
+     */
+    private Integer remaining;
+
+    /**
+     * ⏳ 已抢到、等待写入数据库的数量
+     */
+    private Integer pending;
+
+    /**
+     * 🚫 是否已售罄
+     */
+    private Boolean soldOut;
+
+    /**
+     * ⏰ 开始时间
+     */
+    private LocalDateTime startedAt;
+}
@@ -2,6 +2,7 @@
 package com.cmliy.springweb.exception;
 
 import com.cmliy.springweb.common.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -81,6 +82,44 @@ public class GlobalExceptionHandler {
         );
     }
 
+    /**
+     * 🚦 处理服务繁忙异常
+     *
+     * 有界资源（如密码哈希线程池）已满时返回503，并通过Retry-After提示客户端稍后重试。
+     *
+     * @param e 服务繁忙异常
+     * @return 服务不可用的标准化响应
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiResponse<Void>> handleServiceBusyException(ServiceBusyException e) {
+        // 📝 记录服务繁忙日志
+        logger.warn("服务繁忙: {}", e.getMessage());
+
+        // 📤 返回503服务不可用状态的标准化响应
+        return ResponseEntity.status(503)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(ApiResponse.error(e.getMessage(), 503));
+    }
+
+    /**
+     * 🚫 处理限流异常
+     *
+     * 客户端超出限流配额时返回429，并通过Retry-After告知需要等待的秒数。
+     *
+     * @param e 请求过多异常
+     * @return 请求过多的标准化响应
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<Void>> handleTooManyRequestsException(TooManyRequestsException e) {
+        // 📝 记录限流日志
+        logger.warn("请求被限流: {}, retryAfter={}s", e.getMessage(), e.getRetryAfterSeconds());
+
+        // 📤 返回429请求过多状态的标准化响应
+        return ResponseEntity.status(429)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .body(ApiResponse.error(e.getMessage(), 429));
+    }
+
     /**
      * 🎯 处理通用异常
      *
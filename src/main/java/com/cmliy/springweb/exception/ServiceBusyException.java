@@ -0,0 +1,27 @@
+package com.cmliy.springweb.exception;
+
+/**
+ * 🚦 服务繁忙异常
+ *
+ * 当受保护的有限资源（如密码哈希线程池）已满或等待超时时抛出，
+ * 由GlobalExceptionHandler转换为503响应，提示客户端稍后重试。
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    /**
+     * 构造服务繁忙异常
+     * @param message 异常消息
+     */
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+
+    /**
+     * 构造服务繁忙异常
+     * @param message 异常消息
+     * @param cause 异常原因
+     */
+    public ServiceBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
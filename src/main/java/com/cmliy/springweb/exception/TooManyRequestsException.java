@@ -0,0 +1,33 @@
+package com.cmliy.springweb.exception;
+
+/**
+ * 🚫 请求过多异常
+ *
+ * 当客户端超出限流配额时抛出，由GlobalExceptionHandler转换为429响应，
+ * 并通过Retry-After响应头告知客户端需要等待的秒数。
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    /**
+     * 建议客户端等待的秒数
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * 构造请求过多异常
+     * @param message 异常消息
+     * @param retryAfterSeconds 建议客户端等待的秒数
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * 获取建议客户端等待的秒数
+     * @return 等待秒数
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,110 @@
+package com.cmliy.springweb.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ⚡ 秒杀活动实体
+ *
+ * 记录某个商品的一次秒杀：投放数量、秒杀单价、已写回数据库的成交数量和状态。
+ * 抢购过程中的库存令牌只在内存中；每批成交的订单、商品库存扣减和confirmed累加在同一个事务中提交，
+ * 因此进程崩溃后数据库仍然一致，重启时根据ACTIVE记录和商品当前库存恢复活动。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "flash_sales", indexes = {
+    @Index(name = "idx_flash_sales_product", columnList = "product_id"),
+    @Index(name = "idx_flash_sales_status", columnList = "status")
+})
+public class FlashSale {
+
+    /**
+     * 🆔 活动唯一标识符
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 📦 秒杀商品
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    /**
+     * 💰 秒杀单价（订单价格快照）
+     */
+    @Column(name = "unit_price", nullable = false, precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+
+    /**
+     * 🎟️ 投放数量
+     */
+    @Column(nullable = false)
+    private Integer allocated;
+
+    /**
+     * ✅ 已写回数据库的成交数量
+     */
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer confirmed = 0;
+
+    /**
+     * 📊 活动状态
+     */
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String status = Status.ACTIVE;
+
+    /**
+     * ⏰ 开始时间
+     */
+    @CreationTimestamp
+    @Column(name = "started_at", updatable = false, nullable = false)
+    private LocalDateTime startedAt;
+
+    /**
+     * ⏹️ 结束时间
+     */
+    @Column(name = "ended_at")
+    private LocalDateTime endedAt;
+
+    /**
+     * 🎟️ 尚未成交的投放数量
+     */
+    public int getUnconfirmed() {
+        return Math.max(0, allocated - confirmed);
+    }
+
+    // ==================== 📋 活动状态常量 ====================
+
+    /**
+     * 📋 活动状态常量定义
+     */
+    public static class Status {
+        public static final String ACTIVE = "ACTIVE";  // 进行中
+        public static final String ENDED = "ENDED";    // 已结束
+    }
+}
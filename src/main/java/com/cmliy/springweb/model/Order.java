@@ -38,7 +38,9 @@ import lombok.NoArgsConstructor;
     @Index(name = "idx_product_id", columnList = "product_id"),
     @Index(name = "idx_seller_id", columnList = "seller_id"),
     @Index(name = "idx_status", columnList = "status"),
-    @Index(name = "idx_created_at", columnList = "created_at")
+    @Index(name = "idx_created_at", columnList = "created_at"),
+    @Index(name = "idx_orders_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_orders_seller_created", columnList = "seller_id, created_at, id")
 })
 public class Order {
 
@@ -95,6 +97,13 @@ public class Order {
     @Column(nullable = false, length = 20)
     private String status = OrderStatus.PENDING;
 
+    /**
+     * ⏳ 库存预留截止时间
+     * 待处理订单在此之前未支付则自动取消并归还库存；为空表示不会自动过期
+     */
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
     /**
      * ⏰ 创建时间戳
      */
@@ -138,6 +147,13 @@ public class Order {
         return OrderStatus.PENDING.equals(this.status);
     }
 
+    /**
+     * ⏳ 检查待处理订单的库存预留是否已过期
+     */
+    public boolean isReservationExpired(LocalDateTime now) {
+        return OrderStatus.PENDING.equals(this.status) && expiresAt != null && !expiresAt.isAfter(now);
+    }
+
     /**
      * ✅ 检查订单是否已完成
      */
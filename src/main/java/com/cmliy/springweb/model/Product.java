@@ -1,19 +1,22 @@
 package com.cmliy.springweb.model;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Generated;
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.Mutability;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.generator.EventType;
 import org.hibernate.type.SqlTypes;
+import org.hibernate.type.descriptor.java.Immutability;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -43,7 +46,12 @@ import lombok.extern.slf4j.Slf4j;
     @Index(name = "idx_creator_id", columnList = "creator_id"),
     @Index(name = "idx_price", columnList = "price"),
     @Index(name = "idx_sales_count", columnList = "sales_count"),
-    @Index(name = "idx_discount", columnList = "discount")
+    @Index(name = "idx_discount", columnList = "discount"),
+    @Index(name = "idx_products_created_at", columnList = "created_at, id"),
+    @Index(name = "idx_products_sales_count_id", columnList = "sales_count, id"),
+    @Index(name = "idx_products_category", columnList = "category, id"),
+    @Index(name = "idx_products_brand", columnList = "brand, id"),
+    @Index(name = "idx_products_effective_price", columnList = "effective_price, id")
 })
 public class Product {
 
@@ -133,10 +141,48 @@ public class Product {
     /**
      * 🗄️ 商品扩展数据 - JSONB字段
      * 存储商品的规格、图片等扩展信息
-     * 使用Hibernate原生JSONB支持，确保类型安全
+     * 类型化的不可变值对象，经ProductDataCodec（Hibernate JSON FormatMapper）读写；
+     * 标记为不可变后Hibernate不再为脏检查深拷贝，修改时整体替换实例
      */
     @JdbcTypeCode(SqlTypes.JSON)  // 🔧 关键修复：指定JSON类型处理
-    private Map<String, Object> productData = new HashMap<>();
+    @Mutability(Immutability.class)
+    private ProductData productData = ProductData.EMPTY;
+
+    /**
+     * 💰 实付单价（折后价）
+     *
+     * 数据库生成列（STORED），由price和discount计算并保留2位小数，应用只读；
+     * 价格或折扣的每次写入都会由数据库重算，与discountedPrice(price, discount)的结果一致。
+     * 带(effective_price, id)索引，列表和搜索可以按买家实际支付的价格排序和区间筛选。
+     */
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "effective_price", insertable = false, updatable = false, precision = 10, scale = 2,
+            columnDefinition = "numeric(10,2) GENERATED ALWAYS AS "
+                    + "(CASE WHEN discount > 0 THEN round(price * (100 - discount) / 100, 2) ELSE price END) STORED")
+    private BigDecimal effectivePrice;
+
+    // ==================== 🏷️ 规格派生列 ====================
+
+    /**
+     * 🏷️ 商品分类
+     *
+     * 数据库生成列：productData.specifications.分类 的第一个值（STORED），应用只读
+     * 带B-tree索引，分类浏览和分类统计直接使用这一列，不再逐行解析JSONB
+     */
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "category", insertable = false, updatable = false,
+            columnDefinition = "text GENERATED ALWAYS AS (product_data #>> '{specifications,分类,0}') STORED")
+    private String category;
+
+    /**
+     * 🏷️ 商品品牌
+     *
+     * 数据库生成列：productData.specifications.品牌 的第一个值（STORED），应用只读
+     */
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "brand", insertable = false, updatable = false,
+            columnDefinition = "text GENERATED ALWAYS AS (product_data #>> '{specifications,品牌,0}') STORED")
+    private String brand;
 
     // ==================== ⏰ 时间戳字段 ====================
 
@@ -194,8 +240,18 @@ public class Product {
      * 💰 计算折扣价格
      */
     public BigDecimal getDiscountedPrice() {
+        return discountedPrice(price, discount);
+    }
+
+    /**
+     * 💰 按价格和折扣率计算折扣价格（列表投影、搜索索引、下单等场景共用）
+     *
+     * 与effective_price生成列的表达式一致：有折扣时四舍五入到2位小数。
+     */
+    public static BigDecimal discountedPrice(BigDecimal price, BigDecimal discount) {
         if (discount != null && discount.compareTo(BigDecimal.ZERO) > 0) {
-            return price.multiply(BigDecimal.ONE.subtract(discount.divide(BigDecimal.valueOf(100))));
+            return price.multiply(BigDecimal.valueOf(100).subtract(discount))
+                    .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
         }
         return price;
     }
@@ -216,9 +272,7 @@ public class Product {
      * 📸 获取主图片URL
      */
     public String getMainImage() {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> imageData = (Map<String, Object>) productData.getOrDefault("image_data", new java.util.HashMap<>());
-        return (String) imageData.get("main_image");
+        return getProductData().getImageData().getMainImage();
     }
 
 
@@ -227,27 +281,22 @@ public class Product {
     /**
      * 📋 获取规格属性
      */
-    public Object getSpecification(String key) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> specifications = (Map<String, Object>) productData.getOrDefault("specifications", new java.util.HashMap<>());
-        return specifications.get(key);
+    public List<String> getSpecification(String key) {
+        return getProductData().getSpecification(key);
     }
 
     /**
-     * 📋 获取所有规格属性
+     * 📋 获取所有规格属性（只读视图，不复制）
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> getAllSpecifications() {
-        return Map.copyOf((Map<String, Object>) productData.getOrDefault("specifications", new java.util.HashMap<>()));
+    public Map<String, List<String>> getAllSpecifications() {
+        return getProductData().getSpecifications();
     }
 
     /**
      * 🔍 检查是否存在指定规格
      */
     public boolean hasSpecification(String key) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> specifications = (Map<String, Object>) productData.getOrDefault("specifications", new java.util.HashMap<>());
-        return specifications.containsKey(key);
+        return getProductData().getSpecifications().containsKey(key);
     }
 
     
@@ -280,11 +329,18 @@ public class Product {
      * 📈 获取库存状态描述
      */
     public String getStockStatus() {
-        if (this.stockQuantity == null || this.stockQuantity == 0) {
+        return stockStatusOf(this.stockQuantity);
+    }
+
+    /**
+     * 📈 按库存数量获取库存状态描述
+     */
+    public static String stockStatusOf(Integer stockQuantity) {
+        if (stockQuantity == null || stockQuantity == 0) {
             return "缺货";
-        } else if (this.stockQuantity < 10) {
+        } else if (stockQuantity < 10) {
             return "库存紧张";
-        } else if (this.stockQuantity < 50) {
+        } else if (stockQuantity < 50) {
             return "库存充足";
         } else {
             return "库存过多";
@@ -297,14 +353,21 @@ public class Product {
      * 💰 获取格式化的显示价格
      */
     public String getFormattedPrice() {
-        return String.format("¥%.2f", price);
+        return formatPrice(price);
     }
 
     /**
      * 💰 获取格式化的折扣价格
      */
     public String getFormattedDiscountedPrice() {
-        return String.format("¥%.2f", getDiscountedPrice());
+        return formatPrice(getDiscountedPrice());
+    }
+
+    /**
+     * 💰 格式化价格为带货币符号的字符串
+     */
+    public static String formatPrice(BigDecimal amount) {
+        return String.format("¥%.2f", amount);
     }
 
     /**
@@ -321,65 +384,16 @@ public class Product {
     // ==================== 🔧 JSONB数据处理方法 ====================
 
     /**
-     * 🔧 新增方法：安全的JSONB数据设置
-     * 确保数据可以被正确序列化为JSON
-     */
-    public void setProductData(Map<String, Object> productData) {
-        // 确保数据可以被正确序列化为JSON
-        if (productData != null) {
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                String json = mapper.writeValueAsString(productData);
-                // 验证JSON格式正确性
-                mapper.readValue(json, new TypeReference<Map<String, Object>>() {});
-                this.productData = productData;
-            } catch (Exception e) {
-                log.error("🔧 JSONB数据格式验证失败: {}", productData, e);
-                throw new IllegalArgumentException("商品数据格式不正确", e);
-            }
-        } else {
-            this.productData = new HashMap<>();
-        }
-    }
-
-    /**
-     * 🔧 新增方法：安全的JSONB数据获取
-     */
-    public Map<String, Object> getProductData() {
-        if (this.productData == null) {
-            return new HashMap<>();
-        }
-        return this.productData;
-    }
-
-    /**
-     * 🔧 新增方法：安全地更新productData中的特定字段
+     * 🔧 设置商品扩展数据，null按空数据处理
      */
-    public void updateProductDataField(String key, Object value) {
-        if (this.productData == null) {
-            this.productData = new HashMap<>();
-        }
-        this.productData.put(key, value);
+    public void setProductData(ProductData productData) {
+        this.productData = productData != null ? productData : ProductData.EMPTY;
     }
 
     /**
-     * 🔧 新增方法：从productData中安全地获取特定字段
+     * 🔧 获取商品扩展数据，数据库中为null时返回空数据
      */
-    @SuppressWarnings("unchecked")
-    public <T> T getProductDataField(String key, Class<T> type, T defaultValue) {
-        if (this.productData == null) {
-            return defaultValue;
-        }
-        Object value = this.productData.get(key);
-        if (value == null) {
-            return defaultValue;
-        }
-        try {
-            return type.cast(value);
-        } catch (ClassCastException e) {
-            log.warn("🔧 productData字段类型转换失败: key={}, expectedType={}, actualType={}, value={}",
-                     key, type.getSimpleName(), value.getClass().getSimpleName(), value);
-            return defaultValue;
-        }
+    public ProductData getProductData() {
+        return this.productData != null ? this.productData : ProductData.EMPTY;
     }
-}
\ No newline at end of file
+}
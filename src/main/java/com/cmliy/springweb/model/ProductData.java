@@ -0,0 +1,155 @@
+package com.cmliy.springweb.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 🗄️ 商品扩展数据 - Product Data
+ *
+ * products.product_data（JSONB）列的类型化模型：
+ * - image_data：主图、图库、缩略图
+ * - specifications：规格名 → 规格值列表，例如 {"颜色": ["白色", "黑色"]}
+ * - variants：变体列表
+ * - extended_attributes：其他扩展属性
+ *
+ * 不可变值对象：集合在构造时包装一次，之后的读取直接返回内部视图，不再复制；
+ * 修改通过withXxx()得到新实例，再交给Product.setProductData()，Hibernate按引用变化做脏检查。
+ * 读写JSON统一走ProductDataCodec中预先构建好的reader/writer；序列化直接读字段，空的部分不写出。
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class ProductData {
+
+    /**
+     * 空数据，新建商品和数据库中为null时使用
+     */
+    public static final ProductData EMPTY = new ProductData(null, null, null, null);
+
+    /**
+     * 没有图片数据时为null，序列化时省略
+     */
+    @JsonProperty("image_data")
+    private final ImageData imageData;
+
+    @JsonProperty("specifications")
+    private final Map<String, List<String>> specifications;
+
+    @JsonProperty("variants")
+    private final List<Map<String, Object>> variants;
+
+    @JsonProperty("extended_attributes")
+    private final Map<String, Object> extendedAttributes;
+
+    @JsonCreator
+    public ProductData(@JsonProperty("image_data") ImageData imageData,
+                       @JsonProperty("specifications") Map<String, List<String>> specifications,
+                       @JsonProperty("variants") List<Map<String, Object>> variants,
+                       @JsonProperty("extended_attributes") Map<String, Object> extendedAttributes) {
+        this.imageData = imageData == null || ImageData.EMPTY.equals(imageData) ? null : imageData;
+        this.specifications = specifications != null ? Collections.unmodifiableMap(specifications) : Map.of();
+        this.variants = variants != null ? Collections.unmodifiableList(variants) : List.of();
+        this.extendedAttributes = extendedAttributes != null ? Collections.unmodifiableMap(extendedAttributes) : Map.of();
+    }
+
+    /**
+     * 📸 替换主图片，其余数据不变
+     *
+     * @param mainImage 主图片URL，null表示清除
+     * @return 新的商品数据
+     */
+    public ProductData withMainImage(String mainImage) {
+        return new ProductData(getImageData().withMainImage(mainImage), specifications, variants, extendedAttributes);
+    }
+
+    /**
+     * 🖼️ 获取图片数据
+     *
+     * @return 图片数据，没有时返回ImageData.EMPTY
+     */
+    public ImageData getImageData() {
+        return imageData != null ? imageData : ImageData.EMPTY;
+    }
+
+    /**
+     * 📋 整体替换规格，其余数据不变
+     *
+     * @param specifications 规格名 → 规格值列表，null或空表示清除
+     * @return 新的商品数据
+     */
+    public ProductData withSpecifications(Map<String, List<String>> specifications) {
+        Map<String, List<String>> copy = new LinkedHashMap<>();
+        if (specifications != null) {
+            specifications.forEach((key, values) -> copy.put(key, values != null ? List.copyOf(values) : List.of()));
+        }
+        return new ProductData(imageData, copy, variants, extendedAttributes);
+    }
+
+    /**
+     * 📋 获取规格值列表
+     *
+     * @param key 规格名
+     * @return 规格值，不存在时返回null
+     */
+    public List<String> getSpecification(String key) {
+        return specifications.get(key);
+    }
+
+    /**
+     * 🖼️ 商品图片数据
+     */
+    @Getter
+    @EqualsAndHashCode
+    @ToString
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE,
+            isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static final class ImageData {
+
+        public static final ImageData EMPTY = new ImageData(null, null, null, null);
+
+        @JsonProperty("main_image")
+        private final String mainImage;
+
+        @JsonProperty("gallery")
+        private final List<String> gallery;
+
+        @JsonProperty("thumbnails")
+        private final Map<String, String> thumbnails;
+
+        @JsonProperty("total_images")
+        private final Integer totalImages;
+
+        @JsonCreator
+        public ImageData(@JsonProperty("main_image") String mainImage,
+                         @JsonProperty("gallery") List<String> gallery,
+                         @JsonProperty("thumbnails") Map<String, String> thumbnails,
+                         @JsonProperty("total_images") Integer totalImages) {
+            this.mainImage = mainImage;
+            this.gallery = gallery != null ? Collections.unmodifiableList(gallery) : List.of();
+            this.thumbnails = thumbnails != null ? Collections.unmodifiableMap(thumbnails) : Map.of();
+            this.totalImages = totalImages;
+        }
+
+        public ImageData withMainImage(String mainImage) {
+            return new ImageData(mainImage, gallery, thumbnails, totalImages);
+        }
+    }
+}
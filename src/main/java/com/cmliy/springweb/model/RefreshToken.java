@@ -0,0 +1,68 @@
+package com.cmliy.springweb.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.CreationTimestamp;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 🔄 刷新令牌实体
+ *
+ * 服务端保存的刷新令牌记录。客户端持有的是随机生成的不透明字符串，
+ * 数据库中只保存它的SHA-256摘要，泄露数据库也无法直接使用。
+ *
+ * 每次刷新都会轮换：旧令牌标记为已吊销，同时签发新令牌。
+ * 如果已吊销的令牌被再次使用，说明令牌可能被盗用，会吊销该用户的全部刷新令牌。
+ */
+@Data                                      // @Data注解：Lombok自动生成getter、setter、toString、equals、hashCode
+@Builder                                   // @Builder注解：Lombok支持Builder模式创建对象
+@NoArgsConstructor                         // @NoArgsConstructor注解：Lombok生成无参构造函数
+@AllArgsConstructor                        // @AllArgsConstructor注解：Lombok生成全参构造函数
+@Entity // @Entity注解：声明这是一个JPA实体类，Hibernate会自动管理其数据库映射
+@Table(name = "refresh_tokens",
+        indexes = {
+            @Index(name = "idx_refresh_token_hash", columnList = "token_hash", unique = true),
+            @Index(name = "idx_refresh_token_user", columnList = "user_id"),
+            @Index(name = "idx_refresh_token_expires", columnList = "expires_at")
+        })
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;  // 刷新令牌的SHA-256十六进制摘要
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Builder.Default
+    @Column(name = "revoked", nullable = false)
+    private Boolean revoked = false;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 判断刷新令牌当前是否可用
+     */
+    public boolean isUsable(LocalDateTime now) {
+        return !Boolean.TRUE.equals(revoked) && expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,38 @@
+package com.cmliy.springweb.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 🚫 已吊销的访问令牌
+ *
+ * 记录登出时吊销的JWT ID（jti），保留到令牌原本的过期时间为止。
+ * 是内存布隆过滤器的持久化来源，应用启动时据此重建过滤器。
+ */
+@Data                                      // @Data注解：Lombok自动生成getter、setter、toString、equals、hashCode
+@Builder                                   // @Builder注解：Lombok支持Builder模式创建对象
+@NoArgsConstructor                         // @NoArgsConstructor注解：Lombok生成无参构造函数
+@AllArgsConstructor                        // @AllArgsConstructor注解：Lombok生成全参构造函数
+@Entity // @Entity注解：声明这是一个JPA实体类，Hibernate会自动管理其数据库映射
+@Table(name = "revoked_tokens",
+        indexes = {
+            @Index(name = "idx_revoked_token_expires", columnList = "expires_at")
+        })
+public class RevokedToken {
+
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;  // 令牌原本的过期时间，过期后记录可以清理
+}
@@ -47,7 +47,8 @@ import java.time.LocalDateTime;                         // 导入Java 8日期时
 @Entity // @Entity注解：声明这是一个JPA实体类，Hibernate会自动管理其数据库映射
 @Table(name = "users", indexes = { // @Table注解：定义数据库表的元数据
     @Index(name = "idx_username", columnList = "username"), // 创建用户名索引：提高按用户名查询的性能
-    @Index(name = "idx_email", columnList = "email")        // 创建邮箱索引：提高按邮箱查询的性能
+    @Index(name = "idx_email", columnList = "email"),       // 创建邮箱索引：提高按邮箱查询的性能
+    @Index(name = "idx_users_created_at", columnList = "created_at, id") // 创建时间+ID复合索引：支持游标分页
     // 索引作用：数据库索引就像书籍的目录，大幅提高查询速度
 })
 public class User { // public class: 定义公共类，其他类可以访问
@@ -141,6 +142,19 @@ public class User { // public class: 定义公共类，其他类可以访问
     @Column(name = "enabled", nullable = false) // @Column注解：定义数据库列属性
     private Boolean enabled = true; // enabled: 账户启用状态，Boolean类型，默认为true
 
+    /**
+     * 🔢 令牌版本
+     *
+     * 写入JWT的tokenVersion声明，用于立即吊销已签发的令牌。
+     * 禁用账户、变更角色、修改密码时递增，旧版本令牌随即失效。
+     *
+     * @Column: JPA注解，定义数据库列属性
+     * columnDefinition: 带默认值0，兼容未指定该列的初始化数据
+     */
+    @Builder.Default // @Builder.Default注解：Builder模式下也使用默认值
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0") // 定义令牌版本列
+    private Integer tokenVersion = 0; // tokenVersion: 令牌版本，Integer类型，默认为0
+
     // @CreationTimestamp: Hibernate注解，自动设置创建时间
     @CreationTimestamp // 创建时间戳注解：实体创建时自动设置当前时间
     // @Column: 定义列属性
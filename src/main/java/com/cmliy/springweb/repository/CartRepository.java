@@ -3,12 +3,24 @@ package com.cmliy.springweb.repository;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository; // 导入Spring Data JPA基础Repository接口
 
 import com.cmliy.springweb.model.Cart;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUser_Id(Long userId);
     boolean existsByUser_Id(Long userId);
+
+    /**
+     * 🔒 加锁读取用户购物车（结算时使用，同一购物车的并发结算排队执行，不会重复下单）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.id = :userId")
+    Optional<Cart> findByUserIdForUpdate(@Param("userId") Long userId);
 }
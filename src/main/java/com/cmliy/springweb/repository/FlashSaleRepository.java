@@ -0,0 +1,50 @@
+package com.cmliy.springweb.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.cmliy.springweb.model.FlashSale;
+
+/**
+ * ⚡ 秒杀活动数据访问层
+ */
+@Repository
+public interface FlashSaleRepository extends JpaRepository<FlashSale, Long> {
+
+    /**
+     * 🔍 查找指定状态的活动（启动时恢复进行中的活动）
+     */
+    List<FlashSale> findByStatus(String status);
+
+    /**
+     * 🔍 查找商品当前进行中的活动
+     */
+    Optional<FlashSale> findFirstByProduct_IdAndStatus(Long productId, String status);
+
+    /**
+     * ✅ 累加已写回的成交数量，与订单写入、库存扣减在同一事务中执行
+     *
+     * @param id 活动ID
+     * @param quantity 本批成交数量
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE FlashSale s SET s.confirmed = s.confirmed + :quantity WHERE s.id = :id")
+    int addConfirmed(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * ⏹️ 结束活动
+     *
+     * @param id 活动ID
+     * @return 更新的行数，活动已结束时为0
+     */
+    @Modifying
+    @Query("UPDATE FlashSale s SET s.status = 'ENDED', s.endedAt = CURRENT_TIMESTAMP WHERE s.id = :id AND s.status = 'ACTIVE'")
+    int end(@Param("id") Long id);
+}
@@ -0,0 +1,59 @@
+package com.cmliy.springweb.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.cmliy.springweb.model.Order;
+
+/**
+ * 📦 订单批量写入 - Order Batch Repository
+ *
+ * OrderRepository的自定义片段。订单主键是IDENTITY，Hibernate无法对它做JDBC批量插入，
+ * 逐条save()时每个订单都是一次往返；这里把一批订单拼成一条多行INSERT ... RETURNING id。
+ * 超时未支付的订单也在这里用一条UPDATE批量取消，状态变更前的加锁读取与之配合。
+ */
+public interface OrderBatchRepository {
+
+    /**
+     * 单条INSERT最多包含的订单数，超过时拆成多条语句（PostgreSQL单条语句最多65535个参数）
+     */
+    int MAX_ROWS_PER_STATEMENT = 1000;
+
+    /**
+     * 📥 一条语句插入多个订单
+     *
+     * 插入后回填每个订单的id、createdAt、updatedAt；订单不会进入持久化上下文。
+     * 必须在事务中调用，user/product/seller只读取id。
+     *
+     * @param orders 待插入的新订单
+     * @return 传入的同一个列表
+     */
+    List<Order> insertAll(List<Order> orders);
+
+    /**
+     * ⏳ 批量取消库存预留已过期的待处理订单
+     *
+     * 一条UPDATE ... RETURNING：只取消仍为PENDING且expires_at不晚于now的订单，
+     * 已支付、已取消或截止时间被推后的订单原样保留。并发执行时每个订单只会被取消一次。
+     * 必须在事务中调用，调用方负责归还返回的库存。
+     *
+     * @param orderIds 候选订单ID
+     * @param now 当前时间
+     * @return 商品ID → 本次取消的订单数量之和（按商品ID升序）
+     */
+    Map<Long, Integer> cancelExpired(Collection<Long> orderIds, LocalDateTime now);
+
+    /**
+     * 🔒 加锁读取订单（SELECT ... FOR UPDATE），并刷新为数据库中的最新状态
+     *
+     * 状态变更与超时取消互斥：超时取消的UPDATE会等待这把锁，之后按最新状态重新判断。
+     * 订单可能已被同一请求加载过（权限校验），这里refresh而不是直接返回持久化上下文中的旧值。
+     *
+     * @param orderId 订单ID
+     * @return 已加锁的订单；不存在时返回空
+     */
+    Optional<Order> findByIdForUpdate(Long orderId);
+}
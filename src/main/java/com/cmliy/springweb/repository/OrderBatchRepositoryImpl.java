@@ -0,0 +1,110 @@
+package com.cmliy.springweb.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import com.cmliy.springweb.model.Order;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * 📦 订单批量写入实现
+ *
+ * 生成 INSERT INTO orders (...) VALUES (...), (...), ... RETURNING id，
+ * 同一条语句中IDENTITY按行的顺序递增分配，返回的id排序后与订单按顺序对应。
+ * 时间戳由这里统一取当前时间作为参数传入，实体和数据库中的值一致。
+ * 过期取消以PostgreSQL数组字面量传入订单ID，一条UPDATE ... RETURNING完成。
+ */
+public class OrderBatchRepositoryImpl implements OrderBatchRepository {
+
+    private static final String INSERT_PREFIX = "INSERT INTO orders "
+            + "(user_id, product_id, seller_id, quantity, unit_price, total_amount, status, expires_at, created_at, updated_at) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CANCEL_EXPIRED = "UPDATE orders SET status = 'CANCELLED', updated_at = :now "
+            + "WHERE id = ANY(CAST(:ids AS bigint[])) AND status = 'PENDING' AND expires_at <= :now "
+            + "RETURNING product_id, quantity";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Order> insertAll(List<Order> orders) {
+        for (int from = 0; from < orders.size(); from += MAX_ROWS_PER_STATEMENT) {
+            insertChunk(orders.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, orders.size())));
+        }
+        return orders;
+    }
+
+    @Override
+    public Map<Long, Integer> cancelExpired(Collection<Long> orderIds, LocalDateTime now) {
+        Map<Long, Integer> released = new TreeMap<>();
+        if (orderIds.isEmpty()) {
+            return released;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(CANCEL_EXPIRED)
+                .setParameter("ids", orderIds.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}")))
+                .setParameter("now", now)
+                .getResultList();
+        for (Object[] row : rows) {
+            released.merge(((Number) row[0]).longValue(), ((Number) row[1]).intValue(), Integer::sum);
+        }
+        return released;
+    }
+
+    @Override
+    public Optional<Order> findByIdForUpdate(Long orderId) {
+        Order order = entityManager.find(Order.class, orderId);
+        if (order == null) {
+            return Optional.empty();
+        }
+        entityManager.refresh(order, LockModeType.PESSIMISTIC_WRITE);
+        return Optional.of(order);
+    }
+
+    private void insertChunk(List<Order> chunk) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW.length() + 2) + 16)
+                .append(INSERT_PREFIX);
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(ROW);
+        }
+        sql.append(" RETURNING id");
+
+        LocalDateTime now = LocalDateTime.now();
+        NativeQuery<?> query = entityManager.createNativeQuery(sql.toString(), Long.class).unwrap(NativeQuery.class);
+        int position = 1;
+        for (Order order : chunk) {
+            query.setParameter(position++, order.getUser().getId());
+            query.setParameter(position++, order.getProduct().getId());
+            query.setParameter(position++, order.getSeller().getId());
+            query.setParameter(position++, order.getQuantity());
+            query.setParameter(position++, order.getUnitPrice());
+            query.setParameter(position++, order.getTotalAmount());
+            query.setParameter(position++, order.getStatus());
+            query.setParameter(position++, order.getExpiresAt(), StandardBasicTypes.LOCAL_DATE_TIME); // 可能为空，显式指定类型
+            query.setParameter(position++, now);
+            query.setParameter(position++, now);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Long> ids = new ArrayList<>((List<Long>) query.getResultList());
+        ids.sort(null);
+        for (int i = 0; i < chunk.size(); i++) {
+            Order order = chunk.get(i);
+            order.setId(ids.get(i));
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+        }
+    }
+}
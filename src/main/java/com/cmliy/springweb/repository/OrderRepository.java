@@ -1,12 +1,14 @@
 package com.cmliy.springweb.repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,7 +21,24 @@ import com.cmliy.springweb.model.Order;
  * 提供订单相关的数据库操作方法
  */
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order>,
+        OrderBatchRepository {
+
+    /**
+     * ⏳ 待处理订单的库存预留（只读取ID和截止时间）
+     */
+    interface PendingReservation {
+        Long getId();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    /**
+     * ⏳ 查找所有带截止时间的待处理订单（启动时重建超时时间轮）
+     */
+    @Query("SELECT o.id AS id, o.expiresAt AS expiresAt FROM Order o "
+            + "WHERE o.status = 'PENDING' AND o.expiresAt IS NOT NULL")
+    List<PendingReservation> findPendingReservations();
 
     /**
      * 🔍 根据用户ID查找订单
@@ -0,0 +1,84 @@
+package com.cmliy.springweb.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * 📄 分页内容查询 - Page Query Repository
+ *
+ * JpaSpecificationExecutor.findAll(spec, pageable)总是附带一次COUNT查询，
+ * 这里把"取一页数据"和"计算总数"拆开：
+ * - findContent(): 只按Specification和分页参数查询当前页，不执行COUNT
+ * - estimateRowCount(): 读取PostgreSQL的pg_class.reltuples，作为无过滤条件时的总数估算
+ * 精确计数仍由各Repository的count(spec)完成，何时计数由PageTotalCounter决定。
+ */
+@Repository
+public class PageQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 📋 查询一页实体，不执行COUNT
+     *
+     * @param domainClass 实体类型
+     * @param spec 过滤条件，可以为null
+     * @param pageable 分页和排序参数
+     * @return 当前页的实体列表
+     */
+    public <T> List<T> findContent(Class<T> domainClass, Specification<T> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(domainClass);
+        Root<T> root = query.from(domainClass);
+        query.select(root);
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return typedQuery.getResultList();
+    }
+
+    /**
+     * 📊 读取表的估算行数
+     *
+     * 来自ANALYZE/autovacuum维护的统计信息，不扫描表；
+     * 表从未被分析过时PostgreSQL返回-1（旧版本为0）。
+     *
+     * @param tableName 表名
+     * @return 估算行数，表不存在或没有统计信息时返回-1
+     */
+    public long estimateRowCount(String tableName) {
+        List<?> result = entityManager
+                .createNativeQuery("SELECT c.reltuples::bigint FROM pg_class c WHERE c.oid = to_regclass(:tableName)")
+                .setParameter("tableName", tableName)
+                .getResultList();
+        if (result.isEmpty() || result.get(0) == null) {
+            return -1;
+        }
+        return ((Number) result.get(0)).longValue();
+    }
+}
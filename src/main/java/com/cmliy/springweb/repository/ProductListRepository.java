@@ -0,0 +1,55 @@
+package com.cmliy.springweb.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.cmliy.springweb.model.Product;
+
+/**
+ * 📋 商品列表投影查询 - Product List Repository
+ *
+ * ProductRepository的自定义片段，列表页使用。
+ * 复用现有的Specification过滤条件，但只查询{@link ProductListRow}中的列，
+ * 避免每行都传输和反序列化完整的productData JSONB与description TEXT。
+ */
+public interface ProductListRepository {
+
+    /**
+     * 列表中description截取的最大字符数
+     */
+    int DESCRIPTION_SNIPPET_LENGTH = 200;
+
+    /**
+     * 📋 分页查询商品列表行
+     *
+     * @param spec 过滤条件，可以为null
+     * @param pageable 分页和排序参数
+     * @return 商品列表行分页结果
+     */
+    Page<ProductListRow> findListRows(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * 📋 查询一页商品列表行，不执行COUNT
+     *
+     * 总数由调用方决定是否计算（见PageTotalCounter）。
+     *
+     * @param spec 过滤条件，可以为null
+     * @param pageable 分页和排序参数
+     * @return 当前页的商品列表行
+     */
+    List<ProductListRow> findListRowContent(Specification<Product> spec, Pageable pageable);
+
+    /**
+     * 📋 查询商品列表行（不分页）
+     *
+     * @param spec 过滤条件，可以为null
+     * @param sort 排序方式
+     * @param limit 最大返回条数，小于等于0表示不限制
+     * @return 商品列表行
+     */
+    List<ProductListRow> findListRows(Specification<Product> spec, Sort sort, int limit);
+}
@@ -0,0 +1,112 @@
+package com.cmliy.springweb.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import com.cmliy.springweb.model.Product;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * 📋 商品列表投影查询实现
+ *
+ * 使用Criteria API构造投影查询：标量列直接选取（分类、品牌是数据库生成列），
+ * 主图片通过PostgreSQL的jsonb_extract_path_text在数据库端提取，只返回字符串。
+ * 总数查询只在无法从当前页推断时执行（与Spring Data的默认行为一致）。
+ */
+public class ProductListRepositoryImpl implements ProductListRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ProductListRow> findListRows(Specification<Product> spec, Pageable pageable) {
+        return PageableExecutionUtils.getPage(findListRowContent(spec, pageable), pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<ProductListRow> findListRowContent(Specification<Product> spec, Pageable pageable) {
+        TypedQuery<ProductListRow> query = createRowQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<ProductListRow> findListRows(Specification<Product> spec, Sort sort, int limit) {
+        TypedQuery<ProductListRow> query = createRowQuery(spec, sort);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    private TypedQuery<ProductListRow> createRowQuery(Specification<Product> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductListRow> query = cb.createQuery(ProductListRow.class);
+        Root<Product> root = query.from(Product.class);
+
+        query.select(cb.construct(ProductListRow.class,
+                root.get("id"),
+                root.get("productName"),
+                root.get("price"),
+                root.get("discount"),
+                root.get("effectivePrice"),
+                root.get("salesCount"),
+                root.get("stockQuantity"),
+                root.get("isAvailable"),
+                cb.substring(root.get("description"), 1, DESCRIPTION_SNIPPET_LENGTH),
+                jsonText(cb, root, "image_data", "main_image"),
+                root.get("category"),
+                root.get("brand"),
+                root.get("createdAt")));
+
+        applyWhere(spec, root, query, cb);
+        if (sort != null && sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Product> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.count(root));
+        applyWhere(spec, root, query, cb);
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static void applyWhere(Specification<Product> spec, Root<Product> root,
+                                   CriteriaQuery<?> query, CriteriaBuilder cb) {
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+    }
+
+    /**
+     * productData #>> '{section, key}'，在数据库端提取文本值
+     */
+    private static Expression<String> jsonText(CriteriaBuilder cb, Root<Product> root, String section, String key) {
+        return cb.function("jsonb_extract_path_text", String.class,
+                root.get("productData"), cb.literal(section), cb.literal(key));
+    }
+}
@@ -0,0 +1,42 @@
+package com.cmliy.springweb.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 📋 商品列表行投影 - Product List Row
+ *
+ * 列表页专用的只读投影，只包含列表展示需要的标量列，
+ * 以及在SQL中从productData提取出的主图；分类和品牌直接读取生成列。
+ * 不加载整个productData JSONB，description只截取前
+ * {@link ProductListRepository#DESCRIPTION_SNIPPET_LENGTH}个字符。
+ *
+ * @param id 商品ID
+ * @param productName 商品名称
+ * @param price 价格
+ * @param discount 折扣百分比
+ * @param effectivePrice 实付单价（effective_price生成列）
+ * @param salesCount 销量
+ * @param stockQuantity 库存数量
+ * @param isAvailable 是否上架
+ * @param descriptionSnippet 描述摘要
+ * @param mainImage 主图URL（productData->'image_data'->>'main_image'）
+ * @param category 分类（category生成列）
+ * @param brand 品牌（brand生成列）
+ * @param createdAt 创建时间
+ */
+public record ProductListRow(
+        Long id,
+        String productName,
+        BigDecimal price,
+        BigDecimal discount,
+        BigDecimal effectivePrice,
+        Integer salesCount,
+        Integer stockQuantity,
+        Boolean isAvailable,
+        String descriptionSnippet,
+        String mainImage,
+        String category,
+        String brand,
+        LocalDateTime createdAt) {
+}
@@ -1,13 +1,17 @@
 package com.cmliy.springweb.repository;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -25,7 +29,8 @@ import com.cmliy.springweb.model.User;
 
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductListRepository, ProductStockRepository {
 
     /**
      * 📋 根据商品名称查找商品
@@ -185,9 +190,9 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
      * @param pageable 分页对象
      * @return 匹配的商品分页结果
      */
-    @Query(value = "SELECT p.* FROM Product p WHERE " +
+    @Query(value = "SELECT p.* FROM products p WHERE " +
            "(:keyword IS NULL OR p.product_name LIKE %:keyword% OR p.description LIKE %:keyword%) AND " +
-           "(:category IS NULL OR p.productData->'specifications'->>'category' = :category) AND " +
+           "(:category IS NULL OR p.category = :category) AND " +
            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
            "(:isAvailable IS NULL OR p.is_available = :isAvailable)", nativeQuery = true)
@@ -277,25 +282,24 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     /**
      * 📋 按类别统计商品数量
      *
-     * 使用JSONB路径查询，统计每个类别的商品数量。
+     * 按分类生成列分组统计每个类别的商品数量，可以使用idx_products_category索引。
      * 用于分类管理和统计报表。
      *
      * @return 类别统计结果
      */
-    @Query(value = "SELECT p.productData->'specifications'->>'category' as category, COUNT(p) as count " +
-           "FROM Product p GROUP BY p.productData->'specifications'->>'category'", nativeQuery = true)
+    @Query("SELECT p.category, COUNT(p) FROM Product p GROUP BY p.category")
     List<Object[]> countByCategory();
 
     /**
      * 📋 计算指定类别的平均价格
      *
-     * 使用JSONB路径查询，计算指定类别的平均价格。
+     * 按分类生成列过滤（索引范围扫描），计算指定类别的平均价格。
      * 用于价格分析和市场调研。
      *
      * @param category 商品类别
      * @return 平均价格
      */
-    @Query(value = "SELECT AVG(p.price) FROM Product p WHERE p.productData->'specifications'->>'category' = :category", nativeQuery = true)
+    @Query(value = "SELECT AVG(p.price) FROM products p WHERE p.category = :category", nativeQuery = true)
     BigDecimal getAveragePriceByCategory(@Param("category") String category);
 
     /**
@@ -397,46 +401,60 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
 
     // ==================== 🔄 动态属性系统支持 ====================
 
+    /**
+     * 🔄 按规格包含文档查询商品
+     *
+     * product_data @> 包含判断，由jsonb_path_ops GIN索引（见schema.sql）支撑。
+     * 包含文档由{@link ProductSpecifications#containmentJson}生成。
+     *
+     * @param filter 包含文档，例如 {"specifications": {"颜色": ["白色"], "尺寸": ["M"]}}
+     * @param pageable 分页对象
+     * @return 商品分页结果
+     */
+    @Query(value = "SELECT p.* FROM products p WHERE p.product_data @> CAST(:filter AS jsonb)",
+           countQuery = "SELECT COUNT(*) FROM products p WHERE p.product_data @> CAST(:filter AS jsonb)",
+           nativeQuery = true)
+    Page<Product> findBySpecificationsContaining(@Param("filter") String filter, Pageable pageable);
+
     /**
      * 🔄 根据动态属性键值对查询商品
      *
      * 完全灵活的动态属性查询，支持任意属性名称（如"颜色"、"尺寸"、"材质"、"款式"等）
      * 零假设：不对属性名称和值做任何预设，完全由数据驱动
-     * 优雅降级：没有动态属性的商品自动隐藏属性选择区域
      *
-     * 使用PostgreSQL的jsonb_each_text函数实现扁平化查询
+     * 规格值存为字符串列表，包含判断命中"值列表中含有attrValue"的商品，走GIN索引
      *
      * @param attrName 属性名称（如："颜色"、"尺寸"、"材质"等）
      * @param attrValue 属性值
      * @param pageable 分页对象
      * @return 商品分页结果
      */
-    @Query(value = "SELECT p.* FROM Product p, " +
-           "jsonb_each_text(p.productData->'specifications') as spec " +
-           "WHERE spec.key = :attrName AND spec.value = :attrValue", nativeQuery = true)
-    Page<Product> findByAttributeName(@Param("attrName") String attrName,
-                                    @Param("attrValue") String attrValue,
-                                    Pageable pageable);
+    default Page<Product> findByAttributeName(String attrName, String attrValue, Pageable pageable) {
+        return findBySpecificationsContaining(
+                ProductSpecifications.containmentJson(Map.of(attrName, List.of(attrValue))), pageable);
+    }
 
     /**
      * 🔄 多动态属性组合查询
      *
-     * 支持多个任意属性名称的组合查询
-     * 使用PostgreSQL的jsonb_path_exists函数实现复杂查询
+     * 两个属性同时满足，合并为一个包含文档，一次GIN索引查找。
+     * 任意数量的属性和数值区间请使用{@link ProductSpecifications}配合Specification查询。
      *
-     * @param attributes 属性名值对
+     * @param attrName1 第一个属性名称
+     * @param attrValue1 第一个属性值
+     * @param attrName2 第二个属性名称
+     * @param attrValue2 第二个属性值
      * @param pageable 分页对象
      * @return 商品分页结果
      */
-    @Query(value = "SELECT p.* FROM Product p WHERE " +
-           "EXISTS(SELECT 1 FROM jsonb_each_text(p.productData->'specifications') as spec " +
-           "WHERE (spec.key = :attrName1 AND spec.value = :attrValue1) " +
-           "AND (spec.key = :attrName2 AND spec.value = :attrValue2))", nativeQuery = true)
-    Page<Product> findByDynamicAttributes(@Param("attrName1") String attrName1,
-                                        @Param("attrValue1") String attrValue1,
-                                        @Param("attrName2") String attrName2,
-                                        @Param("attrValue2") String attrValue2,
-                                        Pageable pageable);
+    default Page<Product> findByDynamicAttributes(String attrName1, String attrValue1,
+                                                String attrName2, String attrValue2,
+                                                Pageable pageable) {
+        Map<String, List<String>> constraints = new LinkedHashMap<>();
+        constraints.computeIfAbsent(attrName1, key -> new ArrayList<>()).add(attrValue1);
+        constraints.computeIfAbsent(attrName2, key -> new ArrayList<>()).add(attrValue2);
+        return findBySpecificationsContaining(ProductSpecifications.containmentJson(constraints), pageable);
+    }
 
     /**
      * 🔄 获取所有存在的属性名称
@@ -485,7 +503,8 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     /**
      * 🔄 根据属性名进行模糊匹配查询
      *
-     * 支持文本型属性的模糊查询
+     * 支持文本型属性的模糊查询。ILIKE无法使用GIN索引，会逐行判断，
+     * 精确值筛选请使用{@link #findByAttributeName}或{@link ProductSpecifications}
      *
      * @param attrName 属性名称
      * @param attrValue 模糊匹配值
@@ -498,6 +517,146 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
                                          @Param("attrValue") String attrValue,
                                          Pageable pageable);
 
+    // ==================== 🔎 全文检索（search_vector + pg_trgm，见schema.sql） ====================
+
+    /**
+     * 🔎 按相关度检索商品ID
+     *
+     * 命中条件：n-gram检索向量匹配，或者名称/描述ILIKE匹配（由pg_trgm的GIN索引支撑）。
+     * 排序：ts_rank_cd(名称权重A、描述权重B) + 名称三元组相似度，相同时按ID倒序。
+     * 分页由pageable追加LIMIT/OFFSET，pageable不要带排序。
+     *
+     * @param keyword 原始关键词
+     * @param pattern 已转义通配符的ILIKE模式（%关键词%）
+     * @param onlyAvailable 是否只检索上架商品
+     * @param pageable 分页参数（不含排序）
+     * @return 按相关度排序的商品ID
+     */
+    @Query(value = "SELECT p.id FROM products p, plainto_tsquery('simple', product_ngrams(:keyword)) q " +
+           "WHERE (p.search_vector @@ q OR p.product_name ILIKE :pattern OR p.description ILIKE :pattern) " +
+           "AND (p.is_available OR NOT :onlyAvailable) " +
+           "ORDER BY ts_rank_cd(p.search_vector, q) + similarity(p.product_name, :keyword) DESC, p.id DESC",
+           nativeQuery = true)
+    List<Long> searchIdsByRelevance(@Param("keyword") String keyword,
+                                    @Param("pattern") String pattern,
+                                    @Param("onlyAvailable") boolean onlyAvailable,
+                                    Pageable pageable);
+
+    /**
+     * 🔎 统计相关度检索的命中数量（条件与searchIdsByRelevance相同）
+     *
+     * @param keyword 原始关键词
+     * @param pattern 已转义通配符的ILIKE模式（%关键词%）
+     * @param onlyAvailable 是否只检索上架商品
+     * @return 命中数量
+     */
+    @Query(value = "SELECT COUNT(*) FROM products p, plainto_tsquery('simple', product_ngrams(:keyword)) q " +
+           "WHERE (p.search_vector @@ q OR p.product_name ILIKE :pattern OR p.description ILIKE :pattern) " +
+           "AND (p.is_available OR NOT :onlyAvailable)",
+           nativeQuery = true)
+    long countByRelevanceSearch(@Param("keyword") String keyword,
+                                @Param("pattern") String pattern,
+                                @Param("onlyAvailable") boolean onlyAvailable);
+
+    // ==================== 🧩 productData局部更新（jsonb_set / jsonb - key） ====================
+    //
+    // 只改写JSONB中的一个子路径，不加载实体，也不把整个文档读回应用再写出；
+    // 条件中带creator_id，商品不存在或不属于该用户时影响0行。
+    // 执行后清空持久化上下文，避免之后读到旧的productData。
+
+    /**
+     * 🖼️ 设置主图片（image_data.main_image），image_data不存在时创建
+     *
+     * @param id 商品ID
+     * @param creatorId 商品创建者ID
+     * @param mainImage 主图片URL
+     * @return 更新的行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET product_data = jsonb_set(COALESCE(product_data, CAST('{}' AS jsonb)), '{image_data}', " +
+           "COALESCE(product_data->'image_data', CAST('{}' AS jsonb)) || jsonb_build_object('main_image', CAST(:mainImage AS text))), " +
+           "updated_at = LOCALTIMESTAMP WHERE id = :id AND creator_id = :creatorId", nativeQuery = true)
+    int updateMainImage(@Param("id") Long id, @Param("creatorId") Long creatorId, @Param("mainImage") String mainImage);
+
+    /**
+     * 🗑️ 清除主图片（删除image_data.main_image键）
+     *
+     * @param id 商品ID
+     * @param creatorId 商品创建者ID
+     * @return 更新的行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET product_data = product_data #- '{image_data,main_image}', " +
+           "updated_at = LOCALTIMESTAMP WHERE id = :id AND creator_id = :creatorId", nativeQuery = true)
+    int removeMainImage(@Param("id") Long id, @Param("creatorId") Long creatorId);
+
+    /**
+     * 🖼️ 在图库末尾追加图片（image_data.gallery），图库不存在时创建
+     *
+     * @param id 商品ID
+     * @param creatorId 商品创建者ID
+     * @param imageUrl 图片URL
+     * @return 更新的行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET product_data = jsonb_set(COALESCE(product_data, CAST('{}' AS jsonb)), '{image_data}', " +
+           "COALESCE(product_data->'image_data', CAST('{}' AS jsonb)) || jsonb_build_object('gallery', " +
+           "COALESCE(product_data #> '{image_data,gallery}', CAST('[]' AS jsonb)) || to_jsonb(CAST(:imageUrl AS text)))), " +
+           "updated_at = LOCALTIMESTAMP WHERE id = :id AND creator_id = :creatorId", nativeQuery = true)
+    int appendGalleryImage(@Param("id") Long id, @Param("creatorId") Long creatorId, @Param("imageUrl") String imageUrl);
+
+    /**
+     * 🗑️ 从图库中移除图片（删除所有等于该URL的元素）
+     *
+     * @param id 商品ID
+     * @param creatorId 商品创建者ID
+     * @param imageUrl 图片URL
+     * @return 更新的行数，图库中没有该图片时为0
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET product_data = jsonb_set(product_data, '{image_data,gallery}', " +
+           "COALESCE((SELECT jsonb_agg(e) FROM jsonb_array_elements(product_data #> '{image_data,gallery}') e " +
+           "WHERE e <> to_jsonb(CAST(:imageUrl AS text))), CAST('[]' AS jsonb))), " +
+           "updated_at = LOCALTIMESTAMP WHERE id = :id AND creator_id = :creatorId " +
+           "AND product_data #> '{image_data,gallery}' @> jsonb_build_array(CAST(:imageUrl AS text))", nativeQuery = true)
+    int removeGalleryImage(@Param("id") Long id, @Param("creatorId") Long creatorId, @Param("imageUrl") String imageUrl);
+
+    /**
+     * 📋 整体替换规格（specifications），分类/品牌生成列随之由数据库重算
+     *
+     * @param id 商品ID
+     * @param creatorId 商品创建者ID
+     * @param specifications 规格JSON，形如 {"颜色": ["白色"]}
+     * @return 更新的行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET product_data = jsonb_set(COALESCE(product_data, CAST('{}' AS jsonb)), '{specifications}', " +
+           "CAST(:specifications AS jsonb)), updated_at = LOCALTIMESTAMP WHERE id = :id AND creator_id = :creatorId",
+           nativeQuery = true)
+    int updateSpecifications(@Param("id") Long id, @Param("creatorId") Long creatorId,
+                             @Param("specifications") String specifications);
+
+    /**
+     * 🗑️ 清除规格（删除specifications键）
+     *
+     * @param id 商品ID
+     * @param creatorId 商品创建者ID
+     * @return 更新的行数
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE products SET product_data = product_data - 'specifications', " +
+           "updated_at = LOCALTIMESTAMP WHERE id = :id AND creator_id = :creatorId", nativeQuery = true)
+    int removeSpecifications(@Param("id") Long id, @Param("creatorId") Long creatorId);
+
+    /**
+     * 📋 检查商品是否属于指定用户（不加载实体）
+     *
+     * @param id 商品ID
+     * @param creatorId 用户ID
+     * @return 是否存在且属于该用户
+     */
+    boolean existsByIdAndCreator_Id(Long id, Long creatorId);
+
     // ==================== 📊 ProductService专用方法 ====================
 
     /**
@@ -0,0 +1,118 @@
+package com.cmliy.springweb.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.cmliy.springweb.converter.ProductDataCodec;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.model.ProductData;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * 🧩 商品规格筛选条件 - Product Specifications
+ *
+ * 把规格键值约束编译为productData上的JSONB包含判断（product_data @> ...），
+ * 由schema.sql中的jsonb_path_ops GIN索引支撑，不再逐行展开jsonb_each。
+ *
+ * 规格在productData中统一存为字符串列表，例如 {"specifications": {"颜色": ["白色", "黑色"]}}：
+ * - 同一规格的多个值之间是"或"：颜色为白色或黑色
+ * - 不同规格之间是"且"：所有只有一个值的约束合并为一个包含文档，一次索引查找
+ * - 数值区间（如尺寸38~40）通过product_spec_in_range逐行判断，应与包含条件一起使用
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * 🏷️ 规格值约束
+     *
+     * @param constraints 规格名 → 可接受的值（任一即可），空值和空列表被忽略
+     * @return 筛选条件，没有有效约束时返回null
+     */
+    public static Specification<Product> specificationsMatch(Map<String, ? extends Collection<String>> constraints) {
+        if (constraints == null || constraints.isEmpty()) {
+            return null;
+        }
+        Map<String, List<String>> merged = new LinkedHashMap<>();
+        List<Map<String, List<String>>> alternatives = new ArrayList<>();
+        constraints.forEach((key, values) -> {
+            if (key == null || key.isBlank() || values == null) {
+                return;
+            }
+            List<String> cleaned = values.stream()
+                    .filter(value -> value != null && !value.isBlank())
+                    .map(String::trim)
+                    .distinct()
+                    .toList();
+            if (cleaned.size() == 1) {
+                merged.put(key.trim(), cleaned);
+            } else if (cleaned.size() > 1) {
+                alternatives.add(Map.of(key.trim(), cleaned));
+            }
+        });
+        if (merged.isEmpty() && alternatives.isEmpty()) {
+            return null;
+        }
+
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (!merged.isEmpty()) {
+                predicates.add(contains(criteriaBuilder, root, merged));
+            }
+            for (Map<String, List<String>> alternative : alternatives) {
+                Map.Entry<String, List<String>> entry = alternative.entrySet().iterator().next();
+                Predicate[] anyOf = entry.getValue().stream()
+                        .map(value -> contains(criteriaBuilder, root, Map.of(entry.getKey(), List.of(value))))
+                        .toArray(Predicate[]::new);
+                predicates.add(criteriaBuilder.or(anyOf));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * 📏 规格数值区间约束
+     *
+     * @param key 规格名
+     * @param min 最小值（含），null表示不限
+     * @param max 最大值（含），null表示不限
+     * @return 筛选条件，两端都为null时返回null
+     */
+    public static Specification<Product> specificationInRange(String key, BigDecimal min, BigDecimal max) {
+        if (key == null || key.isBlank() || (min == null && max == null)) {
+            return null;
+        }
+        return (root, query, criteriaBuilder) -> criteriaBuilder.isTrue(criteriaBuilder.function(
+                "product_spec_in_range", Boolean.class,
+                root.get("productData"),
+                criteriaBuilder.literal(key.trim()),
+                min != null ? criteriaBuilder.literal(min) : criteriaBuilder.nullLiteral(BigDecimal.class),
+                max != null ? criteriaBuilder.literal(max) : criteriaBuilder.nullLiteral(BigDecimal.class)));
+    }
+
+    /**
+     * 🔤 生成单条规格约束的包含文档，供原生查询使用
+     *
+     * @param constraints 规格名 → 必须全部包含的值
+     * @return 形如 {"specifications": {"颜色": ["白色"]}} 的JSON字符串
+     */
+    public static String containmentJson(Map<String, List<String>> constraints) {
+        return ProductDataCodec.write(ProductData.EMPTY.withSpecifications(constraints));
+    }
+
+    private static Predicate contains(CriteriaBuilder criteriaBuilder, Root<Product> root,
+                                      Map<String, List<String>> constraints) {
+        return criteriaBuilder.isTrue(criteriaBuilder.function("product_data_contains", Boolean.class,
+                root.get("productData"), criteriaBuilder.literal(containmentJson(constraints))));
+    }
+}
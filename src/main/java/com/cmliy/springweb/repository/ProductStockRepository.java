@@ -0,0 +1,71 @@
+package com.cmliy.springweb.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.cmliy.springweb.model.Product;
+
+/**
+ * 📦 商品库存原子更新 - Product Stock Repository
+ *
+ * ProductRepository的自定义片段，库存变更用单条条件UPDATE完成：
+ * 判断和扣减在数据库的同一条语句里发生，并发下单不会互相覆盖，也不会超卖。
+ * 调用方不要再修改实体上的stockQuantity/salesCount。
+ */
+public interface ProductStockRepository {
+
+    /**
+     * 📉 商品上架且库存足够时扣减库存并累加销量
+     *
+     * UPDATE products SET stock_quantity = stock_quantity - ?, sales_count = sales_count + ?
+     * WHERE id = ? AND stock_quantity >= ? AND is_available = true
+     *
+     * @param productId 商品ID
+     * @param quantity 扣减数量，必须大于0
+     * @return 扣减成功时返回已刷新为最新状态的商品；商品不存在、已下架或库存不足时返回空
+     */
+    Optional<Product> decreaseStockIfSufficient(Long productId, int quantity);
+
+    /**
+     * 📈 增加库存（补货或取消订单归还库存）
+     *
+     * @param productId 商品ID
+     * @param quantity 增加数量，必须大于0
+     * @return 已刷新为最新状态的商品；商品不存在时返回空
+     */
+    Optional<Product> increaseStock(Long productId, int quantity);
+
+    /**
+     * 🔒 按ID升序加锁读取多个商品（SELECT ... WHERE id IN (...) ORDER BY id FOR UPDATE）
+     *
+     * 所有多商品事务都按同一顺序加锁，互相之间不会死锁。
+     * 返回的实体是只读的：之后对它们的修改不会被刷新到数据库，库存变更使用decreaseStocks()。
+     *
+     * @param productIds 商品ID
+     * @return 存在的商品，按ID升序
+     */
+    List<Product> lockAllById(Collection<Long> productIds);
+
+    /**
+     * 📉 一条语句扣减多个商品的库存并累加销量
+     *
+     * UPDATE products SET stock_quantity = stock_quantity - v.quantity, ... FROM unnest(ids, quantities) v
+     * WHERE products.id = v.id AND stock_quantity >= v.quantity
+     *
+     * @param quantities 商品ID → 扣减数量（必须大于0）
+     * @return 扣减成功的商品数，小于quantities.size()表示有商品库存不足
+     */
+    int decreaseStocks(Map<Long, Integer> quantities);
+
+    /**
+     * 📈 一条语句归还多个商品的库存（批量取消超时订单）
+     *
+     * 与increaseStock()一致，只增加库存，不回退销量。
+     *
+     * @param quantities 商品ID → 归还数量（必须大于0）
+     * @return 更新的商品数
+     */
+    int increaseStocks(Map<Long, Integer> quantities);
+}
@@ -0,0 +1,107 @@
+package com.cmliy.springweb.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.hibernate.jpa.HibernateHints;
+
+import com.cmliy.springweb.model.Product;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * 📦 商品库存原子更新实现
+ *
+ * 执行JPQL批量UPDATE（Hibernate会先自动flush商品表上未提交的修改），
+ * 成功后把持久化上下文中的商品实体refresh为数据库中的最新值，
+ * 之后的索引更新、订单关联拿到的都是扣减后的库存和销量。
+ * 不清空持久化上下文，同一事务中已加载的其他实体和代理不受影响。
+ */
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Product> decreaseStockIfSufficient(Long productId, int quantity) {
+        int updated = entityManager.createQuery(
+                        "UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, "
+                                + "p.salesCount = p.salesCount + :quantity, p.updatedAt = CURRENT_TIMESTAMP "
+                                + "WHERE p.id = :id AND p.stockQuantity >= :quantity AND p.isAvailable = true")
+                .setParameter("quantity", quantity)
+                .setParameter("id", productId)
+                .executeUpdate();
+        return updated > 0 ? Optional.of(reload(productId)) : Optional.empty();
+    }
+
+    @Override
+    public Optional<Product> increaseStock(Long productId, int quantity) {
+        int updated = entityManager.createQuery(
+                        "UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, "
+                                + "p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = :id")
+                .setParameter("quantity", quantity)
+                .setParameter("id", productId)
+                .executeUpdate();
+        return updated > 0 ? Optional.of(reload(productId)) : Optional.empty();
+    }
+
+    @Override
+    public List<Product> lockAllById(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id", Product.class)
+                .setParameter("ids", productIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    public int decreaseStocks(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+        // 以PostgreSQL数组字面量传参，unnest后与products按ID连接，一条语句完成
+        return entityManager.createNativeQuery(
+                        "UPDATE products p SET stock_quantity = p.stock_quantity - v.quantity, "
+                                + "sales_count = p.sales_count + v.quantity, updated_at = LOCALTIMESTAMP "
+                                + "FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS integer[])) AS v(id, quantity) "
+                                + "WHERE p.id = v.id AND p.stock_quantity >= v.quantity")
+                .setParameter("ids", arrayLiteral(quantities.keySet()))
+                .setParameter("quantities", arrayLiteral(quantities.values()))
+                .executeUpdate();
+    }
+
+    @Override
+    public int increaseStocks(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery(
+                        "UPDATE products p SET stock_quantity = p.stock_quantity + v.quantity, updated_at = LOCALTIMESTAMP "
+                                + "FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS integer[])) AS v(id, quantity) "
+                                + "WHERE p.id = v.id")
+                .setParameter("ids", arrayLiteral(quantities.keySet()))
+                .setParameter("quantities", arrayLiteral(quantities.values()))
+                .executeUpdate();
+    }
+
+    private static String arrayLiteral(Collection<? extends Number> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    /**
+     * 批量UPDATE不经过持久化上下文，已加载的实体仍是旧值，这里统一refresh
+     */
+    private Product reload(Long productId) {
+        Product product = entityManager.find(Product.class, productId);
+        entityManager.refresh(product);
+        return product;
+    }
+}
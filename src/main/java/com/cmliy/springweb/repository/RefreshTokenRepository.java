@@ -0,0 +1,43 @@
+package com.cmliy.springweb.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cmliy.springweb.model.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * 原子地吊销一个尚未吊销的刷新令牌（轮换时认领旧令牌）
+     *
+     * @return 1表示本次认领成功；0表示已被其他请求吊销
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.id = :id AND r.revoked = false")
+    int revokeIfActive(@Param("id") Long id);
+
+    /**
+     * 吊销用户的全部刷新令牌（检测到令牌重放时使用）
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true WHERE r.userId = :userId AND r.revoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId);
+
+    /**
+     * 清理已过期的刷新令牌
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
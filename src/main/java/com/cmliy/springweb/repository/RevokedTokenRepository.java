@@ -0,0 +1,31 @@
+package com.cmliy.springweb.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cmliy.springweb.model.RevokedToken;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * 查询仍在有效期内的已吊销jti，用于重建布隆过滤器
+     */
+    @Query("SELECT r.jti FROM RevokedToken r WHERE r.expiresAt > :now")
+    List<String> findActiveJtis(@Param("now") LocalDateTime now);
+
+    /**
+     * 清理已过期的吊销记录
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
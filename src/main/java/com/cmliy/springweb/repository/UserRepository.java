@@ -6,7 +6,9 @@ import com.cmliy.springweb.model.User;                    // 导入用户实体
 import org.springframework.data.domain.Page;              // 导入Spring Data分页接口
 import org.springframework.data.domain.Pageable;          // 导入Spring Data分页参数接口
 import org.springframework.data.jpa.repository.JpaRepository; // 导入Spring Data JPA基础Repository接口
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor; // 导入动态查询规格执行接口
 import org.springframework.data.jpa.repository.Query;     // 导入自定义查询注解
+import org.springframework.data.repository.query.Param;   // 导入查询参数注解
 import org.springframework.stereotype.Repository;             // 导入Spring Repository注解
 
 import java.util.Optional;                                  // 导入Java 8 Optional容器类
@@ -26,7 +28,7 @@ import java.util.Optional;                                  // 导入Java 8 Opti
  * @Repository: Spring框架注解，标记这是一个数据访问层组件。
  */
 @Repository // @Repository注解：声明这是一个Repository类，Spring会自动管理其生命周期
-public interface UserRepository extends JpaRepository<User, Long> { // extends: 继承父接口，获得父接口的所有方法
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> { // extends: 继承父接口，获得父接口的所有方法
 
     // ===== 查询方法 =====
     // Spring Data JPA会根据方法名自动生成查询语句
@@ -124,6 +126,17 @@ public interface UserRepository extends JpaRepository<User, Long> { // extends:
      */
     long countByEnabledFalse(); // 统计禁用的用户数量
 
+    /**
+     * 🔢 查询用户的令牌版本
+     *
+     * 只读取单个整数列，供TokenVersionStore首次加载版本号使用。
+     *
+     * @param userId: 用户ID
+     * @return Optional<Integer>: 令牌版本，用户不存在时为空
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :userId") // JPQL查询：只选择令牌版本列
+    Optional<Integer> findTokenVersionById(@Param("userId") Long userId); // 根据用户ID查询令牌版本
+
     // ===== 分页查询方法 =====
     // 支持用户管理的分页查询功能
 
@@ -3,6 +3,7 @@ package com.cmliy.springweb.security;
 
 // import: 导入其他包中的类，以便在当前类中使用
 import com.cmliy.springweb.util.JwtUtil;                 // 导入JWT工具类
+import io.jsonwebtoken.Claims;                           // 导入JWT声明接口
 import jakarta.servlet.FilterChain;                      // 导入Servlet过滤器链接口
 import jakarta.servlet.ServletException;               // 导入Servlet异常类
 import jakarta.servlet.http.HttpServletRequest;          // 导入HTTP请求接口
@@ -10,8 +11,6 @@ import jakarta.servlet.http.HttpServletResponse;         // 导入HTTP响应接
 import org.springframework.beans.factory.annotation.Autowired; // 导入Spring依赖注入注解
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken; // 导入Spring Security认证令牌类
 import org.springframework.security.core.context.SecurityContextHolder; // 导入Spring Security安全上下文持有者
-import org.springframework.security.core.userdetails.UserDetails; // 导入Spring Security用户详情接口
-import org.springframework.security.core.userdetails.UserDetailsService; // 导入Spring Security用户详情服务接口
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource; // 导入Web认证详情源
 import org.springframework.stereotype.Component;          // 导入Spring组件注解
 import org.springframework.web.filter.OncePerRequestFilter; // 导入Spring Web过滤器基类
@@ -29,8 +28,9 @@ import java.io.IOException;                             // 导入Java IO异常
  * 过滤器的工作流程：
  * 1. 从HTTP请求头中提取JWT令牌
  * 2. 验证令牌的有效性
- * 3. 加载用户详情信息
- * 4. 设置Spring Security认证上下文
+ * 3. 从令牌声明构建JwtUserPrincipal（不访问数据库）
+ * 4. 校验令牌版本是否已被吊销
+ * 5. 设置Spring Security认证上下文
  *
  * @Component: Spring框架注解，标记这是一个组件类，
  *             Spring容器会自动扫描并注册这个类为Bean。
@@ -44,6 +44,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
      */
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    /**
+     * 📌 请求属性名：已验证的JWT声明
+     *
+     * 过滤器解析令牌后将Claims保存在请求属性中，后续控制器可直接读取，
+     * 无需再次解析令牌或校验签名。
+     */
+    public static final String JWT_CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".CLAIMS";
+
     // ===== 依赖注入的字段 =====
     // 使用final字段和构造函数注入，这是Spring Boot推荐的最佳实践
     // 优势：1. 保证不可变性 2. 支持单元测试 3. 避免字段注入的潜在问题
@@ -59,12 +67,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
     private final JwtUtil jwtUtil; // jwtUtil: JWT工具类，用于令牌的解析和验证
 
     /**
-     * 👤 用户详情服务
+     * 🔢 令牌版本存储
+     *
+     * 内存中的用户令牌版本表，用于判断令牌是否已被吊销。
+     * 每个用户只在首次出现时查询一次数据库。
+     */
+    private final TokenVersionStore tokenVersionStore; // tokenVersionStore: 令牌版本存储，用于吊销检查
+
+    /**
+     * 🚫 令牌吊销服务
      *
-     * 自定义的用户详情服务，从数据库加载用户信息。
-     * 在JWT验证成功后，用于加载完整的用户详情信息。
+     * 登出吊销的jti保存在布隆过滤器中，绝大多数请求无需访问数据库即可确认未被吊销。
      */
-    private final UserDetailsService userDetailsService; // userDetailsService: 用户详情服务，用于加载用户信息
+    private final TokenRevocationService tokenRevocationService; // tokenRevocationService: 按jti判断令牌是否已登出
 
     /**
      * 🏗️ 构造函数注入
@@ -81,12 +96,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
      * 在过滤器中使用构造函数注入特别重要，因为过滤器是单例的，在多线程环境下运行
      *
      * @param jwtUtil JWT工具类实例，用于令牌的解析和验证
-     * @param userDetailsService 用户详情服务，用于加载用户信息
+     * @param tokenVersionStore 令牌版本存储，用于吊销检查
+     * @param tokenRevocationService 令牌吊销服务，用于登出检查
      */
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenVersionStore tokenVersionStore,
+                                   TokenRevocationService tokenRevocationService) {
         // this关键字：引用当前对象的字段，区分同名的参数和字段
         this.jwtUtil = jwtUtil; // 将传入的JWT工具类赋值给当前对象的字段
-        this.userDetailsService = userDetailsService; // 将传入的用户详情服务赋值给当前对象的字段
+        this.tokenVersionStore = tokenVersionStore; // 将传入的令牌版本存储赋值给当前对象的字段
+        this.tokenRevocationService = tokenRevocationService; // 将传入的令牌吊销服务赋值给当前对象的字段
     }
 
     /**
@@ -104,8 +122,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
      * JWT认证流程：
      * 1. 提取Authorization请求头中的JWT令牌
      * 2. 验证令牌的格式和签名
-     * 3. 从令牌中提取用户信息
-     * 4. 加载用户详情并验证权限
+     * 3. 从令牌声明构建用户主体（userId、角色、启用状态）
+     * 4. 校验账户启用状态和令牌版本
      * 5. 设置Spring Security认证上下文
      *
      * @Override: 注解表示这个方法重写了父类的方法，确保方法签名正确
@@ -126,8 +144,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
         // Authorization: HTTP标准请求头，用于传递认证信息
         final String authorizationHeader = request.getHeader("Authorization"); // 获取Authorization请求头
 
-        String username = null; // username变量：存储从JWT中提取的用户名，初始化为null
         String jwt = null;      // jwt变量：存储提取的JWT令牌字符串，初始化为null
+        JwtUserPrincipal principal = null; // principal变量：从JWT声明构建的用户主体，初始化为null
 
         // 🎯 第二步：检查并提取JWT令牌
         // JWT标准格式：Authorization: Bearer <jwt_token>
@@ -137,9 +155,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
             // .substring(7): 从索引7开始截取字符串，跳过"Bearer "
 
             try { // try-catch: 捕获JWT解析过程中可能出现的各种异常
-                // 📤 第三步：从JWT中提取用户名
-                // jwtUtil.extractUsername(): JWT工具类的方法，解析JWT载荷中的subject声明
-                username = jwtUtil.extractUsername(jwt); // 从JWT令牌中解析出用户名
+                // 📤 第三步：解析JWT并构建用户主体
+                // jwtUtil.parseToken(): 一次完成签名和过期校验，整个请求只解析这一次
+                Claims claims = jwtUtil.parseToken(jwt); // 解析并验证JWT令牌
+                principal = JwtUserPrincipal.fromClaims(claims); // 从声明构建主体，旧格式令牌返回null
+                if (principal != null && tokenRevocationService.isRevoked(claims.getId())) { // 已登出的令牌
+                    logger.debug("JWT令牌已登出吊销: jti={}", claims.getId());
+                    principal = null; // 不建立认证
+                }
+                request.setAttribute(JWT_CLAIMS_ATTRIBUTE, claims); // 保存声明供后续处理复用
             } catch (Exception e) { // 捕获所有可能的JWT解析异常
                 // 常见异常：令牌格式错误、签名无效、令牌过期等
                 // 使用SLF4J记录JWT解析错误，便于调试和监控
@@ -147,24 +171,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
             }
         }
 
-        // 🔐 第四步：验证用户名和认证状态
+        // 🔐 第四步：验证主体和认证状态
         // SecurityContextHolder.getContext(): 获取当前线程的Spring Security安全上下文
         // .getAuthentication(): 获取当前认证信息，如果未认证则返回null
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) { // 条件：有用户名且未认证
-            // 👤 加载用户详情
-            // this.userDetailsService.loadUserByUsername(): 调用用户详情服务加载用户信息
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username); // 从数据库加载用户详细信息
-
-            // ✅ 验证JWT令牌
-            // jwtUtil.validateToken(): 验证JWT令牌的有效性（签名、过期时间等）
-            if (jwtUtil.validateToken(jwt, userDetails)) { // 如果JWT令牌有效
+        if (principal != null && SecurityContextHolder.getContext().getAuthentication() == null) { // 条件：有主体且未认证
+            // ✅ 校验启用状态和令牌版本
+            // tokenVersionStore.isCurrent(): 版本号不一致说明令牌已被吊销（禁用、改角色、改密码）
+            if (principal.isEnabled()
+                    && tokenVersionStore.isCurrent(principal.getUserId(), principal.getTokenVersion())) { // 如果JWT令牌有效
                 // 🔑 创建认证令牌
                 // UsernamePasswordAuthenticationToken: Spring Security的认证令牌类
                 UsernamePasswordAuthenticationToken authToken = // 创建Spring Security认证对象
                     new UsernamePasswordAuthenticationToken(
-                        userDetails,           // 第一个参数：用户详情对象
+                        principal,             // 第一个参数：用户主体对象
                         null,                  // 第二个参数：凭证（密码），JWT认证时为null
-                        userDetails.getAuthorities() // 第三个参数：用户权限列表
+                        principal.getAuthorities() // 第三个参数：用户权限列表
                     );
 
                 // 🎯 设置认证详情
@@ -176,6 +197,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter { // extends:
                 // SecurityContextHolder.getContext(): 获取安全上下文
                 // .setAuthentication(): 设置认证信息到上下文中
                 SecurityContextHolder.getContext().setAuthentication(authToken); // 将认证信息存储到安全上下文
+            } else {
+                logger.debug("JWT令牌已被吊销或账户已禁用: userId={}", principal.getUserId());
             }
         }
 
@@ -0,0 +1,120 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.security;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import com.cmliy.springweb.model.User;                  // 导入用户实体类
+import io.jsonwebtoken.Claims;                           // 导入JWT声明接口
+import lombok.Getter;                                    // 导入Lombok @Getter注解
+import org.springframework.security.core.CredentialsContainer; // 导入Spring Security凭证擦除接口
+import org.springframework.security.core.GrantedAuthority; // 导入Spring Security权限接口
+import org.springframework.security.core.authority.SimpleGrantedAuthority; // 导入Spring Security权限类
+import org.springframework.security.core.userdetails.UserDetails; // 导入Spring Security用户详情接口
+
+import java.util.Collection;                             // 导入Java集合接口
+import java.util.List;                                   // 导入Java列表接口
+
+/**
+ * 🪪 JWT认证主体
+ *
+ * 类型化的Spring Security用户主体，携带userId、角色、启用状态和令牌版本。
+ * 它有两种来源：
+ * 1. 登录时由CustomUserDetailsService从数据库构建（包含密码哈希，认证后被擦除）
+ * 2. 每个请求由JwtAuthenticationFilter直接从令牌声明构建（不访问数据库）
+ *
+ * 令牌版本（tokenVersion）与TokenVersionStore中的当前版本比对，
+ * 用户被禁用、角色变更或修改密码后版本递增，旧令牌立即失效。
+ */
+@Getter // @Getter注解：Lombok自动生成所有字段的getter方法
+public class JwtUserPrincipal implements UserDetails, CredentialsContainer { // implements: 实现用户详情和凭证擦除接口
+
+    // ===== JWT声明名称 =====
+    public static final String CLAIM_USER_ID = "userId";             // 用户ID声明
+    public static final String CLAIM_ROLE = "role";                  // 用户角色声明
+    public static final String CLAIM_ENABLED = "enabled";            // 启用状态声明
+    public static final String CLAIM_TOKEN_VERSION = "tokenVersion"; // 令牌版本声明
+
+    private final Long userId;          // userId: 用户ID
+    private final String username;      // username: 用户名
+    private final String role;          // role: 用户角色（不含ROLE_前缀）
+    private final boolean enabled;      // enabled: 账户启用状态
+    private final int tokenVersion;     // tokenVersion: 签发令牌时的用户令牌版本
+    private String password;            // password: 密码哈希，仅登录认证时存在
+    private final List<GrantedAuthority> authorities; // authorities: 权限列表
+
+    /**
+     * 🏗️ 构造函数
+     *
+     * @param userId 用户ID
+     * @param username 用户名
+     * @param role 用户角色（不含ROLE_前缀）
+     * @param enabled 账户启用状态
+     * @param tokenVersion 令牌版本
+     * @param password 密码哈希，从令牌构建时为null
+     */
+    public JwtUserPrincipal(Long userId, String username, String role, boolean enabled, int tokenVersion, String password) {
+        this.userId = userId;                 // 设置用户ID
+        this.username = username;             // 设置用户名
+        this.role = role;                     // 设置角色
+        this.enabled = enabled;               // 设置启用状态
+        this.tokenVersion = tokenVersion;     // 设置令牌版本
+        this.password = password;             // 设置密码哈希
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role)); // ROLE_前缀：Spring Security的角色约定
+    }
+
+    /**
+     * 🗄️ 从用户实体构建主体（登录认证时使用）
+     *
+     * @param user 用户实体
+     * @return JwtUserPrincipal: 包含密码哈希的认证主体
+     */
+    public static JwtUserPrincipal fromUser(User user) {
+        int version = user.getTokenVersion() != null ? user.getTokenVersion() : 0; // 兼容旧数据的空值
+        return new JwtUserPrincipal(user.getId(), user.getUsername(), user.getRole(),
+                Boolean.TRUE.equals(user.getEnabled()), version, user.getPassword());
+    }
+
+    /**
+     * 🎫 从已验证的JWT声明构建主体（每个请求使用，不访问数据库）
+     *
+     * @param claims 已通过签名和过期校验的JWT声明
+     * @return JwtUserPrincipal: 认证主体；缺少必要声明的旧令牌返回null
+     */
+    public static JwtUserPrincipal fromClaims(Claims claims) {
+        Object userId = claims.get(CLAIM_USER_ID);             // 读取用户ID声明
+        Object role = claims.get(CLAIM_ROLE);                  // 读取角色声明
+        Object enabled = claims.get(CLAIM_ENABLED);            // 读取启用状态声明
+        Object tokenVersion = claims.get(CLAIM_TOKEN_VERSION); // 读取令牌版本声明
+        if (!(userId instanceof Number) || !(role instanceof String)
+                || !(enabled instanceof Boolean) || !(tokenVersion instanceof Number)
+                || claims.getSubject() == null) {
+            return null; // 旧格式令牌无法构建主体
+        }
+        return new JwtUserPrincipal(((Number) userId).longValue(), claims.getSubject(), (String) role,
+                (Boolean) enabled, ((Number) tokenVersion).intValue(), null);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities; // 返回权限列表
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true; // 账户永不过期
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true; // 账户不锁定
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true; // 凭证永不过期
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null; // 认证完成后擦除密码哈希
+    }
+}
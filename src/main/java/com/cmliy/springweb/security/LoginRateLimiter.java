@@ -0,0 +1,203 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.security;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import com.cmliy.springweb.config.AppConfig;            // 导入应用配置类
+import com.cmliy.springweb.exception.TooManyRequestsException; // 导入请求过多异常
+import io.micrometer.core.instrument.Counter;            // 导入Micrometer计数器
+import io.micrometer.core.instrument.Gauge;              // 导入Micrometer仪表
+import io.micrometer.core.instrument.MeterRegistry;      // 导入Micrometer指标注册表
+import org.springframework.stereotype.Component;         // 导入Spring组件注解
+
+import java.util.Iterator;                               // 导入Java迭代器接口
+import java.util.LinkedHashMap;                          // 导入Java有序哈希表
+import java.util.Map;                                    // 导入Java Map接口
+import java.util.concurrent.TimeUnit;                    // 导入时间单位枚举
+import java.util.concurrent.locks.ReentrantLock;         // 导入可重入锁
+
+/**
+ * 🚦 登录/注册限流器
+ *
+ * 内存中的令牌桶限流器，分别按用户名和客户端IP限制/auth/login与/auth/register的尝试频率，
+ * 防止撞库攻击让每次请求都触发的BCrypt计算占满CPU。
+ *
+ * 实现要点：
+ * 1. 锁分段：键按哈希分布到固定数量的分段，每段一把锁，不同分段互不阻塞
+ * 2. 内存有界：每段是按访问顺序排列的LinkedHashMap，超过容量时淘汰最久未访问的桶
+ * 3. 空闲清理：每次访问分段时从最旧的一端移除空闲超时的桶（空闲足够久的桶已满，删除不影响限流结果）
+ * 4. 拒绝时抛出TooManyRequestsException，由全局异常处理器返回429和Retry-After
+ *
+ * 指标：
+ * - auth.throttle.rejected{dimension=username|ip}: 被拒绝的尝试次数
+ * - auth.throttle.buckets: 当前跟踪的令牌桶数量
+ */
+@Component // @Component注解：声明这是一个Spring组件
+public class LoginRateLimiter {
+
+    private static final int STRIPES = 64; // STRIPES: 锁分段数量，取2的幂便于位运算定位
+
+    private final Stripe[] stripes = new Stripe[STRIPES]; // stripes: 锁分段数组
+    private final BucketPolicy usernamePolicy;  // usernamePolicy: 用户名维度的令牌桶参数
+    private final BucketPolicy ipPolicy;        // ipPolicy: IP维度的令牌桶参数
+    private final long idleNanos;               // idleNanos: 令牌桶空闲清理阈值（纳秒）
+    private final Counter usernameRejected;     // usernameRejected: 用户名维度拒绝计数
+    private final Counter ipRejected;           // ipRejected: IP维度拒绝计数
+
+    /**
+     * 🏗️ 构造函数注入
+     *
+     * @param appConfig 应用配置类，包含限流参数
+     * @param meterRegistry Micrometer指标注册表
+     */
+    public LoginRateLimiter(AppConfig appConfig, MeterRegistry meterRegistry) {
+        AppConfig.LoginThrottleConfig config = appConfig.getLoginThrottle(); // 读取限流配置
+        this.usernamePolicy = new BucketPolicy(config.getUsernameCapacity(), config.getUsernameRefillPerMinute());
+        this.ipPolicy = new BucketPolicy(config.getIpCapacity(), config.getIpRefillPerMinute());
+        this.idleNanos = TimeUnit.SECONDS.toNanos(config.getIdleSeconds());
+
+        int perStripe = Math.max(1, config.getMaxBuckets() / STRIPES); // 每个分段的容量上限
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe); // 初始化每个分段
+        }
+
+        this.usernameRejected = Counter.builder("auth.throttle.rejected")
+                .tag("dimension", "username")
+                .description("因用户名维度限流被拒绝的登录/注册尝试")
+                .register(meterRegistry);
+        this.ipRejected = Counter.builder("auth.throttle.rejected")
+                .tag("dimension", "ip")
+                .description("因IP维度限流被拒绝的登录/注册尝试")
+                .register(meterRegistry);
+        Gauge.builder("auth.throttle.buckets", this, LoginRateLimiter::trackedBuckets)
+                .description("当前跟踪的限流令牌桶数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ✅ 尝试获取一次登录/注册配额
+     *
+     * 先检查IP维度，再检查用户名维度；任一维度没有令牌即拒绝。
+     *
+     * @param username 请求中的用户名，可以为null
+     * @param clientIp 客户端IP地址
+     * @throws TooManyRequestsException 超出配额时抛出，携带建议等待秒数
+     */
+    public void acquire(String username, String clientIp) {
+        if (clientIp != null) {
+            long waitNanos = tryConsume("ip:" + clientIp, ipPolicy); // IP维度
+            if (waitNanos > 0) {
+                ipRejected.increment(); // 记录IP维度拒绝
+                throw new TooManyRequestsException("请求过于频繁，请稍后再试", toRetryAfterSeconds(waitNanos));
+            }
+        }
+        if (username != null && !username.isEmpty()) {
+            long waitNanos = tryConsume("user:" + username.toLowerCase(), usernamePolicy); // 用户名维度（忽略大小写）
+            if (waitNanos > 0) {
+                usernameRejected.increment(); // 记录用户名维度拒绝
+                throw new TooManyRequestsException("该账户尝试次数过多，请稍后再试", toRetryAfterSeconds(waitNanos));
+            }
+        }
+    }
+
+    /**
+     * 🪣 在对应分段中消费一个令牌
+     *
+     * @return long: 0表示成功；大于0表示需要等待的纳秒数
+     */
+    private long tryConsume(String key, BucketPolicy policy) {
+        Stripe stripe = stripes[(key.hashCode() ^ (key.hashCode() >>> 16)) & (STRIPES - 1)]; // 扰动哈希后定位分段
+        long now = System.nanoTime(); // 单调时钟，不受系统时间调整影响
+        stripe.lock.lock(); // 只锁住当前分段
+        try {
+            stripe.evictIdle(now, idleNanos); // 顺带清理空闲桶
+            Bucket bucket = stripe.buckets.get(key); // get会把桶移到访问顺序末尾
+            if (bucket == null) {
+                bucket = new Bucket(policy.capacity, now); // 新桶从满令牌开始
+                stripe.buckets.put(key, bucket);
+            }
+            return bucket.tryConsume(policy, now);
+        } finally {
+            stripe.lock.unlock(); // 释放分段锁
+        }
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)); // 向上取整到秒
+    }
+
+    private double trackedBuckets() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                total += stripe.buckets.size(); // 累加每个分段的桶数
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 📐 令牌桶参数：容量和每纳秒补充的令牌数
+     */
+    private static final class BucketPolicy {
+        private final double capacity;        // capacity: 桶容量
+        private final double refillPerNano;   // refillPerNano: 每纳秒补充的令牌数
+
+        private BucketPolicy(int capacity, int refillPerMinute) {
+            this.capacity = Math.max(1, capacity);
+            this.refillPerNano = Math.max(1, refillPerMinute) / (double) TimeUnit.MINUTES.toNanos(1);
+        }
+    }
+
+    /**
+     * 🪣 单个令牌桶，只在所属分段的锁内访问
+     */
+    private static final class Bucket {
+        private double tokens;       // tokens: 当前令牌数
+        private long lastRefill;     // lastRefill: 上次补充令牌的时间（纳秒）
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private long tryConsume(BucketPolicy policy, long now) {
+            tokens = Math.min(policy.capacity, tokens + (now - lastRefill) * policy.refillPerNano); // 按经过时间补充令牌
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1; // 消费一个令牌
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / policy.refillPerNano); // 距离下一个令牌的等待时间
+        }
+    }
+
+    /**
+     * 🔒 锁分段：一把锁加一个按访问顺序排列、容量有界的桶表
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock(); // lock: 分段锁
+        private final LinkedHashMap<String, Bucket> buckets;   // buckets: 键到令牌桶的映射
+
+        private Stripe(int maxEntries) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) { // accessOrder=true：按访问顺序排列
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxEntries; // 超过容量时淘汰最久未访问的桶
+                }
+            };
+        }
+
+        private void evictIdle(long now, long idleNanos) {
+            Iterator<Map.Entry<String, Bucket>> iterator = buckets.entrySet().iterator(); // 从最久未访问的桶开始
+            while (iterator.hasNext()) {
+                if (now - iterator.next().getValue().lastRefill < idleNanos) {
+                    break; // 后面的桶更新，停止扫描
+                }
+                iterator.remove(); // 移除空闲桶
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.security;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import com.cmliy.springweb.config.AppConfig;            // 导入应用配置类
+import com.cmliy.springweb.model.RevokedToken;          // 导入已吊销令牌实体
+import com.cmliy.springweb.repository.RevokedTokenRepository; // 导入已吊销令牌数据访问接口
+import com.cmliy.springweb.util.BloomFilter;            // 导入布隆过滤器
+import io.micrometer.core.instrument.Counter;            // 导入Micrometer计数器
+import io.micrometer.core.instrument.MeterRegistry;      // 导入Micrometer指标注册表
+import jakarta.annotation.PreDestroy;                    // 导入销毁前回调注解
+import org.slf4j.Logger;                                // 导入SLF4J日志接口
+import org.slf4j.LoggerFactory;                         // 导入SLF4J日志工厂
+import org.springframework.boot.context.event.ApplicationReadyEvent; // 导入应用就绪事件
+import org.springframework.context.event.EventListener; // 导入事件监听注解
+import org.springframework.stereotype.Component;        // 导入Spring组件注解
+import org.springframework.transaction.annotation.Transactional; // 导入事务注解
+import org.springframework.transaction.support.TransactionSynchronization; // 导入事务同步回调接口
+import org.springframework.transaction.support.TransactionSynchronizationManager; // 导入事务同步管理器
+
+import java.time.LocalDateTime;                          // 导入Java 8日期时间类
+import java.util.List;                                   // 导入Java列表接口
+import java.util.concurrent.ExecutorService;             // 导入线程池接口
+import java.util.concurrent.Executors;                   // 导入线程池工厂
+import java.util.concurrent.TimeUnit;                    // 导入时间单位
+import java.util.concurrent.atomic.AtomicBoolean;        // 导入原子布尔
+import java.util.concurrent.atomic.AtomicLong;           // 导入原子长整型
+
+/**
+ * 🚫 访问令牌吊销服务
+ *
+ * 登出时把访问令牌的jti写入revoked_tokens表，同时加入内存布隆过滤器。
+ * JwtAuthenticationFilter每个请求调用isRevoked()：
+ * - 布隆过滤器判定"一定不存在"（绝大多数请求）：直接放行，不访问数据库
+ * - 判定"可能存在"：回源数据库确认，排除误判
+ *
+ * 布隆过滤器无法删除元素，应用启动时以及插入数超过预期容量时，
+ * 会清理过期记录并根据仍然有效的jti重建过滤器。
+ * 容量触发的重建交给后台线程执行：登出事务已经提交，不能在它的提交回调里再写数据库，
+ * 也不能让重建失败影响已经成功的登出。
+ *
+ * 指标：
+ * - auth.revocation.checks{result=bloom_negative|db_hit|db_miss}: 吊销检查结果分布
+ */
+@Component // @Component注解：声明这是一个Spring组件
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository; // revokedTokenRepository: 吊销记录数据访问接口
+    private final long expectedInsertions;    // expectedInsertions: 布隆过滤器预期容量
+    private final double falsePositiveRate;   // falsePositiveRate: 布隆过滤器期望误判率
+
+    private volatile BloomFilter bloomFilter; // bloomFilter: 当前使用的布隆过滤器，重建时整体替换
+    private final AtomicLong insertions = new AtomicLong(); // insertions: 当前过滤器已插入的元素数
+    private final Object rebuildLock = new Object();        // rebuildLock: 重建与插入之间的互斥锁
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(); // rebuildScheduled: 已有后台重建在排队或执行
+    private final ExecutorService rebuildExecutor;           // rebuildExecutor: 执行容量触发重建的后台线程
+
+    private final Counter bloomNegative; // bloomNegative: 布隆过滤器直接放行的次数
+    private final Counter dbHit;         // dbHit: 回源确认已吊销的次数
+    private final Counter dbMiss;        // dbMiss: 回源发现是误判的次数
+
+    /**
+     * 🏗️ 构造函数注入
+     *
+     * @param revokedTokenRepository 吊销记录Repository
+     * @param appConfig 应用配置类，包含布隆过滤器参数
+     * @param meterRegistry Micrometer指标注册表
+     */
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  AppConfig appConfig,
+                                  MeterRegistry meterRegistry) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedInsertions = appConfig.getJwt().getRevocationExpectedInsertions();
+        this.falsePositiveRate = appConfig.getJwt().getRevocationFalsePositiveRate();
+        this.bloomFilter = new BloomFilter(expectedInsertions, falsePositiveRate); // 启动前先用空过滤器
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-rebuild");
+            thread.setDaemon(true); // 守护线程，不阻止JVM退出
+            return thread;
+        });
+
+        this.bloomNegative = Counter.builder("auth.revocation.checks").tag("result", "bloom_negative").register(meterRegistry);
+        this.dbHit = Counter.builder("auth.revocation.checks").tag("result", "db_hit").register(meterRegistry);
+        this.dbMiss = Counter.builder("auth.revocation.checks").tag("result", "db_miss").register(meterRegistry);
+    }
+
+    /**
+     * 🔍 判断访问令牌是否已被吊销
+     *
+     * @param jti JWT ID
+     * @return boolean: true表示已吊销
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false; // 没有jti的令牌无法单独吊销
+        }
+        if (!bloomFilter.mightContain(jti)) {
+            bloomNegative.increment();
+            return false; // 一定未被吊销，无需访问数据库
+        }
+        boolean revoked = revokedTokenRepository.existsById(jti); // 可能存在：回源确认
+        (revoked ? dbHit : dbMiss).increment();
+        return revoked;
+    }
+
+    /**
+     * ➕ 吊销访问令牌
+     *
+     * 写入吊销记录；事务提交后再加入布隆过滤器，保证重建时不会漏掉已提交的记录。
+     *
+     * @param jti JWT ID
+     * @param expiresAt 令牌原本的过期时间
+     */
+    @Transactional
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        if (jti == null) {
+            return;
+        }
+        revokedTokenRepository.save(RevokedToken.builder().jti(jti).expiresAt(expiresAt).build()); // 持久化吊销记录
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToFilter(jti); // 提交后加入过滤器
+                }
+            });
+        } else {
+            addToFilter(jti);
+        }
+    }
+
+    private void addToFilter(String jti) {
+        boolean needsRebuild;
+        synchronized (rebuildLock) {
+            bloomFilter.put(jti); // 加入当前过滤器
+            needsRebuild = insertions.incrementAndGet() > expectedInsertions; // 超过预期容量，误判率会上升
+        }
+        if (needsRebuild && rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuildInBackground); // 同一时间只排队一次重建
+        }
+    }
+
+    /**
+     * 后台重建；失败时重置计数，再插入一轮预期容量后才重试，过滤器本身仍然正确（只是误判率升高）
+     */
+    private void rebuildInBackground() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            insertions.set(0);
+            logger.error("令牌吊销过滤器重建失败，继续使用当前过滤器", e);
+        } finally {
+            rebuildScheduled.set(false);
+        }
+    }
+
+    /**
+     * 🔄 重建布隆过滤器
+     *
+     * 应用就绪时执行一次（此时表结构和初始化数据都已就绪），插入数超过预期容量时也会触发。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            LocalDateTime now = LocalDateTime.now();
+            int purged = revokedTokenRepository.deleteExpired(now);      // 清理已过期的吊销记录
+            List<String> activeJtis = revokedTokenRepository.findActiveJtis(now); // 读取仍有效的jti
+
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, activeJtis.size() * 2L), falsePositiveRate);
+            activeJtis.forEach(rebuilt::put);
+            bloomFilter = rebuilt;              // 整体替换，读线程无需加锁
+            insertions.set(activeJtis.size());
+
+            logger.info("令牌吊销过滤器已重建: active={}, purged={}", activeJtis.size(), purged);
+        }
+    }
+
+    /**
+     * 🛑 关闭后台重建线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdown();
+        try {
+            rebuildExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.security;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import com.cmliy.springweb.repository.UserRepository;  // 导入用户数据访问接口
+import org.springframework.stereotype.Component;        // 导入Spring组件注解
+import org.springframework.transaction.support.TransactionSynchronization; // 导入事务同步回调接口
+import org.springframework.transaction.support.TransactionSynchronizationManager; // 导入事务同步管理器
+
+import java.util.concurrent.ConcurrentHashMap;          // 导入线程安全的哈希表
+
+/**
+ * 🔢 用户令牌版本存储
+ *
+ * 在内存中保存每个用户当前的令牌版本（userId -> version），
+ * JwtAuthenticationFilter用它判断令牌是否已被吊销。
+ *
+ * - 首次访问某用户时从数据库读取一次版本号，之后的请求全部命中内存
+ * - UserService在禁用用户、变更角色、修改密码时递增版本，并在事务提交后写入这里
+ * - 使用merge(Math::max)保证版本只增不减，避免并发加载覆盖新版本
+ */
+@Component // @Component注解：声明这是一个Spring组件
+public class TokenVersionStore {
+
+    /**
+     * 📭 用户不存在时使用的版本号，任何令牌都不会与之匹配
+     */
+    private static final int UNKNOWN_USER_VERSION = -1;
+
+    private final UserRepository userRepository; // userRepository: 用户数据访问层接口
+
+    private final ConcurrentHashMap<Long, Integer> versions = new ConcurrentHashMap<>(); // versions: 用户ID到令牌版本的映射
+
+    /**
+     * 🏗️ 构造函数注入
+     *
+     * @param userRepository 用户Repository接口，用于首次加载版本号
+     */
+    public TokenVersionStore(UserRepository userRepository) {
+        this.userRepository = userRepository; // 注入用户Repository
+    }
+
+    /**
+     * ✅ 判断令牌版本是否为用户当前版本
+     *
+     * @param userId 用户ID
+     * @param tokenVersion 令牌中携带的版本号
+     * @return boolean: true表示令牌未被吊销
+     */
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        return currentVersion(userId) == tokenVersion; // 版本一致才有效
+    }
+
+    /**
+     * 🔍 获取用户当前令牌版本
+     *
+     * @param userId 用户ID
+     * @return int: 当前版本号，用户不存在时返回-1
+     */
+    public int currentVersion(Long userId) {
+        Integer version = versions.get(userId); // 优先读取内存
+        if (version != null) {
+            return version; // 命中内存直接返回
+        }
+        int loaded = userRepository.findTokenVersionById(userId).orElse(UNKNOWN_USER_VERSION); // 未命中时读取数据库
+        return versions.merge(userId, loaded, Math::max); // 只保留较大的版本号
+    }
+
+    /**
+     * ⬆️ 记录用户的新令牌版本
+     *
+     * 如果当前存在事务，则在事务提交后才生效，避免回滚后内存与数据库不一致。
+     *
+     * @param userId 用户ID
+     * @param newVersion 递增后的版本号
+     */
+    public void updateVersion(Long userId, int newVersion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.merge(userId, newVersion, Math::max); // 事务提交后更新内存版本
+                }
+            });
+        } else {
+            versions.merge(userId, newVersion, Math::max); // 无事务时立即更新
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.cmliy.springweb.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.dto.order.FlashSaleClaimDTO;
+import com.cmliy.springweb.dto.order.FlashSaleDTO;
+import com.cmliy.springweb.exception.ServiceBusyException;
+import com.cmliy.springweb.model.FlashSale;
+import com.cmliy.springweb.model.Order;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.FlashSaleRepository;
+import com.cmliy.springweb.repository.OrderRepository;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.repository.UserRepository;
+import com.cmliy.springweb.util.ShardedStock;
+import com.cmliy.springweb.util.TransactionHooks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ⚡ 秒杀服务 - Flash Sale Service
+ *
+ * 热门商品开启秒杀后，抢购请求不再逐个锁products行：
+ * - 开启时把可售数量拆成内存中的分片令牌（ShardedStock），抢购线程无锁CAS领取，售罄判断不访问数据库
+ * - 抢到令牌的请求进入有界队列并立即返回PENDING凭证，后台线程按批写回：
+ *   一批订单的插入、一次条件UPDATE扣减库存、flash_sales.confirmed累加在同一个事务中提交
+ * - 写回时数据库库存不足（例如商家手动减少了库存）：按到达顺序成交能满足的部分，其余标记FAILED并停止售卖
+ * - 写回失败整批回滚，令牌归还，凭证标记FAILED
+ * - 令牌领完（售罄或因库存不足停止售卖）且排队的抢购全部写回后，活动自动结束：
+ *   flash_sales标记结束并从内存移除，商品恢复普通下单，与重启恢复时的处理一致
+ *
+ * 🛡️ 崩溃恢复：
+ * - 令牌和排队中的抢购只在内存中，崩溃时丢失；它们从未扣减数据库库存，因此不会超卖也不会少卖
+ * - 重启后对仍为ACTIVE的活动，用 min(投放数 - 已成交, 商品当前库存) 重新生成令牌继续售卖
+ * - 丢失的凭证查询不到，客户端按未成交处理
+ *
+ * 秒杀进行中，普通下单接口拒绝该商品（见OrderService.createOrder），所有成交都经过这里。
+ * 成交订单与普通订单一样有支付截止时间（见OrderReservationService），超时归还的库存回到商品，不再投放到本次活动。
+ *
+ * 📊 指标：flash.sale.queue 等待写回的抢购数
+ */
+@Slf4j
+@Service
+public class FlashSaleService {
+
+    private final FlashSaleRepository flashSaleRepository;
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductChangePublisher productChangePublisher;
+    private final OrderReservationService orderReservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final AppConfig.FlashSaleConfig config;
+    private final int shards;
+
+    /**
+     * 商品ID → 进行中的活动
+     */
+    private final Map<Long, ActiveSale> activeSales = new ConcurrentHashMap<>();
+    private final BlockingQueue<Claim> queue;
+    private final Cache<String, FlashSaleClaimDTO> claims;
+    private final ScheduledExecutorService flusher;
+
+    private volatile boolean accepting = true;
+
+    /**
+     * 内存中的活动状态
+     */
+    private static final class ActiveSale {
+        private final Long saleId;
+        private final Long productId;
+        private final BigDecimal unitPrice;
+        private final int allocated;
+        private final LocalDateTime startedAt;
+        private final ShardedStock stock;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger confirmed;
+
+        private ActiveSale(FlashSale sale, Long productId, int tokens, int shards) {
+            this.saleId = sale.getId();
+            this.productId = productId;
+            this.unitPrice = sale.getUnitPrice();
+            this.allocated = sale.getAllocated();
+            this.startedAt = sale.getStartedAt();
+            this.stock = new ShardedStock(tokens, shards);
+            this.confirmed = new AtomicInteger(sale.getConfirmed());
+        }
+    }
+
+    /**
+     * 一次已领到令牌、等待写回的抢购
+     */
+    private record Claim(String claimId, Long userId, int quantity, ActiveSale sale) {
+    }
+
+    /**
+     * 一批写回的结果
+     */
+    private record BatchResult(List<Claim> accepted, List<Order> orders, List<Claim> rejected) {
+    }
+
+    public FlashSaleService(FlashSaleRepository flashSaleRepository,
+                            ProductRepository productRepository,
+                            OrderRepository orderRepository,
+                            UserRepository userRepository,
+                            ProductChangePublisher productChangePublisher,
+                            OrderReservationService orderReservationService,
+                            PlatformTransactionManager transactionManager,
+                            AppConfig appConfig,
+                            MeterRegistry meterRegistry) {
+        this.flashSaleRepository = flashSaleRepository;
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productChangePublisher = productChangePublisher;
+        this.orderReservationService = orderReservationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = appConfig.getFlashSale();
+        this.shards = config.getShards() > 0 ? config.getShards() : Runtime.getRuntime().availableProcessors() * 2;
+
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        this.claims = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(config.getClaimResultExpireSeconds()))
+                .build();
+        Gauge.builder("flash.sale.queue", queue, BlockingQueue::size)
+                .description("已抢到令牌、等待写回数据库的抢购数")
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flash-sale-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush,
+                config.getFlushIntervalMillis(), config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // ==================== ⚡ 活动管理 ====================
+
+    /**
+     * 🚀 开启秒杀
+     *
+     * @param productId 商品ID
+     * @param quantity 投放数量，null表示全部当前库存，超过库存时按库存投放
+     * @param unitPrice 秒杀单价，null表示使用当前折后价
+     * @return 活动状态
+     */
+    @Transactional
+    public FlashSaleDTO startFlashSale(Long productId, Integer quantity, BigDecimal unitPrice) {
+        if (activeSales.containsKey(productId)
+                || flashSaleRepository.findFirstByProduct_IdAndStatus(productId, FlashSale.Status.ACTIVE).isPresent()) {
+            throw new IllegalArgumentException("商品已在秒杀中: " + productId);
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("商品不存在: " + productId));
+        if (!Boolean.TRUE.equals(product.getIsAvailable())) {
+            throw new IllegalArgumentException("商品未上架: " + product.getProductName());
+        }
+
+        int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        int allocated = quantity != null ? Math.min(quantity, stock) : stock;
+        if (allocated <= 0) {
+            throw new IllegalArgumentException("商品库存不足，无法开启秒杀");
+        }
+        BigDecimal price = unitPrice != null
+                ? unitPrice.setScale(2, RoundingMode.HALF_UP)
+                : Product.discountedPrice(product.getPrice(), product.getDiscount());
+        if (price.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("秒杀单价必须大于0");
+        }
+
+        FlashSale sale = flashSaleRepository.save(FlashSale.builder()
+                .product(product)
+                .unitPrice(price)
+                .allocated(allocated)
+                .build());
+        ActiveSale active = new ActiveSale(sale, productId, allocated, shards);
+        TransactionHooks.afterCommit(() -> activeSales.put(productId, active));
+
+        log.info("⚡ 秒杀开启: productId={}, saleId={}, allocated={}, unitPrice={}, shards={}",
+                productId, sale.getId(), allocated, price, active.stock.getShards());
+        return toDTO(active);
+    }
+
+    /**
+     * ⏹️ 结束秒杀
+     *
+     * 立即停止领取令牌；已经排队的抢购仍会写回。
+     *
+     * @param productId 商品ID
+     * @return 是否有进行中的活动被结束
+     */
+    @Transactional
+    public boolean stopFlashSale(Long productId) {
+        ActiveSale active = activeSales.remove(productId);
+        if (active != null) {
+            active.stock.drain();
+            flashSaleRepository.end(active.saleId);
+            log.info("⏹️ 秒杀结束: productId={}, saleId={}, confirmed={}, pending={}",
+                    productId, active.saleId, active.confirmed.get(), active.pending.get());
+            return true;
+        }
+        return flashSaleRepository.findFirstByProduct_IdAndStatus(productId, FlashSale.Status.ACTIVE)
+                .map(sale -> flashSaleRepository.end(sale.getId()) > 0)
+                .orElse(false);
+    }
+
+    /**
+     * 🔍 商品是否正在秒杀
+     *
+     * @param productId 商品ID
+     * @return 进行中返回true
+     */
+    public boolean isActive(Long productId) {
+        return productId != null && activeSales.containsKey(productId);
+    }
+
+    /**
+     * 📊 获取进行中的活动状态
+     *
+     * @param productId 商品ID
+     * @return 活动状态，未在秒杀时为空
+     */
+    public Optional<FlashSaleDTO> getFlashSale(Long productId) {
+        return Optional.ofNullable(activeSales.get(productId)).map(this::toDTO);
+    }
+
+    // ==================== 🎫 抢购 ====================
+
+    /**
+     * 🎫 抢购
+     *
+     * 只在内存中领取令牌并入队，不访问数据库。
+     *
+     * @param userId 买家ID
+     * @param productId 商品ID
+     * @param quantity 购买数量
+     * @return PENDING状态的抢购凭证
+     * @throws IllegalArgumentException 商品未在秒杀、数量不合法或已售罄
+     * @throws ServiceBusyException 写回队列已满
+     */
+    public FlashSaleClaimDTO claim(Long userId, Long productId, Integer quantity) {
+        if (quantity == null || quantity <= 0 || quantity > config.getMaxQuantityPerClaim()) {
+            throw new IllegalArgumentException("秒杀购买数量必须在1到" + config.getMaxQuantityPerClaim() + "之间");
+        }
+        ActiveSale sale = activeSales.get(productId);
+        if (sale == null || !accepting) {
+            throw new IllegalArgumentException("商品未在秒杀中: " + productId);
+        }
+        if (!sale.stock.tryAcquire(quantity)) {
+            throw new IllegalArgumentException(sale.stock.isSoldOut() ? "秒杀商品已售罄" : "秒杀剩余数量不足 " + quantity);
+        }
+
+        Claim claim = new Claim(UUID.randomUUID().toString(), userId, quantity, sale);
+        FlashSaleClaimDTO result = FlashSaleClaimDTO.builder()
+                .claimId(claim.claimId())
+                .productId(productId)
+                .quantity(quantity)
+                .unitPrice(sale.unitPrice)
+                .status(FlashSaleClaimDTO.PENDING)
+                .userId(userId)
+                .build();
+        claims.put(claim.claimId(), result);
+        sale.pending.addAndGet(quantity);
+
+        if (!queue.offer(claim)) {
+            sale.pending.addAndGet(-quantity);
+            sale.stock.release(quantity);
+            claims.invalidate(claim.claimId());
+            throw new ServiceBusyException("秒杀排队人数过多，请稍后重试");
+        }
+        return result;
+    }
+
+    /**
+     * 🔍 查询抢购结果
+     *
+     * @param claimId 抢购凭证ID
+     * @param userId 查询者ID，只能查询自己的凭证
+     * @return 抢购结果，不存在、已过期或不属于该用户时为空
+     */
+    public Optional<FlashSaleClaimDTO> getClaim(String claimId, Long userId) {
+        return Optional.ofNullable(claims.getIfPresent(claimId))
+                .filter(claim -> claim.getUserId().equals(userId));
+    }
+
+    // ==================== 💾 批量写回 ====================
+
+    /**
+     * 💾 把队列中的抢购按活动分组写回数据库，直到队列为空
+     */
+    void flush() {
+        try {
+            List<Claim> batch = new ArrayList<>(config.getFlushBatchSize());
+            while (queue.drainTo(batch, config.getFlushBatchSize()) > 0) {
+                Map<ActiveSale, List<Claim>> bySale = new LinkedHashMap<>();
+                for (Claim claim : batch) {
+                    bySale.computeIfAbsent(claim.sale(), sale -> new ArrayList<>()).add(claim);
+                }
+                bySale.forEach(this::writeBatch);
+                batch.clear();
+            }
+        } catch (RuntimeException e) {
+            // 定时任务抛出异常后不会再被调度，这里只记录
+            log.error("秒杀批量写回异常", e);
+        }
+    }
+
+    private void writeBatch(ActiveSale sale, List<Claim> batch) {
+        int requested = batch.stream().mapToInt(Claim::quantity).sum();
+        try {
+            BatchResult result = transactionTemplate.execute(status -> persist(sale, batch, requested));
+            for (int i = 0; i < result.accepted().size(); i++) {
+                Claim claim = result.accepted().get(i);
+                updateClaim(claim, FlashSaleClaimDTO.CONFIRMED, result.orders().get(i).getId(), null);
+            }
+            int confirmed = result.accepted().stream().mapToInt(Claim::quantity).sum();
+            sale.confirmed.addAndGet(confirmed);
+            if (!result.rejected().isEmpty()) {
+                // 数据库库存已少于内存令牌，停止继续售卖
+                int drained = sale.stock.drain();
+                result.rejected().forEach(claim -> updateClaim(claim, FlashSaleClaimDTO.FAILED, null, "库存不足"));
+                log.warn("秒杀写回时数据库库存不足: productId={}, rejected={}, drainedTokens={}",
+                        sale.productId, result.rejected().size(), drained);
+            }
+        } catch (RuntimeException e) {
+            log.error("秒杀订单写回失败，归还令牌: productId={}, claims={}, quantity={}",
+                    sale.productId, batch.size(), requested, e);
+            sale.stock.release(requested);
+            batch.forEach(claim -> updateClaim(claim, FlashSaleClaimDTO.FAILED, null, "订单创建失败，请重试"));
+        } finally {
+            sale.pending.addAndGet(-requested);
+            endIfExhausted(sale);
+        }
+    }
+
+    /**
+     * 令牌已领完且没有排队中的抢购时结束活动；之后归还到商品的库存（超时取消、补货）走普通下单
+     */
+    private void endIfExhausted(ActiveSale sale) {
+        if (sale.pending.get() > 0 || sale.stock.remaining() > 0) {
+            return;
+        }
+        if (!activeSales.remove(sale.productId, sale)) {
+            return; // 已被手动结束
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> flashSaleRepository.end(sale.saleId));
+            log.info("⏹️ 秒杀已售完，自动结束: productId={}, saleId={}, confirmed={}",
+                    sale.productId, sale.saleId, sale.confirmed.get());
+        } catch (RuntimeException e) {
+            // 内存中已结束，数据库中的状态在下次启动恢复时处理
+            log.error("秒杀自动结束失败: productId={}, saleId={}", sale.productId, sale.saleId, e);
+        }
+    }
+
+    /**
+     * 在一个事务中：条件扣减库存、插入订单、累加成交数量
+     */
+    private BatchResult persist(ActiveSale sale, List<Claim> batch, int requested) {
+        List<Claim> accepted = batch;
+        List<Claim> rejected = List.of();
+        Optional<Product> decreased = productRepository.decreaseStockIfSufficient(sale.productId, requested);
+        if (decreased.isEmpty()) {
+            // 数据库库存不足以覆盖整批：按到达顺序成交能满足的部分
+            int available = productRepository.findById(sale.productId).map(Product::getStockQuantity).orElse(0);
+            accepted = new ArrayList<>();
+            rejected = new ArrayList<>();
+            int acceptedQuantity = 0;
+            for (Claim claim : batch) {
+                if (acceptedQuantity + claim.quantity() <= available) {
+                    accepted.add(claim);
+                    acceptedQuantity += claim.quantity();
+                } else {
+                    rejected.add(claim);
+                }
+            }
+            decreased = acceptedQuantity > 0
+                    ? productRepository.decreaseStockIfSufficient(sale.productId, acceptedQuantity)
+                    : Optional.empty();
+            if (decreased.isEmpty()) {
+                return new BatchResult(List.of(), List.of(), batch);
+            }
+        }
+
+        Product product = decreased.get();
+        User seller = product.getCreator();
+        LocalDateTime expiresAt = orderReservationService.newDeadline();
+        List<Order> orders = new ArrayList<>(accepted.size());
+        for (Claim claim : accepted) {
+            orders.add(Order.builder()
+                    .user(userRepository.getReferenceById(claim.userId()))
+                    .product(product)
+                    .seller(seller)
+                    .quantity(claim.quantity())
+                    .unitPrice(sale.unitPrice)
+                    .totalAmount(sale.unitPrice.multiply(BigDecimal.valueOf(claim.quantity())))
+                    .status(Order.OrderStatus.PENDING)
+                    .expiresAt(expiresAt)
+                    .build());
+        }
+        orders = orderRepository.saveAll(orders);
+        orderReservationService.track(orders);
+        flashSaleRepository.addConfirmed(sale.saleId, accepted.stream().mapToInt(Claim::quantity).sum());
+
+        productChangePublisher.changed(product);
+        return new BatchResult(accepted, orders, rejected);
+    }
+
+    // ==================== 🛡️ 启动恢复与关闭 ====================
+
+    /**
+     * 🚀 应用启动完成后恢复上次未结束的活动
+     *
+     * 已成交的部分都已随订单一起提交；令牌按 min(投放数 - 已成交, 商品当前库存) 重新生成。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverActiveSales() {
+        for (FlashSale sale : flashSaleRepository.findByStatus(FlashSale.Status.ACTIVE)) {
+            Long productId = sale.getProduct().getId();
+            int stock = productRepository.findById(productId).map(Product::getStockQuantity).orElse(0);
+            int tokens = Math.min(sale.getUnconfirmed(), stock);
+            if (tokens <= 0) {
+                transactionTemplate.executeWithoutResult(status -> flashSaleRepository.end(sale.getId()));
+                log.info("秒杀活动已无可售数量，标记结束: saleId={}, productId={}", sale.getId(), productId);
+                continue;
+            }
+            activeSales.put(productId, new ActiveSale(sale, productId, tokens, shards));
+            log.info("秒杀活动已恢复: saleId={}, productId={}, confirmed={}, tokens={}",
+                    sale.getId(), productId, sale.getConfirmed(), tokens);
+        }
+    }
+
+    /**
+     * 🛑 停止接受抢购，把队列中剩余的抢购写回后再关闭
+     */
+    @PreDestroy
+    public void shutdown() {
+        accepting = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    // ==================== 🔧 私有辅助方法 ====================
+
+    private void updateClaim(Claim claim, String status, Long orderId, String message) {
+        claims.asMap().computeIfPresent(claim.claimId(), (id, current) -> current.toBuilder()
+                .status(status)
+                .orderId(orderId)
+                .message(message)
+                .build());
+    }
+
+    private FlashSaleDTO toDTO(ActiveSale sale) {
+        return FlashSaleDTO.builder()
+                .id(sale.saleId)
+                .productId(sale.productId)
+                .unitPrice(sale.unitPrice)
+                .allocated(sale.allocated)
+                .confirmed(sale.confirmed.get())
+                .remaining(sale.stock.remaining())
+                .pending(sale.pending.get())
+                .soldOut(sale.stock.isSoldOut())
+                .startedAt(sale.startedAt)
+                .build();
+    }
+}
@@ -0,0 +1,324 @@
+package com.cmliy.springweb.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.exception.ServiceBusyException;
+import com.cmliy.springweb.model.Order;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.OrderRepository;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.repository.UserRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 📥 下单合并提交 - Order Intake Pipeline
+ *
+ * 突发下单时，每个订单单独一个事务意味着每个订单都要等一次提交（WAL刷盘）。
+ * 开启后（app-config.order-intake.enabled），下单请求进入有界队列，由一个后台线程按批处理：
+ * - 收到第一个请求后最多等待maxDelayMillis，或凑满maxBatchSize就处理
+ * - 一个事务内：按商品合并后条件扣减库存、一次查询加载买家、一条多行INSERT写入全部订单，只提交一次
+ * - 提交后逐个完成调用方的CompletableFuture；库存不足、用户不存在只让对应请求失败
+ * - 整批写入出错时逐个单独重试，一个坏请求不会拖垮同批的其他订单
+ * 提交吞吐随批大小增长，而不是随订单数线性增长。
+ *
+ * 📊 指标：
+ * - orders.intake.queue: 等待合并的下单请求数
+ * - orders.intake.batch.size: 每次提交包含的订单数
+ */
+@Slf4j
+@Service
+public class OrderIntakePipeline {
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductChangePublisher productChangePublisher;
+    private final OrderReservationService orderReservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final AppConfig.OrderIntakeConfig config;
+    private final BlockingQueue<Request> queue;
+    private final DistributionSummary batchSizes;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /**
+     * 一个等待合并的下单请求
+     */
+    private record Request(Long userId, Long productId, int quantity, CompletableFuture<Order> result) {
+    }
+
+    /**
+     * 一批的处理结果：成功的订单和被拒绝的请求
+     */
+    private record Outcome(Map<Request, Order> created, Map<Request, RuntimeException> rejected) {
+    }
+
+    public OrderIntakePipeline(ProductRepository productRepository,
+                               OrderRepository orderRepository,
+                               UserRepository userRepository,
+                               ProductChangePublisher productChangePublisher,
+                               OrderReservationService orderReservationService,
+                               PlatformTransactionManager transactionManager,
+                               AppConfig appConfig,
+                               MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productChangePublisher = productChangePublisher;
+        this.orderReservationService = orderReservationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = appConfig.getOrderIntake();
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+
+        Gauge.builder("orders.intake.queue", queue, BlockingQueue::size)
+                .description("等待合并提交的下单请求数")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("orders.intake.batch.size")
+                .description("每次提交包含的订单数")
+                .register(meterRegistry);
+
+        this.worker = new Thread(this::run, "order-intake");
+        worker.setDaemon(true);
+        if (config.isEnabled()) {
+            worker.start();
+        }
+    }
+
+    /**
+     * 🔍 是否开启合并提交
+     */
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 📥 提交下单请求
+     *
+     * 调用方应已完成商品可购买性等预检；库存以批处理中的条件扣减为准。
+     *
+     * @param userId 买家ID
+     * @param productId 商品ID
+     * @param quantity 购买数量
+     * @return 订单提交后完成的Future；库存不足等业务错误以IllegalArgumentException结束
+     */
+    public CompletableFuture<Order> submit(Long userId, Long productId, int quantity) {
+        CompletableFuture<Order> result = new CompletableFuture<>();
+        if (!running || !config.isEnabled()) {
+            result.completeExceptionally(new IllegalStateException("下单合并提交未开启"));
+        } else if (!queue.offer(new Request(userId, productId, quantity, result))) {
+            result.completeExceptionally(new ServiceBusyException("下单排队人数过多，请稍后重试"));
+        }
+        return result;
+    }
+
+    /**
+     * ⏳ 等待下单结果
+     *
+     * @param future submit()返回的Future
+     * @return 已提交的订单
+     * @throws ServiceBusyException 等待超时（订单仍可能在稍后提交）
+     */
+    public Order await(CompletableFuture<Order> future) {
+        try {
+            return future.get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceBusyException("下单处理超时，请稍后在订单列表中确认", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("下单被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("下单失败", e.getCause());
+        }
+    }
+
+    // ==================== 🔄 后台合并 ====================
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(config.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(request -> request.result().completeExceptionally(
+                        new ServiceBusyException("服务正在关闭，请稍后重试")));
+                break;
+            } catch (RuntimeException e) {
+                log.error("下单合并提交异常", e);
+                batch.forEach(request -> request.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 在maxDelayMillis内尽量凑满一批：先取走队列中已有的，再等待后续到达的
+     */
+    private void collect(List<Request> batch) throws InterruptedException {
+        int max = config.getMaxBatchSize();
+        queue.drainTo(batch, max - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxDelayMillis());
+        while (batch.size() < max) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, max - batch.size());
+        }
+    }
+
+    private void process(List<Request> batch) {
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(status -> persist(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("订单写入失败: userId={}, productId={}", batch.get(0).userId(), batch.get(0).productId(), e);
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("合并提交失败，逐个重试: batchSize={}", batch.size(), e);
+            batch.forEach(request -> process(List.of(request)));
+            return;
+        }
+
+        batchSizes.record(outcome.created().size());
+        outcome.created().forEach((request, order) -> request.result().complete(order));
+        outcome.rejected().forEach((request, error) -> request.result().completeExceptionally(error));
+    }
+
+    /**
+     * 在一个事务中扣减库存、插入整批订单
+     */
+    private Outcome persist(List<Request> batch) {
+        Map<Request, RuntimeException> rejected = new LinkedHashMap<>();
+
+        // 1. 一次查询加载本批所有买家
+        Map<Long, User> users = userRepository.findAllById(batch.stream().map(Request::userId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        // 2. 按商品合并扣减库存：整体够时一条UPDATE，不够时逐个扣减，先到先得
+        //    按商品ID升序加行锁，与购物车结算的加锁顺序一致，避免互相死锁
+        Map<Long, List<Request>> byProduct = new TreeMap<>();
+        for (Request request : batch) {
+            if (!users.containsKey(request.userId())) {
+                rejected.put(request, new IllegalArgumentException("用户不存在: " + request.userId()));
+            } else {
+                byProduct.computeIfAbsent(request.productId(), id -> new ArrayList<>()).add(request);
+            }
+        }
+
+        Map<Request, Order> created = new LinkedHashMap<>();
+        LocalDateTime expiresAt = orderReservationService.newDeadline();
+        Map<Long, Product> touched = new LinkedHashMap<>();
+        byProduct.forEach((productId, requests) -> {
+            int total = requests.stream().mapToInt(Request::quantity).sum();
+            Optional<Product> decreased = productRepository.decreaseStockIfSufficient(productId, total);
+            List<Request> accepted = requests;
+            if (decreased.isEmpty()) {
+                accepted = new ArrayList<>();
+                for (Request request : requests) {
+                    Optional<Product> single = productRepository.decreaseStockIfSufficient(productId, request.quantity());
+                    if (single.isPresent()) {
+                        decreased = single;
+                        accepted.add(request);
+                    } else {
+                        rejected.put(request, new IllegalArgumentException(
+                                "库存不足或商品已下架: 商品 " + productId + " 无法购买 " + request.quantity()));
+                    }
+                }
+            }
+            if (decreased.isEmpty()) {
+                return;
+            }
+
+            Product product = decreased.get();
+            User seller = (User) Hibernate.unproxy(product.getCreator());
+            BigDecimal unitPrice = Product.discountedPrice(product.getPrice(), product.getDiscount());
+            for (Request request : accepted) {
+                created.put(request, Order.builder()
+                        .user(users.get(request.userId()))
+                        .product(product)
+                        .seller(seller)
+                        .quantity(request.quantity())
+                        .unitPrice(unitPrice)
+                        .totalAmount(unitPrice.multiply(BigDecimal.valueOf(request.quantity())))
+                        .status(Order.OrderStatus.PENDING)
+                        .expiresAt(expiresAt)
+                        .build());
+            }
+            touched.put(productId, product);
+        });
+
+        // 3. 一条多行INSERT写入全部订单，提交后登记库存预留的超时
+        List<Order> orders = orderRepository.insertAll(new ArrayList<>(created.values()));
+        orderReservationService.track(orders);
+
+        // 4. 每个商品只刷新一次缓存和索引
+        touched.forEach((productId, product) -> {
+            productChangePublisher.changed(product);
+        });
+        return new Outcome(created, rejected);
+    }
+
+    /**
+     * 🛑 停止接收新请求，处理完队列中剩余的请求后退出
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            worker.join(config.getTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result().completeExceptionally(new ServiceBusyException("服务正在关闭，请稍后重试"));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.cmliy.springweb.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.model.Order;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.repository.OrderRepository;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.util.HierarchicalTimingWheel;
+import com.cmliy.springweb.util.TransactionHooks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ⏳ 订单库存预留服务 - Order Reservation Service
+ *
+ * 下单时库存已经扣减，待处理（PENDING）订单只是在有限时间内为买家保留这部分库存：
+ * - 创建订单时写入expires_at（当前时间 + ttlSeconds），提交后登记到内存中的分层时间轮
+ * - 后台线程每个刻度推进一次时间轮，只处理到期的订单，不按订单轮询数据库
+ * - 到期订单按批处理：一条UPDATE ... RETURNING把仍为PENDING的订单改为CANCELLED，
+ *   一条UPDATE按商品归还库存，两者在同一事务中提交
+ * - 支付、取消等状态变更后从时间轮移除；漏移除也无妨，取消语句只处理仍为PENDING且已到截止时间的订单
+ *
+ * 🛡️ 可靠性：
+ * - 时间轮只在内存中，启动时从orders表中带截止时间的PENDING订单重建，停机期间到期的订单在第一个刻度处理
+ * - 状态变更先加锁读取订单（见OrderService），与取消语句互斥，已支付的订单不会被取消
+ * - 多个实例各自重建时间轮时，同一订单的取消语句只有一个会生效，库存只归还一次
+ *
+ * 📊 指标：
+ * - orders.reservation.tracked: 时间轮中登记的订单数
+ * - orders.reservation.released: 超时取消后归还的库存数量
+ */
+@Slf4j
+@Service
+public class OrderReservationService {
+
+    /**
+     * 取消失败的订单在多少个刻度之后重试
+     */
+    private static final int RETRY_TICKS = 10;
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final ProductChangePublisher productChangePublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final AppConfig.OrderReservationConfig config;
+    private final HierarchicalTimingWheel<Long> wheel;
+    private final Counter releasedStock;
+    private final ScheduledExecutorService ticker;
+
+    public OrderReservationService(OrderRepository orderRepository,
+                                   ProductRepository productRepository,
+                                   ProductChangePublisher productChangePublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   AppConfig appConfig,
+                                   MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.productChangePublisher = productChangePublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = appConfig.getOrderReservation();
+        this.wheel = new HierarchicalTimingWheel<>(config.getTickMillis(), config.getWheelSize(),
+                config.getLevels(), System.currentTimeMillis());
+
+        Gauge.builder("orders.reservation.tracked", wheel, HierarchicalTimingWheel::size)
+                .description("时间轮中登记的待支付订单数")
+                .register(meterRegistry);
+        this.releasedStock = Counter.builder("orders.reservation.released")
+                .description("超时未支付自动取消后归还的库存数量")
+                .register(meterRegistry);
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-reservation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * ⏳ 新订单的库存预留截止时间
+     *
+     * 截断到毫秒，与时间轮的精度一致，保证时间轮不会早于数据库中的截止时间到期。
+     *
+     * @return 当前时间 + ttlSeconds；配置为不过期时返回null
+     */
+    public LocalDateTime newDeadline() {
+        if (config.getTtlSeconds() <= 0) {
+            return null;
+        }
+        return LocalDateTime.now().plusSeconds(config.getTtlSeconds()).truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    /**
+     * ➕ 登记新订单的库存预留
+     *
+     * 在事务提交后登记；没有截止时间的订单忽略。
+     *
+     * @param orders 已写入数据库（有ID）的订单
+     */
+    public void track(Collection<Order> orders) {
+        List<Order> reserved = orders.stream()
+                .filter(order -> order.getExpiresAt() != null && Order.OrderStatus.PENDING.equals(order.getStatus()))
+                .toList();
+        if (!reserved.isEmpty()) {
+            TransactionHooks.afterCommit(() -> reserved.forEach(order -> wheel.schedule(order.getId(), toMillis(order.getExpiresAt()))));
+        }
+    }
+
+    /**
+     * ➖ 订单已离开待处理状态（支付、取消），提交后从时间轮移除
+     *
+     * @param orderId 订单ID
+     */
+    public void untrack(Long orderId) {
+        TransactionHooks.afterCommit(() -> wheel.cancel(orderId));
+    }
+
+    // ==================== 🔄 到期处理 ====================
+
+    /**
+     * 推进时间轮，分批取消到期订单；一批失败时这批订单稍后重试
+     */
+    private void tick() {
+        try {
+            List<Long> due = wheel.advance(System.currentTimeMillis());
+            for (int from = 0; from < due.size(); from += config.getReleaseBatchSize()) {
+                List<Long> batch = due.subList(from, Math.min(from + config.getReleaseBatchSize(), due.size()));
+                try {
+                    release(batch);
+                } catch (RuntimeException e) {
+                    long retryAt = System.currentTimeMillis() + config.getTickMillis() * RETRY_TICKS;
+                    batch.forEach(orderId -> wheel.schedule(orderId, retryAt));
+                    log.error("超时订单取消失败，稍后重试: count={}", batch.size(), e);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 定时任务抛出异常后不会再被调度，这里只记录
+            log.error("订单超时检查异常", e);
+        }
+    }
+
+    /**
+     * 在一个事务中取消一批到期订单并归还库存
+     */
+    private void release(List<Long> orderIds) {
+        Map<Long, Integer> released = transactionTemplate.execute(status -> {
+            Map<Long, Integer> quantities = orderRepository.cancelExpired(orderIds, LocalDateTime.now());
+            if (quantities.isEmpty()) {
+                return quantities;
+            }
+            productRepository.increaseStocks(quantities);
+
+            // 归还后的商品只加载一次，刷新缓存和索引
+            for (Product product : productRepository.findAllById(quantities.keySet())) {
+                productChangePublisher.changed(product);
+            }
+            return quantities;
+        });
+
+        int restored = released.values().stream().mapToInt(Integer::intValue).sum();
+        if (restored > 0) {
+            releasedStock.increment(restored);
+            log.info("⏳ 超时未支付订单已取消: candidates={}, products={}, restoredQuantity={}",
+                    orderIds.size(), released.size(), restored);
+        }
+    }
+
+    // ==================== 🛡️ 启动重建与关闭 ====================
+
+    /**
+     * 🚀 应用启动完成后从orders表重建时间轮，然后开始按刻度检查
+     *
+     * 已经过了截止时间的订单在第一个刻度就会被取消。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<OrderRepository.PendingReservation> pending = orderRepository.findPendingReservations();
+        pending.forEach(reservation -> wheel.schedule(reservation.getId(), toMillis(reservation.getExpiresAt())));
+        log.info("⏳ 订单超时时间轮已重建: pendingOrders={}, spanHours={}",
+                pending.size(), TimeUnit.MILLISECONDS.toHours(wheel.getSpanMillis()));
+
+        ticker.scheduleWithFixedDelay(this::tick, config.getTickMillis(), config.getTickMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 🛑 停止检查；未处理的订单下次启动时重建
+     */
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== 🔧 私有辅助方法 ====================
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -2,21 +2,34 @@ package com.cmliy.springweb.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.cmliy.springweb.common.CountedPage;
+import com.cmliy.springweb.common.CursorPage;
+import com.cmliy.springweb.dto.ProductDetailDTO;
 import com.cmliy.springweb.model.Cart;
 import com.cmliy.springweb.model.Order;
 import com.cmliy.springweb.model.Product;
 import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.CartRepository;
 import com.cmliy.springweb.repository.OrderRepository;
+import com.cmliy.springweb.repository.PageQueryRepository;
 import com.cmliy.springweb.repository.ProductRepository;
 import com.cmliy.springweb.repository.UserRepository;
+import com.cmliy.springweb.util.KeysetCursor;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,12 +44,46 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class OrderService {
 
+    /**
+     * 订单游标分页固定按创建时间倒序
+     */
+    private static final Map<String, Class<?>> ORDER_CURSOR_KEYS = Map.of("createdAt", LocalDateTime.class);
+
     private final OrderRepository orderRepository;
     private final ProductService productService;
-    private final CartService cartService;
+    private final CartRepository cartRepository;
     private final UserService userService;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ProductChangePublisher productChangePublisher;
+    private final PageTotalCounter pageTotalCounter;
+    private final PageQueryRepository pageQueryRepository;
+    private final FlashSaleService flashSaleService;
+    private final OrderIntakePipeline orderIntakePipeline;
+    private final OrderReservationService orderReservationService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 🛒 下单入口（单个商品）
+     *
+     * 开启下单合并提交时，预检通过后交给OrderIntakePipeline与其他并发订单一起插入、一起提交；
+     * 未开启时等同于createOrder。本方法不开启事务，等待合并结果时不占用数据库连接。
+     *
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param quantity 购买数量
+     * @return 创建的订单
+     */
+    public Order placeOrder(Long userId, Long productId, Integer quantity) {
+        if (!orderIntakePipeline.isEnabled()) {
+            // 内部调用不经过代理，显式开启事务
+            return transactionTemplate.execute(status -> createOrder(userId, productId, quantity));
+        }
+        validateOrderRequest(userId, productId, quantity);
+        Order order = orderIntakePipeline.await(orderIntakePipeline.submit(userId, productId, quantity));
+        log.info("✅ 订单创建成功（合并提交）: orderId={}, totalAmount={}", order.getId(), order.getTotalAmount());
+        return order;
+    }
 
     /**
      * 🛒 创建单个商品订单
@@ -50,33 +97,13 @@ public class OrderService {
     public Order createOrder(Long userId, Long productId, Integer quantity) {
         log.info("🛒 创建订单: userId={}, productId={}, quantity={}", userId, productId, quantity);
 
-        // 1. 验证用户存在
-        var userDTO = userService.getUserById(userId);
-        if (userDTO == null) {
-            throw new IllegalArgumentException("用户不存在: " + userId);
-        }
-
-        // 2. 获取商品信息
-        var productDTO = productService.getProductById(productId).orElse(null);
-        if (productDTO == null) {
-            throw new IllegalArgumentException("商品不存在: " + productId);
-        }
-
-        // 3. 验证商品可购买性
-        if (!productDTO.getIsAvailable() || productDTO.getStockQuantity() <= 0) {
-            throw new IllegalArgumentException("商品不可购买: " + productDTO.getProductName());
-        }
-
-        // 4. 验证库存充足
-        if (productDTO.getStockQuantity() < quantity) {
-            throw new IllegalArgumentException("库存不足: 需要 " + quantity + "，库存 " + productDTO.getStockQuantity());
-        }
+        // 1~4. 验证用户、商品可购买性和库存（基于缓存的预检）
+        validateOrderRequest(userId, productId, quantity);
 
-        // 5. 获取商品实体（用于库存扣减）
-        Product product = productRepository.findById(productId).orElse(null);
-        if (product == null) {
-            throw new IllegalArgumentException("商品信息不存在");
-        }
+        // 5. 原子扣减库存：单条条件UPDATE，商品已下架或库存不足时不做任何修改，并发下单不会超卖
+        //    第2~4步基于缓存的快速失败只是预检，以这里的结果为准
+        Product product = productRepository.decreaseStockIfSufficient(productId, quantity)
+                .orElseThrow(() -> new IllegalArgumentException("库存不足或商品已下架: 商品 " + productId + " 无法购买 " + quantity));
 
         // 6. 获取商家信息
         User seller = product.getCreator();
@@ -84,14 +111,11 @@ public class OrderService {
             throw new IllegalArgumentException("商品商家信息不存在");
         }
 
-        // 7. 获取完整用户实体 (修复数据一致性问题 - 不再使用手动构建的User对象)
-        User user = userRepository.findById(userId).orElse(null);
-        if (user == null) {
-            throw new IllegalArgumentException("用户信息不存在");
-        }
+        // 7. 获取用户实体引用（第1步已通过用户缓存确认存在，这里不再重复查询）
+        User user = userRepository.getReferenceById(userId);
 
-        // 8. 计算价格（使用商品当前价格作为快照）
-        BigDecimal unitPrice = calculateDiscountedPrice(productDTO.getPrice(), productDTO.getDiscount());
+        // 8. 计算价格（使用扣减时刷新的商品行作为快照，不使用预检读到的缓存）
+        BigDecimal unitPrice = calculateDiscountedPrice(product.getPrice(), product.getDiscount());
         BigDecimal totalAmount = unitPrice.multiply(BigDecimal.valueOf(quantity));
 
         // 9. 创建订单
@@ -103,44 +127,145 @@ public class OrderService {
                 .unitPrice(unitPrice)
                 .totalAmount(totalAmount)
                 .status(Order.OrderStatus.PENDING)
+                .expiresAt(orderReservationService.newDeadline())
                 .build();
 
-        // 10. 保存订单
+        // 10. 保存订单，提交后登记库存预留的超时
         order = orderRepository.save(order);
+        orderReservationService.track(List.of(order));
 
-        // 11. 扣减库存
-        boolean stockDecreased = product.decreaseStock(quantity);
-        if (!stockDecreased) {
-            throw new RuntimeException("库存扣减失败，请重试");
-        }
+        // 11. 库存已在第5步扣减，刷新缓存和索引
+        productChangePublisher.changed(product);
 
         log.info("✅ 订单创建成功: orderId={}, totalAmount={}", order.getId(), order.getTotalAmount());
         return order;
     }
 
+    /**
+     * 🔍 下单预检：用户存在、商品未在秒杀、商品可购买、库存充足
+     *
+     * 读取的是用户和商品详情缓存，只用于快速失败；库存以条件扣减的结果为准。
+     *
+     * @return 商品详情（价格快照来源）
+     */
+    private ProductDetailDTO validateOrderRequest(Long userId, Long productId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("购买数量必须大于0");
+        }
+
+        // 1. 验证用户存在
+        var userDTO = userService.getUserById(userId);
+        if (userDTO == null) {
+            throw new IllegalArgumentException("用户不存在: " + userId);
+        }
+
+        // 秒杀中的商品只能通过秒杀接口抢购，避免与内存令牌同时扣减同一行库存
+        if (flashSaleService.isActive(productId)) {
+            throw new IllegalArgumentException("商品正在秒杀，请通过秒杀接口抢购: " + productId);
+        }
+
+        // 2. 获取商品信息
+        var productDTO = productService.getProductById(productId).orElse(null);
+        if (productDTO == null) {
+            throw new IllegalArgumentException("商品不存在: " + productId);
+        }
+
+        // 3. 验证商品可购买性
+        if (!productDTO.getIsAvailable() || productDTO.getStockQuantity() <= 0) {
+            throw new IllegalArgumentException("商品不可购买: " + productDTO.getProductName());
+        }
+
+        // 4. 验证库存充足
+        if (productDTO.getStockQuantity() < quantity) {
+            throw new IllegalArgumentException("库存不足: 需要 " + quantity + "，库存 " + productDTO.getStockQuantity());
+        }
+        return productDTO;
+    }
+
     /**
      * 🛒 从购物车创建订单（为每个商品创建独立订单）
      *
+     * 一次结算的查询数与购物车行数无关：
+     * 1. 加锁读取购物车（同时得到买家），同一购物车的并发结算排队执行
+     * 2. 一条IN查询按ID升序加锁读取全部商品，多个结算之间加锁顺序一致，不会死锁
+     * 3. 在内存中校验可购买性、库存并计算价格，所有问题一次性返回
+     * 4. 一条多行INSERT写入全部订单，一条UPDATE扣减全部库存
+     * 5. 在同一事务中清空购物车，任何一步失败都整体回滚
+     *
      * @param userId 用户ID
-     * @return 创建的订单列表
+     * @return 创建的订单列表（按商品ID升序）
      */
     @Transactional
     public List<Order> createOrdersFromCart(Long userId) {
         log.info("🛒 从购物车创建订单: userId={}", userId);
 
-        // 1. 获取用户购物车
-        var cartResponse = cartService.getCartByUserId(userId);
-        if (cartResponse.getProductQuantities() == null || cartResponse.getProductQuantities().isEmpty()) {
+        // 1. 加锁读取用户购物车
+        Cart cart = cartRepository.findByUserIdForUpdate(userId)
+                .orElseThrow(() -> new IllegalArgumentException("购物车为空"));
+        Map<Long, Integer> quantities = new TreeMap<>();
+        cart.getCartData().forEach((productId, quantity) -> {
+            if (quantity != null && quantity > 0) {
+                quantities.put(productId, quantity);
+            }
+        });
+        if (quantities.isEmpty()) {
             throw new IllegalArgumentException("购物车为空");
         }
+        User user = cart.getUser();
+
+        // 2. 按ID升序加锁读取全部商品
+        Map<Long, Product> products = productRepository.lockAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // 3. 内存中校验并定价
+        LocalDateTime expiresAt = orderReservationService.newDeadline();
+        List<String> problems = new ArrayList<>();
+        List<Order> orders = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product == null) {
+                problems.add("商品不存在: " + productId);
+            } else if (flashSaleService.isActive(productId)) {
+                problems.add("商品正在秒杀，请通过秒杀接口抢购: " + product.getProductName());
+            } else if (!Boolean.TRUE.equals(product.getIsAvailable())) {
+                problems.add("商品不可购买: " + product.getProductName());
+            } else if (product.getStockQuantity() < quantity) {
+                problems.add("库存不足: " + product.getProductName() + " 需要 " + quantity + "，库存 " + product.getStockQuantity());
+            } else {
+                BigDecimal unitPrice = calculateDiscountedPrice(product.getPrice(), product.getDiscount());
+                orders.add(Order.builder()
+                        .user(user)
+                        .product(product)
+                        .seller(product.getCreator())
+                        .quantity(quantity)
+                        .unitPrice(unitPrice)
+                        .totalAmount(unitPrice.multiply(BigDecimal.valueOf(quantity)))
+                        .status(Order.OrderStatus.PENDING)
+                        .expiresAt(expiresAt)
+                        .build());
+            }
+        });
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(String.join("；", problems));
+        }
 
-        // 2. 遍历购物车商品，为每个商品创建订单
-        List<Order> orders = cartResponse.getProductQuantities().entrySet().stream()
-                .map(entry -> createOrder(userId, Long.valueOf(entry.getKey()), entry.getValue()))
-                .toList();
+        // 4. 一条语句扣减全部库存（行已加锁，校验通过后不会失败），再批量写入订单
+        if (productRepository.decreaseStocks(quantities) != quantities.size()) {
+            throw new IllegalStateException("库存扣减失败，请重试");
+        }
+        orderRepository.insertAll(orders);
+        orderReservationService.track(orders);
+
+        // 5. 同一事务中清空购物车
+        cart.clearCart();
 
-        // 3. 清空购物车
-        cartService.clearCart(userId);
+        // 商品实体是只读的，同步内存中的库存和销量后用于刷新缓存和索引
+        quantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            product.setStockQuantity(product.getStockQuantity() - quantity);
+            product.setSalesCount(product.getSalesCount() + quantity);
+            productChangePublisher.changed(product);
+        });
 
         log.info("✅ 从购物车创建订单成功: userId={}, orderCount={}", userId, orders.size());
         return orders;
@@ -162,6 +287,14 @@ public class OrderService {
                 .orElseThrow(() -> new IllegalArgumentException("订单不存在: " + orderId));
     }
 
+    /**
+     * 🔒 加锁读取订单（如果不存在则抛出异常），状态变更前使用
+     */
+    private Order getRequiredOrderForUpdate(Long orderId) {
+        return orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("订单不存在: " + orderId));
+    }
+
     /**
      * 📋 获取用户的所有订单
      */
@@ -190,6 +323,75 @@ public class OrderService {
         return orderRepository.findBySellerIdOrderByCreatedAtDesc(sellerId, pageable);
     }
 
+    /**
+     * 📋 分页获取商家订单，可选择是否计算精确总数
+     *
+     * 当前页只查询一次，总数由PageTotalCounter决定：能从当前页推断时不计数，
+     * exactTotal=false时使用按 (商家, 状态) 短时缓存的计数。
+     *
+     * @param sellerId 商家ID
+     * @param status 订单状态（可选）
+     * @param pageable 分页和排序参数
+     * @param exactTotal 是否要求精确总数
+     */
+    public CountedPage<Order> getSellerOrders(Long sellerId, String status, Pageable pageable, boolean exactTotal) {
+        String orderStatus = status != null && !status.trim().isEmpty() ? status : null;
+
+        Specification<Order> spec = (root, query, cb) -> cb.equal(root.get("seller").get("id"), sellerId);
+        if (orderStatus != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), orderStatus));
+        }
+
+        Specification<Order> filter = spec;
+        List<Order> content = pageQueryRepository.findContent(Order.class, filter, pageable);
+        return pageTotalCounter.toPage(content, pageable, exactTotal,
+                "orders|seller=" + sellerId + "|status=" + orderStatus,
+                () -> orderRepository.count(filter), null);
+    }
+
+    /**
+     * 📜 游标分页获取用户订单（按创建时间倒序，不执行COUNT查询）
+     *
+     * @param userId 用户ID
+     * @param status 订单状态（可选）
+     * @param cursor 上一页返回的游标，第一页为null
+     * @param size 每页大小
+     */
+    public CursorPage<Order> scrollUserOrders(Long userId, String status, String cursor, int size) {
+        return scrollOrders("user", userId, status, cursor, size);
+    }
+
+    /**
+     * 📜 游标分页获取商家订单（按创建时间倒序，不执行COUNT查询）
+     *
+     * @param sellerId 商家ID
+     * @param status 订单状态（可选）
+     * @param cursor 上一页返回的游标，第一页为null
+     * @param size 每页大小
+     */
+    public CursorPage<Order> scrollSellerOrders(Long sellerId, String status, String cursor, int size) {
+        return scrollOrders("seller", sellerId, status, cursor, size);
+    }
+
+    /**
+     * 📜 按 (created_at, id) 键集翻页，由 (user_id/seller_id, created_at, id) 复合索引支撑
+     */
+    private CursorPage<Order> scrollOrders(String ownerField, Long ownerId, String status, String cursor, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("每页大小必须大于0");
+        }
+        KeysetCursor position = KeysetCursor.resolve(cursor, "createdAt", "DESC", ORDER_CURSOR_KEYS);
+
+        Specification<Order> spec = position.<Order>after()
+                .and((root, query, cb) -> cb.equal(root.get(ownerField).get("id"), ownerId));
+        if (status != null && !status.trim().isEmpty()) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), status));
+        }
+
+        List<Order> rows = orderRepository.findBy(spec, q -> q.sortBy(position.sort()).limit(size + 1).all());
+        return CursorPage.fromRows(rows, size, order -> position.next(order.getCreatedAt(), order.getId()), order -> order);
+    }
+
     /**
      * 📊 根据状态获取用户订单
      */
@@ -220,20 +422,35 @@ public class OrderService {
 
     /**
      * 🔄 更新订单状态
+     *
+     * 加锁读取订单，与超时自动取消互斥；库存预留已过期的待处理订单只能取消。
+     * 转为已取消时与cancelOrder一样归还库存。
      */
     @Transactional
     public Order updateOrderStatus(Long orderId, String newStatus, Long operatorId) {
-        Order order = getRequiredOrderById(orderId);
+        Order order = getRequiredOrderForUpdate(orderId);
 
         // 验证状态转换是否合法
         validateStatusTransition(order.getStatus(), newStatus);
+        if (order.isReservationExpired(LocalDateTime.now()) && !Order.OrderStatus.CANCELLED.equals(newStatus)) {
+            throw new IllegalArgumentException("订单已超时未支付，只能取消: " + orderId);
+        }
+        String oldStatus = order.getStatus();
+        if (Order.OrderStatus.PENDING.equals(oldStatus) && !Order.OrderStatus.PENDING.equals(newStatus)) {
+            orderReservationService.untrack(orderId);
+        }
 
         // 更新状态
         order.updateStatus(newStatus);
         Order updatedOrder = orderRepository.save(order);
 
+        // 转为已取消：归还库存
+        if (Order.OrderStatus.CANCELLED.equals(newStatus) && !Order.OrderStatus.CANCELLED.equals(oldStatus)) {
+            restoreStock(order);
+        }
+
         log.info("🔄 订单状态更新: orderId={}, oldStatus={}, newStatus={}, operatorId={}",
-                orderId, order.getStatus(), newStatus, operatorId);
+                orderId, oldStatus, newStatus, operatorId);
 
         return updatedOrder;
     }
@@ -243,7 +460,7 @@ public class OrderService {
      */
     @Transactional
     public Order cancelOrder(Long orderId, Long userId) {
-        Order order = getRequiredOrderById(orderId);
+        Order order = getRequiredOrderForUpdate(orderId);
 
         // 验证订单归属
         if (!order.belongsToUser(userId)) {
@@ -258,10 +475,10 @@ public class OrderService {
         // 更新订单状态
         order.updateStatus(Order.OrderStatus.CANCELLED);
         Order updatedOrder = orderRepository.save(order);
+        orderReservationService.untrack(orderId);
 
         // 恢复库存
-        Product product = order.getProduct();
-        product.increaseStock(order.getQuantity());
+        restoreStock(order);
 
         log.info("❌ 订单取消成功: orderId={}, userId={}, restoredQuantity={}",
                 orderId, userId, order.getQuantity());
@@ -269,6 +486,15 @@ public class OrderService {
         return updatedOrder;
     }
 
+    /**
+     * ↩️ 归还已取消订单的库存，刷新缓存和索引
+     */
+    private void restoreStock(Order order) {
+        Product product = productRepository.increaseStock(order.getProduct().getId(), order.getQuantity())
+                .orElseThrow(() -> new IllegalArgumentException("商品信息不存在"));
+        productChangePublisher.changed(product);
+    }
+
     /**
      * 📊 获取订单统计信息
      */
@@ -302,16 +528,19 @@ public class OrderService {
             Order.OrderStatus.CANCELLED.equals(newStatus)) {
             throw new IllegalArgumentException("已完成的订单不能取消");
         }
+
+        // 已取消的订单库存已归还，不能再进入其他状态
+        if (Order.OrderStatus.CANCELLED.equals(currentStatus) &&
+            !Order.OrderStatus.CANCELLED.equals(newStatus)) {
+            throw new IllegalArgumentException("已取消的订单不能再变更状态");
+        }
     }
 
     /**
-     * 💰 计算折扣价格
+     * 💰 计算折扣价格（与商品effective_price列同一公式）
      */
     private BigDecimal calculateDiscountedPrice(BigDecimal price, BigDecimal discount) {
-        if (discount != null && discount.compareTo(BigDecimal.ZERO) > 0) {
-            return price.multiply(BigDecimal.ONE.subtract(discount.divide(BigDecimal.valueOf(100))));
-        }
-        return price;
+        return Product.discountedPrice(price, discount);
     }
 
     /**
@@ -0,0 +1,94 @@
+package com.cmliy.springweb.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.cmliy.springweb.common.CountedPage;
+import com.cmliy.springweb.config.AppConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🔢 分页总数计算 - Page Total Counter
+ *
+ * 决定分页结果的totalElements从哪里来，按代价从低到高：
+ * 1. 能从当前页推断（第一页不满、或最后一页）时直接推断，不查询，结果精确
+ * 2. 调用方要求精确总数时执行COUNT，并顺便刷新计数缓存
+ * 3. 无过滤条件的列表使用planner统计的估算行数（pg_class.reltuples）
+ * 4. 带过滤条件的列表按规范化后的过滤条件缓存精确COUNT，TTL很短
+ *
+ * 估算值和缓存值都标记为totalExact=false；估算值小于已经看到的行数时，以已看到的行数为下限。
+ * 计数缓存不做写失效，只依赖TTL，可能短时间内落后于最新数据。
+ */
+@Slf4j
+@Component
+public class PageTotalCounter {
+
+    private final Cache<String, Long> counts;
+
+    public PageTotalCounter(AppConfig appConfig, MeterRegistry meterRegistry) {
+        AppConfig.PageCountConfig config = appConfig.getPageCount();
+
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(config.getExpireAfterWriteSeconds()))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, counts, "pages.count");
+    }
+
+    /**
+     * 🏗️ 用当前页数据构建带总数的分页结果
+     *
+     * @param content 当前页数据（已按pageable查询，不含COUNT）
+     * @param pageable 分页参数
+     * @param exactTotal 是否要求精确总数
+     * @param countKey 规范化后的过滤条件，作为计数缓存的key
+     * @param exactCount 精确COUNT查询
+     * @param estimate 估算总数的查询，带过滤条件的列表传null
+     * @return 带总数精度标记的分页结果
+     */
+    public <T> CountedPage<T> toPage(List<T> content, Pageable pageable, boolean exactTotal, String countKey,
+                                     LongSupplier exactCount, LongSupplier estimate) {
+        long seen = pageable.isPaged() ? pageable.getOffset() + content.size() : content.size();
+
+        // 1. 第一页不满，或者翻到了最后一页：总数就是已经看到的行数
+        if (pageable.isUnpaged() || ((!content.isEmpty() || pageable.getOffset() == 0)
+                && content.size() < pageable.getPageSize())) {
+            return new CountedPage<>(content, pageable, seen, true);
+        }
+
+        // 2. 要求精确总数
+        if (exactTotal) {
+            long total = exactCount.getAsLong();
+            counts.put(countKey, total);
+            return new CountedPage<>(content, pageable, total, true);
+        }
+
+        // 3. 无过滤条件：使用planner估算；没有统计信息时退回到缓存计数
+        if (estimate != null) {
+            long estimated = estimate.getAsLong();
+            if (estimated >= 0) {
+                return new CountedPage<>(content, pageable, Math.max(estimated, seen), false);
+            }
+            log.debug("表尚无统计信息，改用缓存计数: key={}", countKey);
+        }
+
+        // 4. 按过滤条件缓存的精确计数，本次请求刚执行COUNT时仍视为精确
+        boolean[] counted = {false};
+        long total = counts.get(countKey, key -> {
+            counted[0] = true;
+            return exactCount.getAsLong();
+        });
+        return new CountedPage<>(content, pageable, Math.max(total, seen), counted[0] && total >= seen);
+    }
+}
@@ -0,0 +1,126 @@
+package com.cmliy.springweb.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.exception.ServiceBusyException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🔒 密码哈希服务 - Password Hashing Service
+ *
+ * 把BCrypt计算（登录校验、注册、修改密码）放到独立的有界线程池中执行：
+ * - 线程数默认等于CPU核数，队列容量有限，队列满时立即拒绝并返回503
+ * - 登录风暴只会占满这个线程池，不会耗尽Tomcat的请求线程，商品等接口不受影响
+ *
+ * 📊 指标：
+ * - executor.*{name=password.hashing}: 线程池活跃数、队列深度、剩余容量、完成任务数
+ * - password.hashing.rejected: 因队列满或等待超时被拒绝的次数
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, AppConfig appConfig, MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+
+        AppConfig.PasswordHashingConfig config = appConfig.getPasswordHashing();
+        int threads = config.getThreads() > 0 ? config.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.timeoutMillis = config.getTimeoutMillis();
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "password.hashing");
+        this.rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("因线程池已满或等待超时而被拒绝的密码哈希请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 🔐 加密明文密码
+     *
+     * @param rawPassword 明文密码
+     * @return BCrypt哈希值
+     * @throws ServiceBusyException 当哈希线程池已满或等待超时时抛出
+     */
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * ✅ 校验明文密码与哈希值是否匹配
+     *
+     * @param rawPassword 明文密码
+     * @param encodedPassword 数据库中的哈希值
+     * @return 是否匹配
+     * @throws ServiceBusyException 当哈希线程池已满或等待超时时抛出
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("密码哈希线程池已满，拒绝请求: queued={}", executor.getQueue().size());
+            throw new ServiceBusyException("系统繁忙，请稍后重试", e);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceBusyException("系统繁忙，请稍后重试", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("密码处理被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("密码处理失败", cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
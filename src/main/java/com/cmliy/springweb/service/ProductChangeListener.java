@@ -0,0 +1,29 @@
+package com.cmliy.springweb.service;
+
+import com.cmliy.springweb.model.Product;
+
+/**
+ * 📣 商品变更监听器 - Product Change Listener
+ *
+ * 由商品数据派生的读模型（详情缓存、搜索索引、联想索引、分面位图）实现本接口，
+ * 通过ProductChangePublisher统一接收商品写入通知；新增读模型只需实现本接口，不必修改各个写路径。
+ *
+ * 通知在写入所在的事务中发出：实现类在调用时根据实体当前状态生成自己的数据，
+ * 需要在事务提交后才生效的修改自行登记提交回调（见TransactionHooks）。
+ */
+public interface ProductChangeListener {
+
+    /**
+     * 📝 商品已新增或修改（包括库存、销量、上下架）
+     *
+     * @param product 写入后的商品实体
+     */
+    void onProductChanged(Product product);
+
+    /**
+     * 🗑️ 商品已删除
+     *
+     * @param productId 商品ID
+     */
+    void onProductRemoved(Long productId);
+}
@@ -0,0 +1,50 @@
+package com.cmliy.springweb.service;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.cmliy.springweb.model.Product;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 📣 商品变更通知 - Product Change Publisher
+ *
+ * 所有修改商品的写路径（商品管理、下单、取消、秒杀写回、超时释放）在写入后调用这里，
+ * 由它通知容器中的全部ProductChangeListener。
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductChangePublisher {
+
+    private final List<ProductChangeListener> listeners;
+
+    /**
+     * 📝 通知商品已新增或修改
+     *
+     * @param product 写入后的商品实体
+     */
+    public void changed(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        for (ProductChangeListener listener : listeners) {
+            listener.onProductChanged(product);
+        }
+    }
+
+    /**
+     * 🗑️ 通知商品已删除
+     *
+     * @param productId 商品ID
+     */
+    public void removed(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        for (ProductChangeListener listener : listeners) {
+            listener.onProductRemoved(productId);
+        }
+    }
+}
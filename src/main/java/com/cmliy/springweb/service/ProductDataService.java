@@ -1,13 +1,16 @@
 package com.cmliy.springweb.service;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.stereotype.Service;
 
+import com.cmliy.springweb.converter.ProductDataCodec;
 import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.model.ProductData;
+import com.cmliy.springweb.repository.ProductRepository;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -17,16 +20,27 @@ import lombok.extern.slf4j.Slf4j;
  * 专门处理Product实体的动态数据操作，分离业务逻辑与实体模型
  * 避免Hibernate脏检查机制的复杂性问题，提供安全的数据更新方式
  *
+ * 两类更新方式：
+ * - 实体方式（参数为Product）：新建/整体更新商品时使用，随实体一起保存
+ * - 局部方式（参数为商品ID）：只改写JSONB的一个子路径（jsonb_set / jsonb - key），
+ *   不加载实体、不重写整个文档，需在事务中调用
+ *
 
  */
 @Slf4j
 @Service
 public class ProductDataService extends BaseService {
 
+    private final ProductRepository productRepository;
+
+    public ProductDataService(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
     /**
      * 🖼️ 安全更新商品图片数据
      *
-     * 以不触发Hibernate脏检查的方式更新图片相关数据
+     * ProductData是不可变值对象，生成替换了主图的新实例后整体设置回实体
      * 确保productData字段的修改是可控和可预测的
      *
      * @param product 商品实体
@@ -34,20 +48,7 @@ public class ProductDataService extends BaseService {
      */
     public void updateProductImageData(Product product, String mainImageUrl) {
         executeWithLog("更新商品图片数据", () -> {
-            // 获取当前的productData，如果为null则初始化
-            Map<String, Object> currentData = product.getProductData();
-            if (currentData == null) {
-                currentData = new HashMap<>();
-                product.setProductData(currentData);
-            }
-
-            // 安全地更新image_data结构
-            @SuppressWarnings("unchecked")
-            Map<String, Object> imageData = (Map<String, Object>)
-                    currentData.computeIfAbsent("image_data", k -> new HashMap<>());
-
-            String oldMainImage = (String) imageData.get("main_image");
-            imageData.put("main_image", mainImageUrl);
+            product.setProductData(product.getProductData().withMainImage(mainImageUrl));
 
             return null; // void方法返回null
         }, product.getId(), mainImageUrl);
@@ -63,52 +64,116 @@ public class ProductDataService extends BaseService {
                 return null;
             }
 
-            // 🔧 关键修复：验证和转换规格数据
-            Map<String, List<String>> validatedSpecifications = new HashMap<>();
+            Map<String, List<String>> validatedSpecifications = validateSpecifications(specifications);
+            if (validatedSpecifications.isEmpty()) {
+                log.warn("没有有效的规格数据，跳过更新");
+                return null;
+            }
 
-            for (Map.Entry<String, Object> entry : specifications.entrySet()) {
-                String specName = entry.getKey();
-                Object specValues = entry.getValue();
+            // 🔧 关键修复：使用setter方法整体替换，确保JSONB正确处理
+            product.setProductData(product.getProductData().withSpecifications(validatedSpecifications));
 
-                // 验证规格名称
-                if (specName == null || specName.trim().isEmpty()) {
-                    log.warn("跳过空的规格名称");
-                    continue;
-                }
+            return null; // void方法返回null
+        }, product.getId(), specifications);
+    }
 
-                // 转换规格值为字符串列表
-                List<String> stringValues = convertToStringList(specValues);
-                if (stringValues == null || stringValues.isEmpty()) {
-                    log.warn("跳过空的规格值: specName={}", specName);
-                    continue;
-                }
+    // ==================== 🧩 局部更新（不加载实体） ====================
 
-                validatedSpecifications.put(specName.trim(), stringValues);
-            }
+    /**
+     * 🖼️ 局部更新主图片
+     *
+     * @param productId 商品ID
+     * @param creatorId 商品创建者ID
+     * @param mainImageUrl 主图片URL，null表示清除
+     * @return 商品存在且属于该用户时返回true
+     */
+    public boolean updateMainImage(Long productId, Long creatorId, String mainImageUrl) {
+        int updated = mainImageUrl != null
+                ? productRepository.updateMainImage(productId, creatorId, mainImageUrl)
+                : productRepository.removeMainImage(productId, creatorId);
+        log.debug("局部更新商品主图: productId={}, mainImage={}, updated={}", productId, mainImageUrl, updated);
+        return updated > 0;
+    }
 
-            if (validatedSpecifications.isEmpty()) {
-                log.warn("没有有效的规格数据，跳过更新");
-                return null;
-            }
+    /**
+     * 🖼️ 局部追加图库图片
+     *
+     * @param productId 商品ID
+     * @param creatorId 商品创建者ID
+     * @param imageUrl 图片URL
+     * @return 商品存在且属于该用户时返回true
+     */
+    public boolean addGalleryImage(Long productId, Long creatorId, String imageUrl) {
+        int updated = productRepository.appendGalleryImage(productId, creatorId, imageUrl);
+        log.debug("局部追加图库图片: productId={}, imageUrl={}, updated={}", productId, imageUrl, updated);
+        return updated > 0;
+    }
 
-            // 🔧 关键修复：安全地更新JSONB数据
-            Map<String, Object> currentData = product.getProductData();
-            if (currentData == null) {
-                currentData = new HashMap<>();
-            }
+    /**
+     * 🗑️ 局部移除图库图片
+     *
+     * @param productId 商品ID
+     * @param creatorId 商品创建者ID
+     * @param imageUrl 图片URL
+     * @return 图库中存在该图片并已移除时返回true
+     */
+    public boolean removeGalleryImage(Long productId, Long creatorId, String imageUrl) {
+        int updated = productRepository.removeGalleryImage(productId, creatorId, imageUrl);
+        log.debug("局部移除图库图片: productId={}, imageUrl={}, updated={}", productId, imageUrl, updated);
+        return updated > 0;
+    }
 
-            // 备份旧数据
-            @SuppressWarnings("unchecked")
-            Map<String, Object> oldSpecifications = (Map<String, Object>) currentData.get("specifications");
+    /**
+     * 📋 局部替换规格，没有有效规格时清除规格
+     *
+     * @param productId 商品ID
+     * @param creatorId 商品创建者ID
+     * @param specifications 规格数据（值可以是字符串、数字或列表）
+     * @return 商品存在且属于该用户时返回true
+     */
+    public boolean replaceSpecifications(Long productId, Long creatorId, Map<String, Object> specifications) {
+        Map<String, List<String>> validatedSpecifications = validateSpecifications(specifications);
+        int updated = validatedSpecifications.isEmpty()
+                ? productRepository.removeSpecifications(productId, creatorId)
+                : productRepository.updateSpecifications(productId, creatorId,
+                        ProductDataCodec.writeSpecifications(validatedSpecifications));
+        log.debug("局部更新商品规格: productId={}, specifications={}, updated={}",
+                productId, validatedSpecifications, updated);
+        return updated > 0;
+    }
+
+    // ==================== 🔧 私有辅助方法 ====================
+
+    /**
+     * 🔧 验证和转换规格数据：跳过空规格名和空值，值统一转为字符串列表
+     */
+    private Map<String, List<String>> validateSpecifications(Map<String, Object> specifications) {
+        Map<String, List<String>> validatedSpecifications = new LinkedHashMap<>();
+        if (specifications == null) {
+            return validatedSpecifications;
+        }
 
-            // 更新规格数据
-            currentData.put("specifications", new HashMap<>(validatedSpecifications));
+        for (Map.Entry<String, Object> entry : specifications.entrySet()) {
+            String specName = entry.getKey();
+            Object specValues = entry.getValue();
 
-            // 🔧 关键修复：使用setter方法确保JSONB正确处理
-            product.setProductData(currentData);
+            // 验证规格名称
+            if (specName == null || specName.trim().isEmpty()) {
+                log.warn("跳过空的规格名称");
+                continue;
+            }
 
-            return null; // void方法返回null
-        }, product.getId(), specifications);
+            // 转换规格值为字符串列表
+            List<String> stringValues = convertToStringList(specValues);
+            if (stringValues == null || stringValues.isEmpty()) {
+                log.warn("跳过空的规格值: specName={}", specName);
+                continue;
+            }
+
+            validatedSpecifications.put(specName.trim(), stringValues);
+        }
+
+        return validatedSpecifications;
     }
 
     /**
@@ -170,50 +235,33 @@ public class ProductDataService extends BaseService {
     public void clearSpecifications(Product product) {
         log.info("🔧 [ProductDataService] 开始清除商品规格数据: productId={}", product.getId());
 
-        // 获取当前的productData
-        Map<String, Object> currentData = product.getProductData();
-        if (currentData != null) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> oldSpecifications = (Map<String, Object>) currentData.get("specifications");
-            currentData.remove("specifications");
+        Map<String, List<String>> oldSpecifications = product.getAllSpecifications();
+        if (!oldSpecifications.isEmpty()) {
+            product.setProductData(product.getProductData().withSpecifications(Map.of()));
             log.info("🔧 [ProductDataService] 规格数据已清除: productId={}, oldSpecifications={}",
                     product.getId(), oldSpecifications);
         } else {
-            log.info("🔧 [ProductDataService] productData为null，无需清除规格");
+            log.info("🔧 [ProductDataService] 商品没有规格数据，无需清除");
         }
     }
 
     /**
-     * 🔍 获取商品规格数据的安全副本
+     * 🔍 获取商品规格数据
      *
      * @param product 商品实体
-     * @return 规格数据的不可变副本
+     * @return 规格数据的只读视图（ProductData不可变，无需复制）
      */
-    public Map<String, Object> getSpecificationsCopy(Product product) {
-        Map<String, Object> currentData = product.getProductData();
-        if (currentData == null) {
-            return Map.of();
-        }
-
-        @SuppressWarnings("unchecked")
-        Map<String, Object> specifications = (Map<String, Object>) currentData.get("specifications");
-        return specifications != null ? Map.copyOf(specifications) : Map.of();
+    public Map<String, List<String>> getSpecificationsCopy(Product product) {
+        return product.getAllSpecifications();
     }
 
     /**
-     * 🔍 获取商品图片数据的安全副本
+     * 🔍 获取商品图片数据
      *
      * @param product 商品实体
-     * @return 图片数据的不可变副本
+     * @return 图片数据（不可变）
      */
-    public Map<String, Object> getImageDataCopy(Product product) {
-        Map<String, Object> currentData = product.getProductData();
-        if (currentData == null) {
-            return Map.of();
-        }
-
-        @SuppressWarnings("unchecked")
-        Map<String, Object> imageData = (Map<String, Object>) currentData.get("image_data");
-        return imageData != null ? Map.copyOf(imageData) : Map.of();
+    public ProductData.ImageData getImageDataCopy(Product product) {
+        return product.getProductData().getImageData();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package com.cmliy.springweb.service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.dto.ProductDetailDTO;
+import com.cmliy.springweb.dto.ProductResponseDTO;
+import com.cmliy.springweb.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🗃️ 商品详情缓存 - Product Detail Cache
+ *
+ * 按商品ID缓存已经转换好的ProductDetailDTO和ProductResponseDTO，
+ * 命中时跳过实体加载、规格Map复制和价格格式化。
+ *
+ * 🚀 设计特点：
+ * - 读穿透：未命中时由调用方提供的加载函数查询并转换
+ * - 防击穿：Caffeine的get(key, loader)对同一个key只执行一次加载，并发的未命中请求等待同一个结果
+ * - 容量和TTL有上限，TTL只是兜底，正确性依赖商品写入通知（ProductChangeListener）触发invalidate()
+ * - invalidate()立即失效一次，并在事务结束后再失效一次，避免提交前被旧数据回填
+ * - 缓存的DTO由多个请求共享，调用方不得修改
+ */
+@Slf4j
+@Component
+public class ProductDetailCache implements ProductChangeListener {
+
+    private final Cache<Long, ProductDetailDTO> details;
+    private final Cache<Long, ProductResponseDTO> responses;
+
+    public ProductDetailCache(AppConfig appConfig, MeterRegistry meterRegistry) {
+        AppConfig.ProductCacheConfig config = appConfig.getProductCache();
+        Duration ttl = Duration.ofSeconds(config.getExpireAfterWriteSeconds());
+
+        this.details = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, details, "products.detail");
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "products.response");
+    }
+
+    /**
+     * 🔍 读取商品详情DTO，未命中时加载
+     *
+     * @param productId 商品ID
+     * @param loader 加载函数，商品不存在时返回null（不缓存）
+     * @return 商品详情DTO
+     */
+    public Optional<ProductDetailDTO> getDetail(Long productId, Function<Long, ProductDetailDTO> loader) {
+        return Optional.ofNullable(details.get(productId, loader));
+    }
+
+    /**
+     * 🔍 读取商品响应DTO，未命中时加载
+     *
+     * @param productId 商品ID
+     * @param loader 加载函数，商品不存在时返回null（不缓存）
+     * @return 商品响应DTO
+     */
+    public Optional<ProductResponseDTO> getResponse(Long productId, Function<Long, ProductResponseDTO> loader) {
+        return Optional.ofNullable(responses.get(productId, loader));
+    }
+
+    /**
+     * 🧹 失效指定商品的缓存
+     *
+     * @param productId 发生变更的商品ID
+     */
+    public void invalidate(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        evict(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(productId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onProductChanged(Product product) {
+        invalidate(product.getId());
+    }
+
+    @Override
+    public void onProductRemoved(Long productId) {
+        invalidate(productId);
+    }
+
+    private void evict(Long productId) {
+        details.invalidate(productId);
+        responses.invalidate(productId);
+        log.debug("商品详情缓存已失效: productId={}", productId);
+    }
+}
@@ -0,0 +1,454 @@
+package com.cmliy.springweb.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.dto.ProductFacetQueryDTO;
+import com.cmliy.springweb.dto.ProductFacetsDTO;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.util.TransactionHooks;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🧮 商品分面引擎 - Product Facet Engine
+ *
+ * 筛选面板每次渲染都需要"当前选择下每个选项有多少商品"。这里在内存中为每个
+ * 规格值、上架状态、有货状态和价格区间各维护一个Roaring压缩位图（位 = 商品ID），
+ * 筛选就是位图求交，计数就是交集基数，不访问数据库。
+ *
+ * 🚀 设计特点：
+ * - 同一规格内的多个选择求并，不同维度之间求交
+ * - 每个维度的计数排除该维度自身的选择，勾选后同维度的其他选项仍显示商品数
+ * - 通过ProductChangeListener接收商品写入通知，在事务提交后更新位图
+ * - 查询持读锁、更新持写锁；全量重建在新的位图上完成后整体替换
+ * - 重建分页读取数据库时不持锁，期间提交的更新照常写入旧位图并记录下来，替换前在新位图上重放
+ */
+@Slf4j
+@Component
+public class ProductFacetEngine implements ProductChangeListener {
+
+    private static final String DIM_PRICE = "price";
+    private static final String DIM_AVAILABLE = "available";
+    private static final String DIM_STOCK = "stock";
+
+    private final ProductRepository productRepository;
+    private final AppConfig.ProductSearchConfig config;
+    private final List<BigDecimal> priceBreaks;
+    private final List<String> priceLabels;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 同一时间只进行一次全量重建
+     */
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 当前位图，写入时持写锁，全量重建时整体替换
+     */
+    private State state;
+
+    /**
+     * 重建期间提交的更新（商品ID → 新取值，空表示删除），持写锁访问；为null表示没有进行中的重建
+     */
+    private Map<Long, Optional<FacetDoc>> pendingDeltas;
+
+    /**
+     * 一个商品在各维度上的取值，用于更新和删除时找到要清除的位
+     */
+    private record FacetDoc(int bit, Map<String, Set<String>> specifications,
+                            boolean available, boolean inStock, int priceBucket) {
+    }
+
+    /**
+     * 全部位图
+     */
+    private static final class State {
+        final RoaringBitmap all = new RoaringBitmap();
+        final RoaringBitmap available = new RoaringBitmap();
+        final RoaringBitmap inStock = new RoaringBitmap();
+        final RoaringBitmap[] priceBuckets;
+        final Map<String, Map<String, RoaringBitmap>> specifications = new HashMap<>();
+        final Map<Long, FacetDoc> docs = new HashMap<>();
+
+        State(int bucketCount) {
+            priceBuckets = new RoaringBitmap[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                priceBuckets[i] = new RoaringBitmap();
+            }
+        }
+
+        void add(FacetDoc doc) {
+            all.add(doc.bit());
+            if (doc.available()) {
+                available.add(doc.bit());
+            }
+            if (doc.inStock()) {
+                inStock.add(doc.bit());
+            }
+            priceBuckets[doc.priceBucket()].add(doc.bit());
+            doc.specifications().forEach((dim, values) -> {
+                Map<String, RoaringBitmap> byValue = specifications.computeIfAbsent(dim, key -> new HashMap<>());
+                for (String value : values) {
+                    byValue.computeIfAbsent(value, key -> new RoaringBitmap()).add(doc.bit());
+                }
+            });
+        }
+
+        void remove(FacetDoc doc) {
+            all.remove(doc.bit());
+            available.remove(doc.bit());
+            inStock.remove(doc.bit());
+            priceBuckets[doc.priceBucket()].remove(doc.bit());
+            doc.specifications().forEach((dim, values) -> {
+                Map<String, RoaringBitmap> byValue = specifications.get(dim);
+                if (byValue == null) {
+                    return;
+                }
+                for (String value : values) {
+                    RoaringBitmap bitmap = byValue.get(value);
+                    if (bitmap != null) {
+                        bitmap.remove(doc.bit());
+                        if (bitmap.isEmpty()) {
+                            byValue.remove(value);
+                        }
+                    }
+                }
+                if (byValue.isEmpty()) {
+                    specifications.remove(dim);
+                }
+            });
+        }
+    }
+
+    public ProductFacetEngine(ProductRepository productRepository, AppConfig appConfig) {
+        this.productRepository = productRepository;
+        this.config = appConfig.getProductSearch();
+        this.priceBreaks = config.getFacetPriceBreaks().stream().sorted().toList();
+        this.priceLabels = priceLabels(priceBreaks);
+        this.state = new State(priceLabels.size());
+    }
+
+    /**
+     * 🚀 应用启动完成后（data.sql已执行）全量建立位图
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 🔄 从数据库全量重建位图
+     *
+     * 在新的位图上构建，完成后一次性替换，重建期间查询和更新继续使用旧位图；
+     * 只有开始记录和最后重放、替换时短暂持写锁，分页读取数据库时不阻塞提交回调。
+     *
+     * @return 收录的商品数
+     */
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                pendingDeltas = new LinkedHashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                return rebuildAndSwap();
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    pendingDeltas = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private long rebuildAndSwap() {
+        State newState = new State(priceLabels.size());
+        int pageNumber = 0;
+        Page<Product> batch;
+        do {
+            batch = productRepository.findAll(PageRequest.of(pageNumber++, config.getRebuildBatchSize(), Sort.by("id")));
+            for (Product product : batch) {
+                try {
+                    FacetDoc doc = toDoc(product);
+                    newState.docs.put(product.getId(), doc);
+                    newState.add(doc);
+                } catch (ArithmeticException e) {
+                    log.error("商品ID超出位图范围，无法收录: productId={}", product.getId());
+                }
+            }
+        } while (batch.hasNext());
+        newState.all.runOptimize();
+        newState.available.runOptimize();
+        newState.inStock.runOptimize();
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            // 读取期间提交的更新比分页读到的数据新，按提交顺序重放后再替换
+            replayed = pendingDeltas.size();
+            pendingDeltas.forEach((productId, doc) -> applyTo(newState, productId, doc.orElse(null)));
+            state = newState;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("商品分面位图重建完成: indexed={}, replayed={}", newState.docs.size(), replayed);
+        return newState.docs.size();
+    }
+
+    /**
+     * 📝 收录或更新商品
+     *
+     * 各维度取值在调用时根据实体当前状态生成；存在事务时在提交后写入，否则立即写入。
+     *
+     * @param product 已保存的商品实体
+     */
+    @Override
+    public void onProductChanged(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Long productId = product.getId();
+        FacetDoc doc;
+        try {
+            doc = toDoc(product);
+        } catch (ArithmeticException e) {
+            log.error("商品ID超出位图范围，无法收录: productId={}", productId);
+            return;
+        }
+        TransactionHooks.afterCommit(() -> apply(productId, doc));
+    }
+
+    /**
+     * 🗑️ 移除商品
+     *
+     * @param productId 已删除的商品ID
+     */
+    @Override
+    public void onProductRemoved(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> apply(productId, null));
+    }
+
+    /**
+     * 🔎 计算当前选择下的命中数和各选项计数
+     *
+     * @param query 筛选面板的当前选择
+     * @return 分面计数，每个维度最多返回facetTopN个值（已选的值总会返回）
+     */
+    public ProductFacetsDTO facets(ProductFacetQueryDTO query) {
+        lock.readLock().lock();
+        try {
+            State current = state;
+            Map<String, RoaringBitmap> filters = buildFilters(current, query);
+
+            RoaringBitmap matched = intersect(current, filters, null);
+
+            Map<String, Map<String, Long>> specificationCounts = new LinkedHashMap<>();
+            List<String> dims = new ArrayList<>(current.specifications.keySet());
+            dims.sort(Comparator.naturalOrder());
+            for (String dim : dims) {
+                String filterKey = specFilterKey(dim);
+                RoaringBitmap base = filters.containsKey(filterKey) ? intersect(current, filters, filterKey) : matched;
+                List<String> selected = query.getSpecifications() != null && query.getSpecifications().get(dim) != null
+                        ? query.getSpecifications().get(dim) : List.of();
+                Map<String, Long> counts = countValues(current.specifications.get(dim), base, selected);
+                if (!counts.isEmpty()) {
+                    specificationCounts.put(dim, counts);
+                }
+            }
+
+            RoaringBitmap priceBase = filters.containsKey(DIM_PRICE) ? intersect(current, filters, DIM_PRICE) : matched;
+            Map<String, Long> priceCounts = new LinkedHashMap<>();
+            for (int i = 0; i < priceLabels.size(); i++) {
+                priceCounts.put(priceLabels.get(i), (long) RoaringBitmap.andCardinality(priceBase, current.priceBuckets[i]));
+            }
+
+            RoaringBitmap availableBase = filters.containsKey(DIM_AVAILABLE) ? intersect(current, filters, DIM_AVAILABLE) : matched;
+            long availableCount = RoaringBitmap.andCardinality(availableBase, current.available);
+            Map<String, Long> availability = new LinkedHashMap<>();
+            availability.put("true", availableCount);
+            availability.put("false", availableBase.getLongCardinality() - availableCount);
+
+            RoaringBitmap stockBase = filters.containsKey(DIM_STOCK) ? intersect(current, filters, DIM_STOCK) : matched;
+
+            return ProductFacetsDTO.builder()
+                    .total(matched.getLongCardinality())
+                    .specifications(specificationCounts)
+                    .priceRanges(priceCounts)
+                    .availability(availability)
+                    .inStock(RoaringBitmap.andCardinality(stockBase, current.inStock))
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 🔧 私有辅助方法 ====================
+
+    private void apply(Long productId, FacetDoc doc) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDeltas != null) {
+                pendingDeltas.remove(productId); // 重新放到末尾，保持最后一次提交的顺序
+                pendingDeltas.put(productId, Optional.ofNullable(doc));
+            }
+            applyTo(state, productId, doc);
+        } catch (RuntimeException e) {
+            // 数据库写入已经成功，位图落后可以通过rebuild()修复，这里不向调用方抛出
+            log.error("商品分面位图更新失败: productId={}", productId, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void applyTo(State target, Long productId, FacetDoc doc) {
+        FacetDoc previous = target.docs.remove(productId);
+        if (previous != null) {
+            target.remove(previous);
+        }
+        if (doc != null) {
+            target.docs.put(productId, doc);
+            target.add(doc);
+        }
+    }
+
+    private FacetDoc toDoc(Product product) {
+        int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        BigDecimal price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+        return new FacetDoc(Math.toIntExact(product.getId()),
+                ProductSearchIndex.specificationsOf(product),
+                Boolean.TRUE.equals(product.getIsAvailable()),
+                stock > 0,
+                priceBucket(price));
+    }
+
+    private int priceBucket(BigDecimal price) {
+        for (int i = 0; i < priceBreaks.size(); i++) {
+            if (price.compareTo(priceBreaks.get(i)) < 0) {
+                return i;
+            }
+        }
+        return priceBreaks.size();
+    }
+
+    /**
+     * 区间标签：0-50、50-100、...、1000+
+     */
+    private static List<String> priceLabels(List<BigDecimal> breaks) {
+        List<String> labels = new ArrayList<>();
+        String lower = "0";
+        for (BigDecimal upper : breaks) {
+            String upperText = upper.stripTrailingZeros().toPlainString();
+            labels.add(lower + "-" + upperText);
+            lower = upperText;
+        }
+        labels.add(lower + "+");
+        return labels;
+    }
+
+    private static String specFilterKey(String dim) {
+        return "spec:" + dim;
+    }
+
+    /**
+     * 把当前选择转换为各维度的过滤位图：维度内求并
+     */
+    private Map<String, RoaringBitmap> buildFilters(State current, ProductFacetQueryDTO query) {
+        Map<String, RoaringBitmap> filters = new LinkedHashMap<>();
+        if (query.getSpecifications() != null) {
+            query.getSpecifications().forEach((dim, values) -> {
+                if (dim == null || values == null || values.isEmpty()) {
+                    return;
+                }
+                Map<String, RoaringBitmap> byValue = current.specifications.getOrDefault(dim, Map.of());
+                RoaringBitmap union = new RoaringBitmap();
+                for (String value : values) {
+                    RoaringBitmap bitmap = value != null ? byValue.get(value.trim()) : null;
+                    if (bitmap != null) {
+                        union.or(bitmap);
+                    }
+                }
+                filters.put(specFilterKey(dim), union);
+            });
+        }
+        if (query.getPriceRanges() != null && !query.getPriceRanges().isEmpty()) {
+            RoaringBitmap union = new RoaringBitmap();
+            for (String label : query.getPriceRanges()) {
+                int bucket = priceLabels.indexOf(label);
+                if (bucket >= 0) {
+                    union.or(current.priceBuckets[bucket]);
+                }
+            }
+            filters.put(DIM_PRICE, union);
+        }
+        if (query.getIsAvailable() != null) {
+            filters.put(DIM_AVAILABLE, query.getIsAvailable()
+                    ? current.available
+                    : RoaringBitmap.andNot(current.all, current.available));
+        }
+        if (Boolean.TRUE.equals(query.getHasStock())) {
+            filters.put(DIM_STOCK, current.inStock);
+        }
+        return filters;
+    }
+
+    /**
+     * 全部商品与各过滤位图求交，excluded维度不参与
+     */
+    private static RoaringBitmap intersect(State current, Map<String, RoaringBitmap> filters, String excluded) {
+        RoaringBitmap result = current.all.clone();
+        for (Map.Entry<String, RoaringBitmap> filter : filters.entrySet()) {
+            if (!filter.getKey().equals(excluded)) {
+                result.and(filter.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 规格值计数：按商品数降序取前facetTopN个，已选的值即使计数为0也返回
+     */
+    private Map<String, Long> countValues(Map<String, RoaringBitmap> byValue, RoaringBitmap base, List<String> selected) {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        byValue.forEach((value, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(base, bitmap);
+            if (count > 0 || selected.contains(value)) {
+                counts.add(Map.entry(value, count));
+            }
+        });
+        counts.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry::getKey));
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : counts) {
+            if (result.size() < config.getFacetTopN() || selected.contains(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+}
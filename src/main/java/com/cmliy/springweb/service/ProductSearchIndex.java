@@ -0,0 +1,675 @@
+package com.cmliy.springweb.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.DrillDownQuery;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollectorManager;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollectorManager;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.dto.ProductQueryRequestDTO;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.repository.ProductListRepository;
+import com.cmliy.springweb.repository.ProductListRow;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.util.PinyinUtils;
+import com.cmliy.springweb.util.TransactionHooks;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🔎 商品搜索索引 - Product Search Index
+ *
+ * 进程内的Lucene索引，商品搜索、规格筛选、价格/库存区间和排序都在索引中完成，
+ * 搜索请求不占用数据库连接，不与下单流量竞争。
+ *
+ * 🚀 设计特点：
+ * - 中文使用CJKAnalyzer按相邻两字切分，与数据库端的product_ngrams保持一致
+ * - 名称的全拼和首字母单独建字段，拼音输入按前缀匹配
+ * - 列表展示需要的字段都保存在索引中，结果直接还原为ProductListRow，不回表
+ * - 规格（productData.specifications）的每个键是一个分面维度，支持按维度筛选和计数
+ * - 通过ProductChangeListener接收商品写入通知，在事务提交后才写入索引，回滚的修改不会进入索引
+ * - 近实时：后台线程按refreshIntervalMillis刷新搜索器，写入后很快可以被搜到
+ * - 启动完成后、以及管理员调用rebuild()时，从ProductRepository分批全量重建；
+ *   重建期间提交的写入记录下来，分页读完后按提交顺序重放，失败时回滚到重建前的状态
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex implements ProductChangeListener {
+
+    /**
+     * 商品类别、品牌、颜色、尺寸在规格中的键名
+     */
+    private static final String SPEC_CATEGORY = "分类";
+    private static final String SPEC_BRAND = "品牌";
+    private static final String SPEC_COLOR = "颜色";
+    private static final String SPEC_SIZE = "尺寸";
+
+    private static final String F_ID = "id";
+    private static final String F_ID_SORT = "id_sort";
+    private static final String F_NAME = "name";
+    private static final String F_NAME_PINYIN = "name_pinyin";
+    private static final String F_DESCRIPTION = "description";
+    private static final String F_SPECS = "specs";
+    private static final String F_PRICE = "price";
+    private static final String F_DISCOUNT = "discount";
+    private static final String F_EFFECTIVE_PRICE = "effective_price";
+    private static final String F_SALES = "sales_count";
+    private static final String F_STOCK = "stock_quantity";
+    private static final String F_AVAILABLE = "available";
+    private static final String F_CREATOR = "creator_id";
+    private static final String F_CREATED_AT = "created_at";
+    private static final String F_DESCRIPTION_SNIPPET = "description_snippet";
+    private static final String F_MAIN_IMAGE = "main_image";
+    private static final String F_CATEGORY = "category";
+    private static final String F_BRAND = "brand";
+
+    private final ProductRepository productRepository;
+    private final AppConfig.ProductSearchConfig config;
+    private final Analyzer analyzer = new CJKAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+    private final Directory directory;
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * 重建失败回滚后会重新打开，写入都在synchronized(this)中进行
+     */
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+
+    /**
+     * 串行化全量重建，重建期间不阻塞增量写入
+     */
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 重建期间提交的写入：商品ID → 最新文档（空表示删除），按提交顺序；不在重建时为null
+     */
+    private Map<Long, Optional<Document>> pendingDeltas;
+
+    private volatile boolean rebuilding;
+    private volatile ReaderFacetState facetState;
+
+    /**
+     * 与某个IndexReader绑定的分面状态，读者变化后重新创建
+     */
+    private record ReaderFacetState(IndexReader reader, SortedSetDocValuesReaderState state) {
+    }
+
+    /**
+     * 🔢 一次搜索的结果
+     *
+     * @param rows 当前页商品列表行
+     * @param total 命中总数
+     * @param facets 规格名 → (规格值 → 商品数)
+     */
+    public record Hits(List<ProductListRow> rows, long total, Map<String, Map<String, Long>> facets) {
+    }
+
+    public ProductSearchIndex(ProductRepository productRepository, AppConfig appConfig) throws IOException {
+        this.productRepository = productRepository;
+        this.config = appConfig.getProductSearch();
+
+        String indexPath = config.getIndexPath();
+        this.directory = indexPath == null || indexPath.isBlank()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Path.of(indexPath));
+        this.writer = openWriter(IndexWriterConfig.OpenMode.CREATE);
+        this.searcherManager = new SearcherManager(writer, null);
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "product-search-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh,
+                config.getRefreshIntervalMillis(), config.getRefreshIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 🚀 应用启动完成后（data.sql已执行）全量建立索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 🔄 从数据库全量重建索引
+     *
+     * 重建期间暂停近实时刷新，搜索继续使用旧的搜索器，完成后一次性切换。
+     * 开始前先提交已有的增量写入；重建失败时回滚未提交的修改，并重放重建期间提交的写入。
+     *
+     * @return 写入索引的商品数
+     */
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            try {
+                synchronized (this) {
+                    writer.commit(); // 回滚点：包含重建前的所有增量写入
+                    pendingDeltas = new LinkedHashMap<>();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("商品搜索索引重建失败", e);
+            }
+            rebuilding = true;
+            try {
+                long indexed = rebuildAndCommit();
+                searcherManager.maybeRefreshBlocking();
+                return indexed;
+            } catch (IOException e) {
+                rollbackRebuild();
+                throw new UncheckedIOException("商品搜索索引重建失败", e);
+            } catch (RuntimeException e) {
+                rollbackRebuild();
+                throw e;
+            } finally {
+                rebuilding = false;
+            }
+        }
+    }
+
+    private long rebuildAndCommit() throws IOException {
+        writer.deleteAll();
+        long indexed = 0;
+        int pageNumber = 0;
+        Page<Product> batch;
+        do {
+            batch = productRepository.findAll(PageRequest.of(pageNumber++, config.getRebuildBatchSize(),
+                    org.springframework.data.domain.Sort.by("id")));
+            for (Product product : batch) {
+                // 与增量写入一样按ID覆盖：重建期间提交的写入可能已先写入同一商品，不能再追加一份
+                writer.updateDocument(idTerm(product.getId()), toDocument(product));
+                indexed++;
+            }
+        } while (batch.hasNext());
+
+        int replayed;
+        synchronized (this) {
+            // 读取期间提交的写入比分页读到的数据新，按提交顺序重放后再提交
+            replayed = pendingDeltas.size();
+            for (Map.Entry<Long, Optional<Document>> delta : pendingDeltas.entrySet()) {
+                applyTo(writer, delta.getKey(), delta.getValue().orElse(null));
+            }
+            writer.commit();
+            pendingDeltas = null;
+        }
+        log.info("商品搜索索引重建完成: indexed={}, replayed={}", indexed, replayed);
+        return indexed;
+    }
+
+    /**
+     * 丢弃重建中未提交的修改（回到重建开始时的提交），重新打开写入器和搜索器，再重放重建期间提交的写入
+     */
+    private synchronized void rollbackRebuild() {
+        Map<Long, Optional<Document>> deltas = pendingDeltas != null ? pendingDeltas : Map.of();
+        pendingDeltas = null;
+        SearcherManager previousSearcherManager = searcherManager;
+        try {
+            writer.rollback();
+            writer = openWriter(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            searcherManager = new SearcherManager(writer, null);
+            for (Map.Entry<Long, Optional<Document>> delta : deltas.entrySet()) {
+                applyTo(writer, delta.getKey(), delta.getValue().orElse(null));
+            }
+            searcherManager.maybeRefreshBlocking();
+            previousSearcherManager.close();
+            log.warn("商品搜索索引重建失败，已回滚: replayed={}", deltas.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("商品搜索索引重建失败后回滚失败", e);
+        }
+    }
+
+    /**
+     * 📝 新增或更新商品的索引文档
+     *
+     * 文档在调用时根据实体当前状态生成；存在事务时在提交后写入，否则立即写入。
+     *
+     * @param product 已保存的商品实体
+     */
+    @Override
+    public void onProductChanged(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Long productId = product.getId();
+        Document document = toDocument(product);
+        TransactionHooks.afterCommit(() -> apply(productId, document));
+    }
+
+    /**
+     * 🗑️ 删除商品的索引文档
+     *
+     * @param productId 已删除的商品ID
+     */
+    @Override
+    public void onProductRemoved(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> apply(productId, null));
+    }
+
+    /**
+     * 🔎 搜索商品
+     *
+     * 支持关键词、价格区间、实付单价区间、库存区间、上架状态、有无库存、创建人、类别/品牌/颜色/尺寸筛选，
+     * 排序字段为price/effectivePrice/salesCount/stockQuantity/createdAt，未指定时有关键词按相关度、否则按ID倒序。
+     *
+     * @param request 查询请求，page从1开始，未指定pageSize时返回全部命中
+     * @return 当前页商品、命中总数和规格分面
+     */
+    public Hits search(ProductQueryRequestDTO request) {
+        try {
+            SearcherManager manager = searcherManager;
+            IndexSearcher searcher = manager.acquire();
+            try {
+                Query query = buildQuery(request);
+                int page = request.getPage() != null && request.getPage() > 0 ? request.getPage() : 1;
+                int pageSize = request.getPageSize() != null && request.getPageSize() > 0
+                        ? request.getPageSize()
+                        : Math.max(searcher.getIndexReader().maxDoc(), 1);
+                long from = (long) (page - 1) * pageSize;
+                int topN = (int) Math.min(from + pageSize, Math.max(searcher.getIndexReader().maxDoc(), 1));
+
+                // 一次遍历同时收集当前页和分面；totalHitsThreshold取最大值，命中总数精确
+                Sort sort = buildSort(request);
+                CollectorManager<?, ? extends TopDocs> topDocsManager = sort == null
+                        ? new TopScoreDocCollectorManager(topN, Integer.MAX_VALUE)
+                        : new TopFieldCollectorManager(sort, topN, Integer.MAX_VALUE);
+                Object[] results = searcher.search(query, new MultiCollectorManager(topDocsManager, new FacetsCollectorManager()));
+                TopDocs topDocs = (TopDocs) results[0];
+                FacetsCollector facetsCollector = (FacetsCollector) results[1];
+
+                StoredFields storedFields = searcher.storedFields();
+                List<ProductListRow> rows = new ArrayList<>();
+                ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+                for (int i = (int) Math.min(from, scoreDocs.length); i < scoreDocs.length; i++) {
+                    rows.add(toRow(storedFields.document(scoreDocs[i].doc)));
+                }
+
+                return new Hits(rows, topDocs.totalHits.value, countFacets(searcher.getIndexReader(), facetsCollector));
+            } finally {
+                manager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("商品搜索失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        refresher.shutdownNow();
+        try {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        } catch (IOException e) {
+            log.warn("关闭商品搜索索引失败: {}", e.getMessage());
+        }
+    }
+
+    // ==================== 🔧 私有辅助方法 ====================
+
+    private IndexWriter openWriter(IndexWriterConfig.OpenMode openMode) throws IOException {
+        return new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(openMode));
+    }
+
+    /**
+     * @param document 新文档，null表示删除
+     */
+    private synchronized void apply(Long productId, Document document) {
+        String action = document != null ? "更新" : "删除";
+        if (pendingDeltas != null) {
+            pendingDeltas.remove(productId); // 重新放到末尾，保持最后一次提交的顺序
+            pendingDeltas.put(productId, Optional.ofNullable(document));
+        }
+        try {
+            applyTo(writer, productId, document);
+            log.debug("商品搜索索引已{}: productId={}", action, productId);
+        } catch (IOException | RuntimeException e) {
+            // 数据库写入已经成功，索引落后可以通过rebuild()修复，这里不向调用方抛出
+            log.error("商品搜索索引{}失败: productId={}", action, productId, e);
+        }
+    }
+
+    private static void applyTo(IndexWriter target, Long productId, Document document) throws IOException {
+        if (document != null) {
+            target.updateDocument(idTerm(productId), document);
+        } else {
+            target.deleteDocuments(idTerm(productId));
+        }
+    }
+
+    private void refresh() {
+        if (rebuilding) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("刷新商品搜索器失败: {}", e.getMessage());
+        }
+    }
+
+    private static Term idTerm(Long productId) {
+        return new Term(F_ID, String.valueOf(productId));
+    }
+
+    private Document toDocument(Product product) {
+        Document doc = new Document();
+        long id = product.getId();
+        doc.add(new StringField(F_ID, String.valueOf(id), Field.Store.YES));
+        doc.add(new NumericDocValuesField(F_ID_SORT, id));
+
+        String name = product.getProductName() != null ? product.getProductName() : "";
+        String description = product.getDescription() != null ? product.getDescription() : "";
+        doc.add(new TextField(F_NAME, name, Field.Store.YES));
+        for (String pinyin : PinyinUtils.fullPinyin(name)) {
+            doc.add(new StringField(F_NAME_PINYIN, pinyin, Field.Store.NO));
+        }
+        for (String initials : PinyinUtils.initials(name)) {
+            doc.add(new StringField(F_NAME_PINYIN, initials, Field.Store.NO));
+        }
+        doc.add(new TextField(F_DESCRIPTION, description, Field.Store.NO));
+        doc.add(new StoredField(F_DESCRIPTION_SNIPPET, description.length() > ProductListRepository.DESCRIPTION_SNIPPET_LENGTH
+                ? description.substring(0, ProductListRepository.DESCRIPTION_SNIPPET_LENGTH) : description));
+
+        BigDecimal price = product.getPrice() != null ? product.getPrice() : BigDecimal.ZERO;
+        doc.add(new DoublePoint(F_PRICE, price.doubleValue()));
+        doc.add(new DoubleDocValuesField(F_PRICE, price.doubleValue()));
+        doc.add(new StoredField(F_PRICE, price.toPlainString()));
+        BigDecimal discount = product.getDiscount() != null ? product.getDiscount() : BigDecimal.ZERO;
+        doc.add(new StoredField(F_DISCOUNT, discount.toPlainString()));
+        // 与effective_price生成列同一公式；实体在flush前拿不到生成列的新值，这里直接计算
+        BigDecimal effectivePrice = Product.discountedPrice(price, discount);
+        doc.add(new DoublePoint(F_EFFECTIVE_PRICE, effectivePrice.doubleValue()));
+        doc.add(new DoubleDocValuesField(F_EFFECTIVE_PRICE, effectivePrice.doubleValue()));
+        doc.add(new StoredField(F_EFFECTIVE_PRICE, effectivePrice.toPlainString()));
+
+        int sales = product.getSalesCount() != null ? product.getSalesCount() : 0;
+        doc.add(new NumericDocValuesField(F_SALES, sales));
+        doc.add(new StoredField(F_SALES, String.valueOf(sales)));
+
+        int stock = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        doc.add(new IntPoint(F_STOCK, stock));
+        doc.add(new NumericDocValuesField(F_STOCK, stock));
+        doc.add(new StoredField(F_STOCK, String.valueOf(stock)));
+
+        doc.add(new StringField(F_AVAILABLE, String.valueOf(Boolean.TRUE.equals(product.getIsAvailable())), Field.Store.YES));
+        if (product.getCreator() != null && product.getCreator().getId() != null) {
+            doc.add(new LongPoint(F_CREATOR, product.getCreator().getId()));
+        }
+        if (product.getCreatedAt() != null) {
+            doc.add(new NumericDocValuesField(F_CREATED_AT, product.getCreatedAt().toEpochSecond(ZoneOffset.UTC)));
+            doc.add(new StoredField(F_CREATED_AT, product.getCreatedAt().toString()));
+        }
+        if (product.getMainImage() != null) {
+            doc.add(new StoredField(F_MAIN_IMAGE, product.getMainImage()));
+        }
+
+        StringBuilder specText = new StringBuilder();
+        specificationsOf(product).forEach((key, values) -> {
+            if (values.isEmpty()) {
+                return;
+            }
+            facetsConfig.setMultiValued(key, true);
+            for (String value : values) {
+                doc.add(new SortedSetDocValuesFacetField(key, value));
+                specText.append(value).append(' ');
+            }
+            if (SPEC_CATEGORY.equals(key)) {
+                doc.add(new StoredField(F_CATEGORY, String.join(",", values)));
+            } else if (SPEC_BRAND.equals(key)) {
+                doc.add(new StoredField(F_BRAND, String.join(",", values)));
+            }
+        });
+        doc.add(new TextField(F_SPECS, specText.toString(), Field.Store.NO));
+
+        try {
+            return facetsConfig.build(doc);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 规格键 → 非空规格值
+     */
+    static Map<String, Set<String>> specificationsOf(Product product) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        product.getAllSpecifications().forEach((key, items) -> {
+            if (key == null || key.isBlank() || items == null) {
+                return;
+            }
+            Set<String> values = new LinkedHashSet<>();
+            for (String item : items) {
+                if (item != null && !item.isBlank()) {
+                    values.add(item.trim());
+                }
+            }
+            result.put(key, values);
+        });
+        return result;
+    }
+
+    private static ProductListRow toRow(Document doc) {
+        String createdAt = doc.get(F_CREATED_AT);
+        String effectivePrice = doc.get(F_EFFECTIVE_PRICE); // 旧版本索引中没有，由转换器按价格和折扣计算
+        return new ProductListRow(
+                Long.valueOf(doc.get(F_ID)),
+                doc.get(F_NAME),
+                new BigDecimal(doc.get(F_PRICE)),
+                new BigDecimal(doc.get(F_DISCOUNT)),
+                effectivePrice != null ? new BigDecimal(effectivePrice) : null,
+                Integer.valueOf(doc.get(F_SALES)),
+                Integer.valueOf(doc.get(F_STOCK)),
+                Boolean.valueOf(doc.get(F_AVAILABLE)),
+                doc.get(F_DESCRIPTION_SNIPPET),
+                doc.get(F_MAIN_IMAGE),
+                doc.get(F_CATEGORY),
+                doc.get(F_BRAND),
+                createdAt != null ? LocalDateTime.parse(createdAt) : null);
+    }
+
+    private Query buildQuery(ProductQueryRequestDTO request) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+
+        // 关键词：名称、规格、描述任一字段全部词元命中即可，名称权重最高
+        String keyword = request.getKeyword() != null ? request.getKeyword().trim() : "";
+        if (!keyword.isEmpty()) {
+            QueryBuilder queryBuilder = new QueryBuilder(analyzer);
+            BooleanQuery.Builder text = new BooleanQuery.Builder();
+            addTextClause(text, queryBuilder.createBooleanQuery(F_NAME, keyword, BooleanClause.Occur.MUST), 3f);
+            addTextClause(text, queryBuilder.createBooleanQuery(F_SPECS, keyword, BooleanClause.Occur.MUST), 1.5f);
+            addTextClause(text, queryBuilder.createBooleanQuery(F_DESCRIPTION, keyword, BooleanClause.Occur.MUST), 1f);
+            if (keyword.codePointCount(0, keyword.length()) == 1) {
+                // 单个汉字在索引中只存在于双字词元的开头，按前缀匹配名称
+                addTextClause(text, new PrefixQuery(new Term(F_NAME, keyword.toLowerCase())), 2f);
+            }
+            if (PinyinUtils.isPinyinInput(keyword)) {
+                // 拼音或首字母输入，按名称全拼/首字母的前缀匹配
+                String pinyin = keyword.replaceAll("\\s+", "").toLowerCase();
+                addTextClause(text, new PrefixQuery(new Term(F_NAME_PINYIN, pinyin)), 2f);
+            }
+            builder.add(text.build(), BooleanClause.Occur.MUST);
+        } else {
+            builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        }
+
+        // 价格区间
+        if (request.getMinPrice() != null || request.getMaxPrice() != null) {
+            double min = request.getMinPrice() != null ? request.getMinPrice().doubleValue() : Double.NEGATIVE_INFINITY;
+            double max = request.getMaxPrice() != null ? request.getMaxPrice().doubleValue() : Double.POSITIVE_INFINITY;
+            builder.add(DoublePoint.newRangeQuery(F_PRICE, min, max), BooleanClause.Occur.FILTER);
+        }
+
+        // 实付单价区间
+        if (request.getMinEffectivePrice() != null || request.getMaxEffectivePrice() != null) {
+            double min = request.getMinEffectivePrice() != null
+                    ? request.getMinEffectivePrice().doubleValue() : Double.NEGATIVE_INFINITY;
+            double max = request.getMaxEffectivePrice() != null
+                    ? request.getMaxEffectivePrice().doubleValue() : Double.POSITIVE_INFINITY;
+            builder.add(DoublePoint.newRangeQuery(F_EFFECTIVE_PRICE, min, max), BooleanClause.Occur.FILTER);
+        }
+
+        // 库存区间
+        int minStock = request.getMinStock() != null ? request.getMinStock() : Integer.MIN_VALUE;
+        if (Boolean.TRUE.equals(request.getHasStock())) {
+            minStock = Math.max(minStock, 1);
+        }
+        int maxStock = request.getMaxStock() != null ? request.getMaxStock() : Integer.MAX_VALUE;
+        if (minStock != Integer.MIN_VALUE || maxStock != Integer.MAX_VALUE) {
+            builder.add(IntPoint.newRangeQuery(F_STOCK, minStock, maxStock), BooleanClause.Occur.FILTER);
+        }
+
+        if (request.getIsAvailable() != null) {
+            builder.add(new TermQuery(new Term(F_AVAILABLE, String.valueOf(request.getIsAvailable()))), BooleanClause.Occur.FILTER);
+        }
+        if (request.getCreatorId() != null) {
+            builder.add(LongPoint.newExactQuery(F_CREATOR, request.getCreatorId()), BooleanClause.Occur.FILTER);
+        }
+
+        // 规格筛选走分面维度
+        DrillDownQuery drillDown = new DrillDownQuery(facetsConfig, builder.build());
+        addDrillDown(drillDown, SPEC_CATEGORY, request.getCategory());
+        addDrillDown(drillDown, SPEC_BRAND, request.getBrand());
+        addDrillDown(drillDown, SPEC_COLOR, request.getColor());
+        addDrillDown(drillDown, SPEC_SIZE, request.getSize());
+        return drillDown;
+    }
+
+    private static void addTextClause(BooleanQuery.Builder builder, Query query, float boost) {
+        if (query != null) {
+            builder.add(new BoostQuery(query, boost), BooleanClause.Occur.SHOULD);
+        }
+    }
+
+    private static void addDrillDown(DrillDownQuery drillDown, String dim, String value) {
+        if (value != null && !value.isBlank()) {
+            drillDown.add(dim, value.trim());
+        }
+    }
+
+    private static Sort buildSort(ProductQueryRequestDTO request) {
+        String field = switch (request.getSort() != null ? request.getSort() : "") {
+            case "price" -> F_PRICE;
+            case "effectivePrice" -> F_EFFECTIVE_PRICE;
+            case "salesCount" -> F_SALES;
+            case "stockQuantity" -> F_STOCK;
+            case "createdAt" -> F_CREATED_AT;
+            default -> null;
+        };
+        boolean reverse = !"asc".equalsIgnoreCase(request.getOrder());
+        SortField idTieBreaker = new SortField(F_ID_SORT, SortField.Type.LONG, true);
+        if (field == null) {
+            boolean hasKeyword = request.getKeyword() != null && !request.getKeyword().isBlank();
+            return hasKeyword ? null : new Sort(idTieBreaker);
+        }
+        SortField.Type type = F_PRICE.equals(field) || F_EFFECTIVE_PRICE.equals(field)
+                ? SortField.Type.DOUBLE : SortField.Type.LONG;
+        return new Sort(new SortField(field, type, reverse), idTieBreaker);
+    }
+
+    private Map<String, Map<String, Long>> countFacets(IndexReader reader, FacetsCollector facetsCollector) throws IOException {
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        SortedSetDocValuesReaderState state = facetStateFor(reader);
+        if (state == null) {
+            return facets;
+        }
+        List<FacetResult> results = new SortedSetDocValuesFacetCounts(state, facetsCollector).getAllDims(config.getFacetTopN());
+        for (FacetResult result : results) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (LabelAndValue labelValue : result.labelValues) {
+                counts.put(labelValue.label, labelValue.value.longValue());
+            }
+            facets.put(result.dim, counts);
+        }
+        return facets;
+    }
+
+    /**
+     * 分面状态的创建需要扫描一遍序数映射，只在搜索器刷新后重新创建
+     */
+    private SortedSetDocValuesReaderState facetStateFor(IndexReader reader) throws IOException {
+        ReaderFacetState current = facetState;
+        if (current != null && current.reader() == reader) {
+            return current.state();
+        }
+        SortedSetDocValuesReaderState state;
+        try {
+            state = new DefaultSortedSetDocValuesReaderState(reader, facetsConfig);
+        } catch (IllegalArgumentException e) {
+            // 索引中还没有任何带规格的商品
+            return null;
+        }
+        facetState = new ReaderFacetState(reader, state);
+        return state;
+    }
+}
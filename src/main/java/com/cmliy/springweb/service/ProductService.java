@@ -1,11 +1,17 @@
 package com.cmliy.springweb.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -13,18 +19,29 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.cmliy.springweb.common.CountedPage;
+import com.cmliy.springweb.common.CursorPage;
 import com.cmliy.springweb.converter.ProductConverter;
+import com.cmliy.springweb.dto.ProductAttributeFilterDTO;
 import com.cmliy.springweb.dto.ProductCreateRequestDTO;
 import com.cmliy.springweb.dto.ProductDetailDTO;
+import com.cmliy.springweb.dto.ProductFacetQueryDTO;
+import com.cmliy.springweb.dto.ProductFacetsDTO;
 import com.cmliy.springweb.dto.ProductListItemDTO;
 import com.cmliy.springweb.dto.ProductQueryRequestDTO;
 import com.cmliy.springweb.dto.ProductResponseDTO;
+import com.cmliy.springweb.dto.ProductSearchResultDTO;
+import com.cmliy.springweb.dto.ProductSuggestionDTO;
 import com.cmliy.springweb.dto.ProductSummaryDTO;
 import com.cmliy.springweb.dto.ProductUpdateRequestDTO;
 import com.cmliy.springweb.model.Product;
 import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.PageQueryRepository;
+import com.cmliy.springweb.repository.ProductListRow;
 import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.repository.ProductSpecifications;
 import com.cmliy.springweb.repository.UserRepository;
+import com.cmliy.springweb.util.KeysetCursor;
 
 import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
@@ -43,52 +60,120 @@ import lombok.extern.slf4j.Slf4j;
 @Transactional(readOnly = true)
 public class ProductService extends BaseService {
 
+    /**
+     * 游标分页支持的排序字段及其类型（都是非空列）
+     */
+    private static final Map<String, Class<?>> PRODUCT_CURSOR_KEYS = Map.of(
+            "id", Long.class,
+            "createdAt", LocalDateTime.class,
+            "salesCount", Integer.class,
+            "price", BigDecimal.class,
+            "effectivePrice", BigDecimal.class);
+
+    /**
+     * 属性筛选支持的排序字段
+     */
+    private static final Set<String> PRODUCT_FILTER_SORT_KEYS =
+            Set.of("id", "createdAt", "salesCount", "price", "effectivePrice", "stockQuantity");
+
+    /**
+     * 商品表名，用于读取planner估算行数
+     */
+    private static final String PRODUCT_TABLE = "products";
+
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final ProductConverter productConverter;
+    private final ProductDetailCache productDetailCache;
+    private final PageTotalCounter pageTotalCounter;
+    private final PageQueryRepository pageQueryRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggestIndex productSuggestIndex;
+    private final ProductFacetEngine productFacetEngine;
+    private final ProductChangePublisher productChangePublisher;
+    private final ProductDataService productDataService;
 
     /**
      * 📋 获取商品列表（分页）
      *
      * @param page 页码（从0开始）
      * @param size 每页大小
-     * @param sortBy 排序字段
+     * @param sortBy 排序字段（effectivePrice按实付单价排序）
      * @param sortDirection 排序方向（ASC/DESC）
      * @param isAvailable 是否上架（可选，true=只显示上架商品，false=只显示下架商品，null=显示所有商品）
+     * @param minEffectivePrice 最低实付单价（可选）
+     * @param maxEffectivePrice 最高实付单价（可选）
+     * @param exactTotal 是否要求精确总数（false时不过滤的列表使用估算值，过滤的列表使用短时缓存的计数）
      * @return 分页商品列表
      */
-    public Page<ProductListItemDTO> getProductList(int page, int size, String sortBy, String sortDirection, Boolean isAvailable) {
-        log.info("获取商品列表: page={}, size={}, sortBy={}, sortDirection={}, isAvailable={}",
-                page, size, sortBy, sortDirection, isAvailable);
+    public CountedPage<ProductListItemDTO> getProductList(int page, int size, String sortBy, String sortDirection,
+                                                          Boolean isAvailable, BigDecimal minEffectivePrice,
+                                                          BigDecimal maxEffectivePrice, boolean exactTotal) {
+        log.info("获取商品列表: page={}, size={}, sortBy={}, sortDirection={}, isAvailable={}, effectivePrice={}~{}, exactTotal={}",
+                page, size, sortBy, sortDirection, isAvailable, minEffectivePrice, maxEffectivePrice, exactTotal);
 
         Sort.Direction direction = "DESC".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
-        // 如果需要按上架状态过滤，使用Specification查询
+        // 按上架状态和实付单价区间过滤，实付单价区间走(effective_price, id)索引；列表只查询投影列
+        Specification<Product> availability = isAvailable == null ? null
+                : (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("isAvailable"), isAvailable);
+        Specification<Product> effectivePrice = columnRange("effectivePrice", minEffectivePrice, maxEffectivePrice);
+        Specification<Product> spec = availability == null && effectivePrice == null ? null
+                : Specification.allOf(availability, effectivePrice);
+        List<ProductListItemDTO> content = productRepository.findListRowContent(spec, pageable).stream()
+                .map(productConverter::toListItemDTO)
+                .toList();
+
+        String countKey = "products|available=" + isAvailable + "|effectivePrice=" + minEffectivePrice + "~" + maxEffectivePrice;
+        return pageTotalCounter.toPage(content, pageable, exactTotal, countKey,
+                () -> productRepository.count(spec),
+                spec == null ? () -> pageQueryRepository.estimateRowCount(PRODUCT_TABLE) : null);
+    }
+
+    /**
+     * 📜 获取商品列表（游标分页）
+     *
+     * 按 (排序字段, id) 键集翻页，不执行COUNT查询，翻到深处也不会变慢。
+     *
+     * @param cursor 上一页返回的游标，第一页为null
+     * @param size 每页大小
+     * @param sortBy 排序字段（id/createdAt/salesCount/price/effectivePrice，仅第一页使用）
+     * @param sortDirection 排序方向（ASC/DESC，仅第一页使用）
+     * @param isAvailable 是否上架（可选）
+     * @return 游标分页商品列表
+     */
+    public CursorPage<ProductListItemDTO> scrollProductList(String cursor, int size, String sortBy,
+                                                            String sortDirection, Boolean isAvailable) {
+        log.info("游标获取商品列表: size={}, sortBy={}, sortDirection={}, isAvailable={}",
+                size, sortBy, sortDirection, isAvailable);
+        validatePositive(size, "每页大小");
+
+        KeysetCursor position = KeysetCursor.resolve(cursor, sortBy, sortDirection, PRODUCT_CURSOR_KEYS);
+        Specification<Product> spec = position.after();
         if (isAvailable != null) {
-            Specification<Product> spec = (root, query, criteriaBuilder) -> {
-                return criteriaBuilder.equal(root.get("isAvailable"), isAvailable);
-            };
-            Page<Product> productPage = productRepository.findAll(spec, pageable);
-            return productPage.map(productConverter::toListItemDTO);
-        } else {
-            // 如果没有过滤条件，使用原来的查询方式
-            Page<Product> productPage = productRepository.findAll(pageable);
-            return productPage.map(productConverter::toListItemDTO);
+            spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("isAvailable"), isAvailable));
         }
+
+        List<ProductListRow> rows = productRepository.findListRows(spec, position.sort(), size + 1);
+        return CursorPage.fromRows(rows, size,
+                row -> position.next(sortKeyOf(row, position.getSortBy()), row.id()),
+                productConverter::toListItemDTO);
     }
 
     /**
      * 🔍 根据ID获取商品详情
      *
+     * 读穿透商品详情缓存，返回的DTO被多个请求共享，不要修改。
+     *
      * @param id 商品ID
      * @return 商品详情DTO
      */
     public Optional<ProductDetailDTO> getProductById(Long id) {
-        log.info("获取商品详情: id={}", id);
+        log.debug("获取商品详情: id={}", id);
 
-        Optional<Product> productOpt = productRepository.findById(id);
-        return productOpt.map(productConverter::toDetailDTO);
+        return productDetailCache.getDetail(id, key ->
+                productRepository.findById(key).map(productConverter::toDetailDTO).orElse(null));
     }
 
     /**
@@ -98,10 +183,10 @@ public class ProductService extends BaseService {
      * @return 商品响应DTO
      */
     public Optional<ProductResponseDTO> getProductResponseById(Long id) {
-        log.info("获取商品基本信息: id={}", id);
+        log.debug("获取商品基本信息: id={}", id);
 
-        Optional<Product> productOpt = productRepository.findById(id);
-        return productOpt.map(productConverter::toResponseDTO);
+        return productDetailCache.getResponse(id, key ->
+                productRepository.findById(key).map(productConverter::toResponseDTO).orElse(null));
     }
 
     /**
@@ -126,6 +211,7 @@ public class ProductService extends BaseService {
 
             // 保存商品
             Product savedProduct = productRepository.save(product);
+            productChangePublisher.changed(savedProduct);
 
             return productConverter.toResponseDTO(savedProduct);
         }, requestDTO.getProductName(), creatorId);
@@ -155,6 +241,7 @@ public class ProductService extends BaseService {
             // 更新商品信息
             Product updatedProduct = productConverter.updateEntity(product, requestDTO);
             Product savedProduct = productRepository.save(updatedProduct);
+            productChangePublisher.changed(savedProduct);
 
             return productConverter.toResponseDTO(savedProduct);
         }, id, updaterId);
@@ -174,12 +261,15 @@ public class ProductService extends BaseService {
 
             // 删除商品
             productRepository.deleteById(id);
+            productChangePublisher.removed(id);
         }, id, deleterId);
     }
 
     /**
      * 🔍 搜索商品
      *
+     * 由内嵌搜索索引完成匹配、筛选和排序，不访问数据库。
+     *
      * @param queryRequest 查询请求DTO
      * @return 搜索结果列表
      */
@@ -187,10 +277,149 @@ public class ProductService extends BaseService {
         log.info("搜索商品: keyword={}, category={}",
                 queryRequest.getKeyword(), queryRequest.getCategory());
 
-        Specification<Product> spec = buildSearchSpecification(queryRequest);
-        List<Product> products = productRepository.findAll(spec);
+        return productSearchIndex.search(queryRequest).rows().stream()
+                .map(productConverter::toListItemDTO)
+                .toList();
+    }
 
-        return productConverter.toListItemDTOList(products);
+    /**
+     * 🏷️ 搜索商品并返回规格分面
+     *
+     * @param queryRequest 查询请求DTO（page从1开始）
+     * @return 当前页商品、命中总数和各规格值的商品数
+     */
+    public ProductSearchResultDTO searchProductsWithFacets(ProductQueryRequestDTO queryRequest) {
+        log.info("分面搜索商品: keyword={}, page={}, pageSize={}",
+                queryRequest.getKeyword(), queryRequest.getPage(), queryRequest.getPageSize());
+
+        ProductSearchIndex.Hits hits = productSearchIndex.search(queryRequest);
+        boolean paged = queryRequest.getPageSize() != null && queryRequest.getPageSize() > 0;
+        return ProductSearchResultDTO.builder()
+                .items(hits.rows().stream().map(productConverter::toListItemDTO).toList())
+                .total(hits.total())
+                .page(paged && queryRequest.getPage() != null && queryRequest.getPage() > 0 ? queryRequest.getPage() : 1)
+                .pageSize(paged ? queryRequest.getPageSize() : (int) hits.total())
+                .facets(hits.facets())
+                .build();
+    }
+
+    /**
+     * 💡 商品输入提示
+     *
+     * 由内存前缀索引返回名称以输入内容开头（或名称中某个词、名称全拼、名称首字母以其开头）的上架商品，按销量排序。
+     *
+     * @param prefix 用户已输入的内容
+     * @param limit 最多返回条数
+     * @return 输入提示列表
+     */
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, int limit) {
+        return productSuggestIndex.suggest(prefix, limit).stream()
+                .map(suggestion -> ProductSuggestionDTO.builder()
+                        .id(suggestion.id())
+                        .productName(suggestion.productName())
+                        .salesCount(suggestion.salesCount())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * 🧮 计算筛选面板的分面计数
+     *
+     * 由内存位图求交得出，不访问数据库。
+     *
+     * @param query 筛选面板的当前选择
+     * @return 命中总数和各维度选项的商品数
+     */
+    public ProductFacetsDTO getProductFacets(ProductFacetQueryDTO query) {
+        return productFacetEngine.facets(query);
+    }
+
+    /**
+     * 🔄 从数据库重建商品搜索索引、输入提示索引和分面位图
+     *
+     * @return 写入搜索索引的商品数
+     */
+    public long rebuildSearchIndex() {
+        return executeWithLog("重建商品搜索索引", () -> {
+            long indexed = productSearchIndex.rebuild();
+            productSuggestIndex.rebuild();
+            productFacetEngine.rebuild();
+            return indexed;
+        });
+    }
+
+    /**
+     * 🔎 按相关度分页检索商品
+     *
+     * 由数据库维护的n-gram检索向量（GIN索引）和名称/描述的pg_trgm索引支撑，
+     * 不再对products做全表LIKE扫描。先按相关度取一页商品ID，再用列表投影查询取出这一页的列。
+     *
+     * @param keyword 搜索关键词
+     * @param page 页码（从0开始）
+     * @param size 每页大小
+     * @param onlyAvailable 是否只检索上架商品
+     * @param exactTotal 是否要求精确总数（false时使用短时缓存的计数）
+     * @return 按相关度排序的分页商品列表
+     */
+    public CountedPage<ProductListItemDTO> searchProductsByRelevance(String keyword, int page, int size,
+                                                                     boolean onlyAvailable, boolean exactTotal) {
+        log.info("相关度检索商品: keyword={}, page={}, size={}, onlyAvailable={}", keyword, page, size, onlyAvailable);
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("搜索关键词不能为空");
+        }
+        validatePositive(size, "每页大小");
+
+        String searchKeyword = keyword.trim();
+        String pattern = "%" + escapeLike(searchKeyword) + "%";
+        Pageable pageable = PageRequest.of(page, size);
+
+        List<Long> ids = productRepository.searchIdsByRelevance(searchKeyword, pattern, onlyAvailable, pageable);
+        List<ProductListItemDTO> content = findListItemsInOrder(ids);
+
+        return pageTotalCounter.toPage(content, pageable, exactTotal,
+                "products|search=" + searchKeyword.toLowerCase() + "|available=" + onlyAvailable,
+                () -> productRepository.countByRelevanceSearch(searchKeyword, pattern, onlyAvailable), null);
+    }
+
+    /**
+     * 🧩 按规格属性和数值区间筛选商品（分页）
+     *
+     * 规格键值约束编译为productData上的JSONB包含判断（jsonb_path_ops GIN索引），
+     * 价格、库存、上架状态走普通列，规格数值区间逐行判断。列表只查询投影列。
+     *
+     * @param filter 筛选条件
+     * @return 分页商品列表
+     */
+    public CountedPage<ProductListItemDTO> filterProducts(ProductAttributeFilterDTO filter) {
+        log.info("属性筛选商品: filter={}", filter);
+        validatePositive(filter.getSize(), "每页大小");
+
+        String sortBy = PRODUCT_FILTER_SORT_KEYS.contains(filter.getSortBy()) ? filter.getSortBy() : "id";
+        Sort.Direction direction = "ASC".equalsIgnoreCase(filter.getSortDirection()) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Pageable pageable = PageRequest.of(filter.getPage(), filter.getSize(), Sort.by(direction, sortBy).and(Sort.by(direction, "id")));
+
+        Specification<Product> spec = Specification.allOf(
+                ProductSpecifications.specificationsMatch(filter.getSpecifications()),
+                columnRange("price", filter.getMinPrice(), filter.getMaxPrice()),
+                columnRange("stockQuantity", filter.getMinStock(), filter.getMaxStock()),
+                filter.getIsAvailable() == null ? null
+                        : (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("isAvailable"), filter.getIsAvailable()));
+        if (filter.getSpecificationRanges() != null) {
+            for (Map.Entry<String, ProductAttributeFilterDTO.Range> range : new TreeMap<>(filter.getSpecificationRanges()).entrySet()) {
+                if (range.getValue() != null) {
+                    spec = spec.and(ProductSpecifications.specificationInRange(
+                            range.getKey(), range.getValue().getMin(), range.getValue().getMax()));
+                }
+            }
+        }
+
+        List<ProductListItemDTO> content = productRepository.findListRowContent(spec, pageable).stream()
+                .map(productConverter::toListItemDTO)
+                .toList();
+
+        Specification<Product> countSpec = spec;
+        return pageTotalCounter.toPage(content, pageable, filter.isExactTotal(), filterCountKey(filter),
+                () -> productRepository.count(countSpec), null);
     }
 
     /**
@@ -202,10 +431,7 @@ public class ProductService extends BaseService {
     public List<ProductSummaryDTO> getProductSummaries(int limit) {
         log.info("获取商品摘要列表: limit={}", limit);
 
-        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "salesCount"));
-        List<Product> products = productRepository.findTopProductsBySalesCount(pageable);
-
-        return products.stream()
+        return productRepository.findListRows(null, Sort.by(Sort.Direction.DESC, "salesCount"), limit).stream()
                 .map(productConverter::toSummaryDTO)
                 .toList();
     }
@@ -222,12 +448,9 @@ public class ProductService extends BaseService {
             // 验证数量为正数
             validatePositive(quantity, "增加数量");
 
-            // 验证商品存在
-            Product product = validateExists(productRepository.findById(id), "商品", id);
-
-            // 增加库存
-            product.increaseStock(quantity);
-            productRepository.save(product);
+            // 原子增加库存，同时验证商品存在
+            Product product = validateExists(productRepository.increaseStock(id, quantity), "商品", id);
+            productChangePublisher.changed(product);
         }, id, quantity);
     }
 
@@ -244,21 +467,22 @@ public class ProductService extends BaseService {
             // 验证数量为正数
             validatePositive(quantity, "减少数量");
 
-            // 验证商品存在
-            Product product = validateExists(productRepository.findById(id), "商品", id);
-
-            // 减少库存
-            boolean success = product.decreaseStock(quantity);
-            if (success) {
-                productRepository.save(product);
-                log.info("商品库存减少成功: id={}, newStock={}, newSales={}",
-                        id, product.getStockQuantity(), product.getSalesCount());
-            } else {
-                log.warn("商品库存不足，无法减少: id={}, requested={}, current={}",
-                        id, quantity, product.getStockQuantity());
+            // 条件UPDATE原子扣减：判断库存和扣减在同一条语句中完成
+            Optional<Product> decreased = productRepository.decreaseStockIfSufficient(id, quantity);
+            if (decreased.isEmpty()) {
+                // 只在失败时区分商品不存在和库存不足
+                if (!productRepository.existsById(id)) {
+                    throw new RuntimeException("商品不存在: " + id);
+                }
+                log.warn("商品库存不足或已下架，无法减少: id={}, requested={}", id, quantity);
+                return false;
             }
 
-            return success;
+            Product product = decreased.get();
+            productChangePublisher.changed(product);
+            log.info("商品库存减少成功: id={}, newStock={}, newSales={}",
+                    id, product.getStockQuantity(), product.getSalesCount());
+            return true;
         }, id, quantity);
     }
 
@@ -277,6 +501,7 @@ public class ProductService extends BaseService {
             // 切换状态
             product.setIsAvailable(!product.getIsAvailable());
             productRepository.save(product);
+            productChangePublisher.changed(product);
         }, id, operatorId);
     }
 
@@ -291,17 +516,22 @@ public class ProductService extends BaseService {
      * @param isAvailable 是否上架（可选）
      * @param sortBy 排序字段
      * @param sortDirection 排序方向
+     * @param exactTotal 是否要求精确总数（false时使用按过滤条件短时缓存的计数）
      * @return 商家商品分页列表
      */
-    public Page<ProductListItemDTO> getMerchantProducts(
+    public CountedPage<ProductListItemDTO> getMerchantProducts(
             Long merchantId, int page, int size, String keyword,
-            String category, Boolean isAvailable, String sortBy, String sortDirection) {
-        log.info("获取商家商品列表: merchantId={}, page={}, size={}, keyword={}, category={}, isAvailable={}, sortBy={}, sortDirection={}",
-                merchantId, page, size, keyword, category, isAvailable, sortBy, sortDirection);
+            String category, Boolean isAvailable, String sortBy, String sortDirection, boolean exactTotal) {
+        log.info("获取商家商品列表: merchantId={}, page={}, size={}, keyword={}, category={}, isAvailable={}, sortBy={}, sortDirection={}, exactTotal={}",
+                merchantId, page, size, keyword, category, isAvailable, sortBy, sortDirection, exactTotal);
 
         Sort.Direction direction = "DESC".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
+        // 规范化过滤条件：空白视为未填写，关键词按查询时的方式转小写
+        String searchKeyword = keyword != null && !keyword.trim().isEmpty() ? keyword.toLowerCase() : null;
+        String searchCategory = category != null && !category.trim().isEmpty() ? category.trim() : null;
+
         // 构建查询条件
         Specification<Product> spec = (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
@@ -315,25 +545,31 @@ public class ProductService extends BaseService {
             }
 
             // 关键词搜索
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                String searchKeyword = "%" + keyword.toLowerCase() + "%";
+            if (searchKeyword != null) {
+                String pattern = "%" + searchKeyword + "%";
                 Predicate namePredicate = criteriaBuilder.like(
-                    criteriaBuilder.lower(root.get("productName")), searchKeyword);
+                    criteriaBuilder.lower(root.get("productName")), pattern);
                 Predicate descPredicate = criteriaBuilder.like(
-                    criteriaBuilder.lower(root.get("description")), searchKeyword);
+                    criteriaBuilder.lower(root.get("description")), pattern);
                 predicates.add(criteriaBuilder.or(namePredicate, descPredicate));
             }
 
-            // 按分类过滤
-            if (category != null && !category.trim().isEmpty()) {
-                predicates.add(criteriaBuilder.equal(root.get("category"), category));
+            // 按分类过滤（分类生成列，走idx_products_category索引）
+            if (searchCategory != null) {
+                predicates.add(criteriaBuilder.equal(root.get("category"), searchCategory));
             }
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
 
-        Page<Product> productPage = productRepository.findAll(spec, pageable);
-        return productPage.map(productConverter::toListItemDTO);
+        List<ProductListItemDTO> content = productRepository.findListRowContent(spec, pageable).stream()
+                .map(productConverter::toListItemDTO)
+                .toList();
+
+        String countKey = "products|merchant=" + merchantId + "|available=" + isAvailable
+                + "|keyword=" + searchKeyword + "|category=" + searchCategory;
+        return pageTotalCounter.toPage(content, pageable, exactTotal, countKey,
+                () -> productRepository.count(spec), null);
     }
 
     /**
@@ -412,40 +648,154 @@ public class ProductService extends BaseService {
     // ==================== 🔧 私有辅助方法 ====================
 
     /**
-     * 🔍 构建搜索规格
+     * 🔖 取列表行中游标排序字段的值
      */
-    private Specification<Product> buildSearchSpecification(ProductQueryRequestDTO queryRequest) {
-        return (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
+    private static Object sortKeyOf(ProductListRow row, String sortBy) {
+        return switch (sortBy) {
+            case "createdAt" -> row.createdAt();
+            case "salesCount" -> row.salesCount();
+            case "price" -> row.price();
+            case "effectivePrice" -> row.effectivePrice();
+            default -> row.id();
+        };
+    }
 
-            // 关键词搜索
-            if (queryRequest.getKeyword() != null && !queryRequest.getKeyword().trim().isEmpty()) {
-                String keyword = "%" + queryRequest.getKeyword().trim() + "%";
-                Predicate namePredicate = criteriaBuilder.like(root.get("productName"), keyword);
-                Predicate descPredicate = criteriaBuilder.like(root.get("description"), keyword);
-                predicates.add(criteriaBuilder.or(namePredicate, descPredicate));
+    /**
+     * 📏 列上的闭区间条件，两端都为null时返回null
+     */
+    private static <T extends Comparable<? super T>> Specification<Product> columnRange(String attribute, T min, T max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        return (root, query, criteriaBuilder) -> {
+            if (min != null && max != null) {
+                return criteriaBuilder.between(root.<T>get(attribute), min, max);
             }
+            return min != null
+                    ? criteriaBuilder.greaterThanOrEqualTo(root.<T>get(attribute), min)
+                    : criteriaBuilder.lessThanOrEqualTo(root.<T>get(attribute), max);
+        };
+    }
 
-            // 价格范围
-            if (queryRequest.getMinPrice() != null && queryRequest.getMinPrice().compareTo(BigDecimal.ZERO) > 0) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("price"), queryRequest.getMinPrice()));
-            }
-            if (queryRequest.getMaxPrice() != null && queryRequest.getMaxPrice().compareTo(BigDecimal.ZERO) > 0) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("price"), queryRequest.getMaxPrice()));
-            }
+    /**
+     * 🔑 属性筛选的计数缓存键，规格按名称和值排序，条件相同的请求共用一个计数
+     */
+    private static String filterCountKey(ProductAttributeFilterDTO filter) {
+        Map<String, List<String>> specifications = new TreeMap<>();
+        if (filter.getSpecifications() != null) {
+            filter.getSpecifications().forEach((key, values) ->
+                    specifications.put(key, values == null ? List.of() : values.stream().filter(Objects::nonNull).sorted().toList()));
+        }
+        Map<String, String> ranges = new TreeMap<>();
+        if (filter.getSpecificationRanges() != null) {
+            filter.getSpecificationRanges().forEach((key, range) ->
+                    ranges.put(key, range == null ? "" : range.getMin() + "~" + range.getMax()));
+        }
+        return "products|filter|specs=" + specifications + "|ranges=" + ranges
+                + "|price=" + filter.getMinPrice() + "~" + filter.getMaxPrice()
+                + "|stock=" + filter.getMinStock() + "~" + filter.getMaxStock()
+                + "|available=" + filter.getIsAvailable();
+    }
 
-            // 是否上架
-            if (queryRequest.getIsAvailable() != null) {
-                predicates.add(criteriaBuilder.equal(root.get("isAvailable"), queryRequest.getIsAvailable()));
-            }
+    /**
+     * 📋 按给定ID顺序取商品列表项（只查询投影列）
+     */
+    private List<ProductListItemDTO> findListItemsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductListRow> rowsById = productRepository
+                .findListRows((root, query, criteriaBuilder) -> root.get("id").in(ids), Sort.unsorted(), 0).stream()
+                .collect(Collectors.toMap(ProductListRow::id, Function.identity()));
+        return ids.stream()
+                .map(rowsById::get)
+                .filter(Objects::nonNull)
+                .map(productConverter::toListItemDTO)
+                .toList();
+    }
 
-            // 库存筛选
-            if (queryRequest.getHasStock() != null && queryRequest.getHasStock()) {
-                predicates.add(criteriaBuilder.greaterThan(root.get("stockQuantity"), 0));
-            }
+    /**
+     * 🔤 转义LIKE通配符，关键词中的%和_按字面匹配
+     */
+    private static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    // ==================== 🧩 商品扩展数据局部更新 ====================
+
+    /**
+     * 🖼️ 更新商品主图片（只改写image_data.main_image）
+     *
+     * @param id 商品ID
+     * @param userId 操作用户ID（必须是商品创建者）
+     * @param mainImageUrl 主图片URL，null表示清除
+     * @return 商品存在且属于该用户时返回true
+     */
+    @Transactional
+    public boolean updateProductMainImage(Long id, Long userId, String mainImageUrl) {
+        return afterProductDataUpdate(id, productDataService.updateMainImage(id, userId, mainImageUrl));
+    }
+
+    /**
+     * 🖼️ 向商品图库追加图片（只改写image_data.gallery）
+     *
+     * @param id 商品ID
+     * @param userId 操作用户ID（必须是商品创建者）
+     * @param imageUrl 图片URL
+     * @return 商品存在且属于该用户时返回true
+     */
+    @Transactional
+    public boolean addProductGalleryImage(Long id, Long userId, String imageUrl) {
+        return afterProductDataUpdate(id, productDataService.addGalleryImage(id, userId, imageUrl));
+    }
+
+    /**
+     * 🗑️ 从商品图库移除图片（只改写image_data.gallery）
+     *
+     * @param id 商品ID
+     * @param userId 操作用户ID（必须是商品创建者）
+     * @param imageUrl 图片URL
+     * @return 图库中存在该图片并已移除时返回true
+     */
+    @Transactional
+    public boolean removeProductGalleryImage(Long id, Long userId, String imageUrl) {
+        return afterProductDataUpdate(id, productDataService.removeGalleryImage(id, userId, imageUrl));
+    }
+
+    /**
+     * 📋 替换商品规格（只改写specifications，分类/品牌生成列由数据库重算）
+     *
+     * @param id 商品ID
+     * @param userId 操作用户ID（必须是商品创建者）
+     * @param specifications 规格数据，没有有效规格时清除规格
+     * @return 商品存在且属于该用户时返回true
+     */
+    @Transactional
+    public boolean replaceProductSpecifications(Long id, Long userId, Map<String, Object> specifications) {
+        return afterProductDataUpdate(id, productDataService.replaceSpecifications(id, userId, specifications));
+    }
+
+    /**
+     * 🔍 检查商品是否属于指定用户（不加载实体）
+     *
+     * @param id 商品ID
+     * @param userId 用户ID
+     * @return 是否存在且属于该用户
+     */
+    public boolean isProductOwnedBy(Long id, Long userId) {
+        return productRepository.existsByIdAndCreator_Id(id, userId);
+    }
+
+    /**
+     * 局部更新成功后重新读取一次商品，通知缓存和索引
+     * （局部更新已清空持久化上下文，这里读到的是更新后的数据）
+     */
+    private boolean afterProductDataUpdate(Long id, boolean updated) {
+        if (!updated) {
+            return false;
+        }
+        productRepository.findById(id).ifPresent(productChangePublisher::changed);
+        return true;
     }
 
     // ==================== 🔧 图片上传相关方法 ====================
@@ -471,6 +821,8 @@ public class ProductService extends BaseService {
      */
     @Transactional
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productChangePublisher.changed(savedProduct);
+        return savedProduct;
     }
 }
\ No newline at end of file
@@ -0,0 +1,379 @@
+package com.cmliy.springweb.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.util.PinyinUtils;
+import com.cmliy.springweb.util.TransactionHooks;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 💡 商品输入提示索引 - Product Suggest Index
+ *
+ * 内存中的前缀树，搜索框每输入一个字符就查询一次，只需沿前缀走到对应节点，
+ * 直接返回节点上预先排好序的结果，不访问数据库。
+ *
+ * 🚀 设计特点：
+ * - 每个前缀节点保存经过它的销量最高的suggestTopK个商品，查询时间只与前缀长度有关
+ * - 前缀只建到suggestMaxPrefixLength个字符，控制内存占用
+ * - 名称去掉空白并转小写；除整个名称外，名称中每个空白分隔的词开头也可以匹配
+ * - 名称的全拼和首字母也作为键，输入"chunmian"或"cm"都能提示出"纯棉T恤"
+ * - 只收录上架商品
+ * - 查询无锁：子节点表是ConcurrentHashMap，节点上的结果数组发布后不再修改
+ * - 写入串行：通过ProductChangeListener接收商品写入通知，事务提交后只重算受影响路径上的节点
+ * - 重建分页读取数据库时不持写入锁，期间提交的更新照常写入旧树并记录下来，替换前在新树上重放
+ */
+@Slf4j
+@Component
+public class ProductSuggestIndex implements ProductChangeListener {
+
+    private static final Suggestion[] EMPTY = new Suggestion[0];
+
+    /**
+     * 销量高的在前，销量相同时新商品在前
+     */
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingInt(Suggestion::salesCount).reversed()
+            .thenComparing(Suggestion::id, Comparator.reverseOrder());
+
+    private final ProductRepository productRepository;
+    private final AppConfig.ProductSearchConfig config;
+
+    /**
+     * 前缀树根节点，全量重建时整体替换
+     */
+    private volatile Node root = new Node();
+
+    /**
+     * 已收录的商品及其前缀键（只在持有this锁时访问）
+     */
+    private Map<Long, Entry> entries = new HashMap<>();
+
+    /**
+     * 重建期间提交的更新（商品ID → 新条目，空表示移除），只在持有this锁时访问；为null表示没有进行中的重建
+     */
+    private Map<Long, Optional<Entry>> pendingDeltas;
+
+    /**
+     * 同一时间只进行一次全量重建
+     */
+    private final Object rebuildLock = new Object();
+
+    /**
+     * 💡 一条输入提示
+     *
+     * @param id 商品ID
+     * @param productName 商品名称
+     * @param salesCount 销量
+     */
+    public record Suggestion(Long id, String productName, int salesCount) {
+    }
+
+    private record Entry(Suggestion suggestion, Set<String> keys) {
+    }
+
+    private static final class Node {
+        final Map<Integer, Node> children = new ConcurrentHashMap<>();
+        /**
+         * 键在这个节点结束（或在此被截断）的商品ID
+         */
+        final Set<Long> terminals = new HashSet<>();
+        volatile Suggestion[] top = EMPTY;
+    }
+
+    public ProductSuggestIndex(ProductRepository productRepository, AppConfig appConfig) {
+        this.productRepository = productRepository;
+        this.config = appConfig.getProductSearch();
+    }
+
+    /**
+     * 🚀 应用启动完成后（data.sql已执行）全量建立索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 🔄 从数据库全量重建前缀树
+     *
+     * 在新的树上构建，完成后一次性替换，重建期间查询和更新继续使用旧树；
+     * 只有开始记录和最后重放、替换时短暂持写入锁，分页读取数据库时不阻塞提交回调。
+     *
+     * @return 收录的商品数
+     */
+    public long rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pendingDeltas = new LinkedHashMap<>();
+            }
+            try {
+                return rebuildAndSwap();
+            } finally {
+                synchronized (this) {
+                    pendingDeltas = null;
+                }
+            }
+        }
+    }
+
+    private long rebuildAndSwap() {
+        Node newRoot = new Node();
+        Map<Long, Entry> newEntries = new HashMap<>();
+        int pageNumber = 0;
+        Page<Product> batch;
+        do {
+            batch = productRepository.findAll(PageRequest.of(pageNumber++, config.getRebuildBatchSize(), Sort.by("id")));
+            for (Product product : batch) {
+                Entry entry = toEntry(product);
+                if (entry != null) {
+                    newEntries.put(entry.suggestion().id(), entry);
+                    insert(newRoot, entry);
+                }
+            }
+        } while (batch.hasNext());
+
+        int replayed;
+        synchronized (this) {
+            // 读取期间提交的更新比分页读到的数据新，按提交顺序重放后再替换
+            replayed = pendingDeltas.size();
+            pendingDeltas.forEach((productId, entry) -> applyTo(newRoot, newEntries, productId, entry.orElse(null)));
+            root = newRoot;
+            entries = newEntries;
+        }
+        log.info("商品输入提示索引重建完成: indexed={}, replayed={}", newEntries.size(), replayed);
+        return newEntries.size();
+    }
+
+    /**
+     * 📝 收录或更新商品；下架商品会被移除
+     *
+     * 提示内容在调用时根据实体当前状态生成；存在事务时在提交后写入，否则立即写入。
+     *
+     * @param product 已保存的商品实体
+     */
+    @Override
+    public void onProductChanged(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Long productId = product.getId();
+        Entry entry = toEntry(product);
+        TransactionHooks.afterCommit(() -> apply(productId, entry));
+    }
+
+    /**
+     * 🗑️ 移除商品
+     *
+     * @param productId 已删除的商品ID
+     */
+    @Override
+    public void onProductRemoved(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> apply(productId, null));
+    }
+
+    /**
+     * 🔎 按前缀查询输入提示
+     *
+     * @param prefix 用户已输入的内容
+     * @param limit 最多返回条数（不超过suggestTopK）
+     * @return 按销量排序的提示，前缀为空或无匹配时返回空列表
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Node node = root;
+        int depth = 0;
+        for (int i = 0; i < key.length() && depth < config.getSuggestMaxPrefixLength(); depth++) {
+            int codePoint = key.codePointAt(i);
+            node = node.children.get(codePoint);
+            if (node == null) {
+                return List.of();
+            }
+            i += Character.charCount(codePoint);
+        }
+        Suggestion[] top = node.top;
+        return List.of(Arrays.copyOf(top, Math.min(limit, top.length)));
+    }
+
+    // ==================== 🔧 私有辅助方法 ====================
+
+    private synchronized void apply(Long productId, Entry entry) {
+        try {
+            if (pendingDeltas != null) {
+                pendingDeltas.remove(productId); // 重新放到末尾，保持最后一次提交的顺序
+                pendingDeltas.put(productId, Optional.ofNullable(entry));
+            }
+            applyTo(root, entries, productId, entry);
+        } catch (RuntimeException e) {
+            // 数据库写入已经成功，提示落后可以通过rebuild()修复，这里不向调用方抛出
+            log.error("商品输入提示索引更新失败: productId={}", productId, e);
+        }
+    }
+
+    private void applyTo(Node tree, Map<Long, Entry> treeEntries, Long productId, Entry entry) {
+        Entry previous = treeEntries.remove(productId);
+        if (previous != null) {
+            delete(tree, treeEntries, previous);
+        }
+        if (entry != null) {
+            treeEntries.put(productId, entry);
+            insert(tree, entry);
+        }
+    }
+
+    /**
+     * 沿每个键的路径把商品并入各节点的前k名
+     */
+    private void insert(Node tree, Entry entry) {
+        Suggestion suggestion = entry.suggestion();
+        for (String key : entry.keys()) {
+            Node node = tree;
+            node.top = merge(node.top, suggestion);
+            int depth = 0;
+            for (int i = 0; i < key.length() && depth < config.getSuggestMaxPrefixLength(); depth++) {
+                int codePoint = key.codePointAt(i);
+                node = node.children.computeIfAbsent(codePoint, ignored -> new Node());
+                node.top = merge(node.top, suggestion);
+                i += Character.charCount(codePoint);
+            }
+            node.terminals.add(suggestion.id());
+        }
+    }
+
+    /**
+     * 从每个键的路径上摘除商品，自底向上重算前k名，并删除空节点
+     */
+    private void delete(Node tree, Map<Long, Entry> treeEntries, Entry entry) {
+        Long productId = entry.suggestion().id();
+        for (String key : entry.keys()) {
+            Deque<Node> path = new ArrayDeque<>();
+            Deque<Integer> edges = new ArrayDeque<>();
+            Node node = tree;
+            path.push(node);
+            int depth = 0;
+            for (int i = 0; i < key.length() && depth < config.getSuggestMaxPrefixLength(); depth++) {
+                int codePoint = key.codePointAt(i);
+                node = node.children.get(codePoint);
+                if (node == null) {
+                    break;
+                }
+                path.push(node);
+                edges.push(codePoint);
+                i += Character.charCount(codePoint);
+            }
+            path.peek().terminals.remove(productId);
+
+            while (!path.isEmpty()) {
+                Node current = path.pop();
+                if (current == tree) {
+                    current.top = recompute(current, treeEntries);
+                    continue;
+                }
+                int edge = edges.pop();
+                if (current.terminals.isEmpty() && current.children.isEmpty()) {
+                    path.peek().children.remove(edge);
+                } else {
+                    current.top = recompute(current, treeEntries);
+                }
+            }
+        }
+    }
+
+    private Suggestion[] merge(Suggestion[] top, Suggestion suggestion) {
+        List<Suggestion> merged = new ArrayList<>(top.length + 1);
+        for (Suggestion existing : top) {
+            if (!existing.id().equals(suggestion.id())) {
+                merged.add(existing);
+            }
+        }
+        merged.add(suggestion);
+        merged.sort(RANKING);
+        return merged.subList(0, Math.min(merged.size(), config.getSuggestTopK())).toArray(EMPTY);
+    }
+
+    /**
+     * 节点的前k名 = 在此结束的商品 ∪ 各子节点的前k名 中的前k名
+     */
+    private Suggestion[] recompute(Node node, Map<Long, Entry> treeEntries) {
+        Map<Long, Suggestion> candidates = new LinkedHashMap<>();
+        for (Long id : node.terminals) {
+            Entry entry = treeEntries.get(id);
+            if (entry != null) {
+                candidates.put(id, entry.suggestion());
+            }
+        }
+        for (Node child : node.children.values()) {
+            for (Suggestion suggestion : child.top) {
+                candidates.putIfAbsent(suggestion.id(), suggestion);
+            }
+        }
+        return candidates.values().stream()
+                .sorted(RANKING)
+                .limit(config.getSuggestTopK())
+                .toArray(Suggestion[]::new);
+    }
+
+    /**
+     * 未上架或名称为空的商品不收录，返回null
+     */
+    private static Entry toEntry(Product product) {
+        if (!Boolean.TRUE.equals(product.getIsAvailable()) || product.getProductName() == null
+                || product.getProductName().isBlank()) {
+            return null;
+        }
+        Suggestion suggestion = new Suggestion(product.getId(), product.getProductName(),
+                product.getSalesCount() != null ? product.getSalesCount() : 0);
+        Set<String> keys = keysOf(product.getProductName());
+        return keys.isEmpty() ? null : new Entry(suggestion, keys);
+    }
+
+    /**
+     * 前缀键：整个名称，名称中每个空白分隔的词开头的后缀，以及整个名称的全拼和首字母
+     */
+    private static Set<String> keysOf(String productName) {
+        Set<String> keys = new LinkedHashSet<>();
+        String[] words = productName.trim().split("\\s+");
+        for (int i = 0; i < words.length; i++) {
+            String key = normalize(String.join("", Arrays.asList(words).subList(i, words.length)));
+            if (!key.isEmpty()) {
+                keys.add(key);
+            }
+        }
+        keys.addAll(PinyinUtils.fullPinyin(productName));
+        keys.addAll(PinyinUtils.initials(productName));
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", "").toLowerCase();
+    }
+}
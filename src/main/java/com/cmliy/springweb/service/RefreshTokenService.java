@@ -0,0 +1,172 @@
+package com.cmliy.springweb.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.cmliy.springweb.exception.BusinessException;
+import com.cmliy.springweb.model.RefreshToken;
+import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.RefreshTokenRepository;
+import com.cmliy.springweb.security.JwtUserPrincipal;
+import com.cmliy.springweb.security.TokenRevocationService;
+import com.cmliy.springweb.util.JwtUtil;
+
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🔄 刷新令牌服务 - Refresh Token Service
+ *
+ * 负责刷新令牌的签发、轮换和登出吊销：
+ * - 刷新令牌是32字节随机数的Base64URL字符串，数据库只保存SHA-256摘要
+ * - 每次刷新都会吊销旧令牌并签发新令牌（轮换）
+ * - 已吊销的刷新令牌再次出现视为重放，吊销该用户的全部刷新令牌
+ * - 登出时吊销当前访问令牌的jti和提交的刷新令牌
+ */
+@Slf4j
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class RefreshTokenService extends BaseService {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserCache userCache;
+    private final JwtUtil jwtUtil;
+
+    /**
+     * 🎫 签发结果：新的访问令牌、刷新令牌以及对应的用户快照
+     */
+    public record IssuedTokens(String accessToken, String refreshToken, User user) {
+        @Override
+        public String toString() {
+            return "IssuedTokens[userId=" + user.getId() + "]";  // 避免令牌明文进入日志
+        }
+    }
+
+    /**
+     * 🆕 为用户签发新的刷新令牌
+     *
+     * @param userId 用户ID
+     * @return 刷新令牌明文，只返回给客户端一次
+     */
+    public String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        SECURE_RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(rawToken))
+                .userId(userId)
+                .expiresAt(LocalDateTime.now().plusNanos(jwtUtil.getRefreshExpiration() * 1_000_000L))
+                .build());
+        return rawToken;
+    }
+
+    /**
+     * 🔄 使用刷新令牌换取新的访问令牌和刷新令牌
+     *
+     * @param rawToken 客户端提交的刷新令牌
+     * @return 新签发的令牌对
+     * @throws BusinessException 当刷新令牌无效、过期、被重放或用户不可用时抛出
+     */
+    @Transactional(noRollbackFor = BusinessException.class)  // 重放检测的批量吊销需要在抛出异常后仍然提交
+    public IssuedTokens refresh(String rawToken) {
+        return executeWithLog("刷新访问令牌", () -> {
+            if (rawToken == null || rawToken.isBlank()) {
+                throw new BusinessException("刷新令牌不能为空");
+            }
+            RefreshToken stored = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                    .orElseThrow(() -> new BusinessException("刷新令牌无效"));
+
+            if (Boolean.TRUE.equals(stored.getRevoked())) {
+                // 已轮换过的令牌被再次使用：可能被盗用，吊销该用户全部刷新令牌
+                throw replayDetected(stored.getUserId());
+            }
+            if (!stored.isUsable(LocalDateTime.now())) {
+                throw new BusinessException("刷新令牌已过期，请重新登录");
+            }
+
+            User user = userCache.findById(stored.getUserId())
+                    .orElseThrow(() -> new BusinessException("用户不存在"));
+            if (!Boolean.TRUE.equals(user.getEnabled())) {
+                throw new BusinessException("账户已被禁用");
+            }
+
+            // 轮换：条件UPDATE认领旧令牌，并发提交同一令牌时只有一个请求能换到新令牌，其余按重放处理
+            if (refreshTokenRepository.revokeIfActive(stored.getId()) != 1) {
+                throw replayDetected(stored.getUserId());
+            }
+
+            JwtUserPrincipal principal = JwtUserPrincipal.fromUser(user);
+            principal.eraseCredentials();
+            return new IssuedTokens(jwtUtil.generateToken(principal), issue(user.getId()), user);
+        });
+    }
+
+    /**
+     * 🚪 登出：吊销当前访问令牌和刷新令牌
+     *
+     * @param accessClaims 当前请求已验证的访问令牌声明，可以为null
+     * @param rawRefreshToken 客户端提交的刷新令牌，可以为null
+     */
+    public void logout(Claims accessClaims, String rawRefreshToken) {
+        executeWithLog("登出吊销令牌", () -> {
+            Long userId = null;
+            if (accessClaims != null) {
+                userId = jwtUtil.getUserId(accessClaims);
+                LocalDateTime expiresAt = LocalDateTime.ofInstant(
+                        accessClaims.getExpiration().toInstant(), ZoneId.systemDefault());
+                tokenRevocationService.revoke(accessClaims.getId(), expiresAt);
+            }
+
+            if (rawRefreshToken != null && !rawRefreshToken.isBlank()) {
+                Long ownerId = userId;
+                refreshTokenRepository.findByTokenHash(hash(rawRefreshToken))
+                        .filter(token -> ownerId == null || ownerId.equals(token.getUserId()))
+                        .ifPresent(token -> {
+                            token.setRevoked(true);
+                            refreshTokenRepository.save(token);
+                        });
+            }
+        });
+    }
+
+    /**
+     * 🧹 应用启动时清理已过期的刷新令牌
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeExpired() {
+        int purged = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("已清理过期刷新令牌: count={}", purged);
+    }
+
+    private BusinessException replayDetected(Long userId) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId);
+        log.warn("检测到刷新令牌重放，已吊销用户全部刷新令牌: userId={}, count={}", userId, revoked);
+        return new BusinessException("刷新令牌已失效，请重新登录");
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.cmliy.springweb.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 🗃️ 用户缓存 - User Cache
+ *
+ * 进程内的用户缓存，同时支持按ID和按用户名查找：
+ * - byId: 用户ID -> 用户快照
+ * - idByUsername: 用户名 -> 用户ID（二级索引，只保存ID，避免重复存储快照）
+ *
+ * 🚀 设计特点：
+ * - 基于Caffeine，容量和写入后过期时间均有上限，淘汰策略为W-TinyLFU
+ * - 缓存中保存的是脱离持久化上下文的快照副本，读取时再复制一份，调用方修改不会污染缓存
+ * - UserService的所有写操作调用invalidate()，并在事务提交后再失效一次，避免提交前被旧数据回填
+ * - 未命中时在Caffeine的原子计算中回源加载：失效会等待同一个键上进行中的加载结束后再删除，
+ *   提交前读到的旧数据不会在失效之后被写回
+ * - 通过Micrometer暴露命中、未命中和淘汰指标（cache.gets / cache.evictions，name=users.byId / users.byUsername）
+ */
+@Slf4j
+@Component
+public class UserCache {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, User> byId;
+    private final Cache<String, Long> idByUsername;
+
+    public UserCache(UserRepository userRepository, AppConfig appConfig, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+
+        AppConfig.UserCacheConfig config = appConfig.getUserCache();
+        Duration ttl = Duration.ofSeconds(config.getExpireAfterWriteSeconds());
+
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idByUsername = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByUsername, "users.byUsername");
+    }
+
+    /**
+     * 🔍 根据ID查找用户
+     *
+     * @param userId 用户ID
+     * @return 用户快照副本，用户不存在时为空
+     */
+    public Optional<User> findById(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        User cached = byId.get(userId, id -> userRepository.findById(id).map(UserCache::copyOf).orElse(null));
+        return Optional.ofNullable(cached).map(UserCache::copyOf);
+    }
+
+    /**
+     * 🔍 根据用户名查找用户
+     *
+     * @param username 用户名
+     * @return 用户快照副本，用户不存在时为空
+     */
+    public Optional<User> findByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        Long userId = idByUsername.get(username, this::loadIdByUsername);
+        if (userId == null) {
+            return Optional.empty();
+        }
+        Optional<User> user = findById(userId);
+        if (user.isPresent() && username.equals(user.get().getUsername())) {
+            return user;
+        }
+        // 索引指向的用户已改名或被删除：丢弃索引，直接查库，不回填
+        idByUsername.invalidate(username);
+        return userRepository.findByUsername(username).map(UserCache::copyOf);
+    }
+
+    /**
+     * ✅ 检查用户名是否存在
+     *
+     * 命中缓存时不访问数据库；不存在的用户名不做缓存，避免注册后读到过期的否定结果。
+     *
+     * @param username 用户名
+     * @return 用户名是否存在
+     */
+    public boolean existsByUsername(String username) {
+        return findByUsername(username).isPresent();
+    }
+
+    /**
+     * 🧹 失效指定用户的缓存
+     *
+     * 立即失效一次；如果当前存在事务，则在事务提交后再失效一次，
+     * 防止并发读取在提交前把旧数据重新写回缓存。
+     *
+     * @param user 发生变更的用户
+     */
+    public void invalidate(User user) {
+        evict(user.getId(), user.getUsername());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Long userId = user.getId();
+            String username = user.getUsername();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId, username);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId, String username) {
+        // 先失效用户名索引：它的加载过程会回填byId，等它结束后再失效byId，回填的旧快照也会被删除
+        if (username != null) {
+            idByUsername.invalidate(username);
+        }
+        if (userId != null) {
+            byId.invalidate(userId);
+        }
+        log.debug("用户缓存已失效: userId={}, username={}", userId, username);
+    }
+
+    /**
+     * 用户名索引未命中时回源：在同一个原子计算中把快照写入byId（已有快照时保留已有的）
+     */
+    private Long loadIdByUsername(String username) {
+        return userRepository.findByUsername(username)
+                .map(user -> byId.get(user.getId(), id -> copyOf(user)).getId())
+                .orElse(null);
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .role(user.getRole())
+                .enabled(user.getEnabled())
+                .tokenVersion(user.getTokenVersion())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+}
@@ -1,18 +1,25 @@
 package com.cmliy.springweb.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.cmliy.springweb.common.CountedPage;
+import com.cmliy.springweb.common.CursorPage;
 import com.cmliy.springweb.converter.UserConverter;
 import com.cmliy.springweb.dto.UserDTO;
 import com.cmliy.springweb.dto.UserManagementDTO;
@@ -20,8 +27,13 @@ import com.cmliy.springweb.dto.UserQueryRequestDTO;
 import com.cmliy.springweb.dto.UserStatisticsDTO;
 import com.cmliy.springweb.exception.BusinessException;
 import com.cmliy.springweb.model.User;
+import com.cmliy.springweb.repository.PageQueryRepository;
+import com.cmliy.springweb.repository.RefreshTokenRepository;
 import com.cmliy.springweb.repository.UserRepository;
+import com.cmliy.springweb.security.TokenVersionStore;
+import com.cmliy.springweb.util.KeysetCursor;
 
+import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -46,9 +58,27 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class UserService extends BaseService {
 
+    /**
+     * 游标分页支持的排序字段及其类型
+     */
+    private static final Map<String, Class<?>> USER_CURSOR_KEYS = Map.of(
+        "id", Long.class,
+        "createdAt", LocalDateTime.class);
+
+    /**
+     * 用户表名，用于读取planner估算行数
+     */
+    private static final String USER_TABLE = "users";
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final UserConverter userConverter;
+    private final TokenVersionStore tokenVersionStore;
+    private final UserCache userCache;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final PageTotalCounter pageTotalCounter;
+    private final PageQueryRepository pageQueryRepository;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * 📝 用户注册
@@ -59,35 +89,30 @@ public class UserService extends BaseService {
      * 3. 设置默认角色和状态
      * 4. 保存用户到数据库
      *
+     * 本方法不开启事务：BCrypt在事务外计算，只有复查和保存在短事务中执行。
+     *
      * @param username 用户名
      * @param email 邮箱地址
      * @param password 明文密码（将被加密存储）
      * @return 创建成功的用户实体
      * @throws BusinessException 当用户名或邮箱已存在时抛出
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public User registerUser(String username, String email, String password) {
         return executeWithLog("用户注册", () -> {
             log.info("开始用户注册流程: username={}", username);
 
-            // 1. 验证用户名唯一性
+            // 1~2. 唯一性预检，不通过时不必计算哈希
             validateUnique(userRepository.existsByUsername(username),
                           "用户名", username);
-
-            // 2. 验证邮箱唯一性
             validateUnique(userRepository.existsByEmail(email),
                           "邮箱", email);
 
-            // 3. 创建用户实体
-            User user = User.builder()
-                .username(username)
-                .email(email)
-                .password(passwordEncoder.encode(password))
-                .role("USER")      // 默认角色
-                .enabled(true)     // 默认启用
-                .build();
+            // 3. BCrypt在事务外计算，等待密码哈希线程池时不占用数据库连接
+            String encodedPassword = passwordHashingService.encode(password);
 
-            // 4. 保存用户
-            User savedUser = userRepository.save(user);
+            // 4. 在短事务中复查唯一性并保存（内部调用不经过代理，显式开启事务）
+            User savedUser = transactionTemplate.execute(status -> persistNewUser(username, email, encodedPassword));
 
             log.info("用户注册成功: username={}, userId={}", username, savedUser.getId());
             return savedUser;
@@ -95,6 +120,36 @@ public class UserService extends BaseService {
         }, username, email);
     }
 
+    /**
+     * 🔐 校验登录凭据
+     *
+     * 只加载一次用户（优先命中用户缓存），BCrypt校验在密码哈希线程池中执行，
+     * 返回的用户快照直接用于签发令牌和构建响应，无需再次查询。
+     * 本方法不开启事务，等待哈希线程池时不占用数据库连接。
+     *
+     * @param username 用户名
+     * @param password 明文密码
+     * @return 通过校验的用户快照
+     * @throws BusinessException 当用户不存在或账户被禁用时抛出
+     * @throws BadCredentialsException 当密码错误时抛出
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public User authenticate(String username, String password) {
+        User user = userCache.findByUsername(username)
+                .orElseThrow(() -> new BusinessException("用户名不存在"));
+
+        if (!Boolean.TRUE.equals(user.getEnabled())) {
+            throw new BusinessException("账户已被禁用");
+        }
+
+        if (password == null || !passwordHashingService.matches(password, user.getPassword())) {
+            throw new BadCredentialsException("用户名或密码错误");
+        }
+
+        log.info("用户登录校验成功: username={}, userId={}", username, user.getId());
+        return user;
+    }
+
     /**
      * 👤 获取当前用户信息
      *
@@ -116,8 +171,8 @@ public class UserService extends BaseService {
             // 2. 获取用户名
             String username = authentication.getName();
 
-            // 3. 查询用户信息
-            User user = validateExists(userRepository.findByUsername(username), "用户", username);
+            // 3. 查询用户信息（优先命中用户缓存）
+            User user = validateExists(userCache.findByUsername(username), "用户", username);
 
             // 4. 转换为DTO并返回
             return userConverter.toDTO(user);
@@ -135,7 +190,7 @@ public class UserService extends BaseService {
     @Transactional(readOnly = true)
     public UserDTO getUserById(Long userId) {
         return executeWithLog("根据ID获取用户信息", () -> {
-            User user = validateExists(userRepository.findById(userId), "用户", userId);
+            User user = validateExists(userCache.findById(userId), "用户", userId);
             return userConverter.toDTO(user);
         }, userId);
     }
@@ -150,7 +205,7 @@ public class UserService extends BaseService {
     @Transactional(readOnly = true)
     public UserDTO getUserByUsername(String username) {
         return executeWithLog("根据用户名获取用户信息", () -> {
-            User user = validateExists(userRepository.findByUsername(username), "用户", username);
+            User user = validateExists(userCache.findByUsername(username), "用户", username);
             return userConverter.toDTO(user);
         }, username);
     }
@@ -159,7 +214,7 @@ public class UserService extends BaseService {
      * 👤 用户登出处理
      *
      * 处理用户登出请求，记录登出日志
-     * 由于JWT是无状态的，主要作用是通知前端清除本地存储
+     * 令牌吊销由RefreshTokenService.logout()完成
      *
      * @param username 登出用户的用户名（可选，用于日志记录）
      */
@@ -167,30 +222,44 @@ public class UserService extends BaseService {
         if (username != null && !username.isEmpty()) {
             log.info("用户登出: {}", username);
         }
-        // JWT是无状态的，后端不需要特殊处理
+        // 访问令牌和刷新令牌的吊销由RefreshTokenService负责
         // 前端负责清除localStorage中的token
     }
 
     /**
      * 🔒 更新用户密码
      *
+     * 本方法不开启事务：旧密码校验和新密码哈希在事务外完成，只有写入在短事务中执行。
+     *
      * @param userId 用户ID
      * @param oldPassword 旧密码（用于验证）
      * @param newPassword 新密码
      * @throws BusinessException 当旧密码错误或用户不存在时抛出
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void updatePassword(Long userId, String oldPassword, String newPassword) {
         executeWithLog("更新用户密码", () -> {
-            User user = validateExists(userRepository.findById(userId), "用户", userId);
+            User current = validateExists(userRepository.findById(userId), "用户", userId);
+            String verifiedPassword = current.getPassword();
 
-            // 验证旧密码
-            if (!passwordEncoder.matches(oldPassword, user.getPassword())) {
+            // 验证旧密码、计算新密码哈希，都在事务外完成
+            if (!passwordHashingService.matches(oldPassword, verifiedPassword)) {
                 throw new BusinessException("旧密码错误");
             }
-
-            // 更新密码
-            user.setPassword(passwordEncoder.encode(newPassword));
-            userRepository.save(user);
+            String encodedPassword = passwordHashingService.encode(newPassword);
+
+            // 在短事务中更新密码
+            transactionTemplate.executeWithoutResult(status -> {
+                User user = validateExists(userRepository.findById(userId), "用户", userId);
+                // 校验之后密码已被并发修改时，旧密码不再有效
+                if (!verifiedPassword.equals(user.getPassword())) {
+                    throw new BusinessException("旧密码错误");
+                }
+                user.setPassword(encodedPassword);
+                revokeTokens(user);
+                userRepository.save(user);
+                userCache.invalidate(user);
+            });
 
             log.info("用户密码更新成功: userId={}", userId);
             return null;
@@ -214,6 +283,7 @@ public class UserService extends BaseService {
             // 更新邮箱
             user.setEmail(newEmail);
             userRepository.save(user);
+            userCache.invalidate(user);
 
             log.info("用户邮箱更新成功: userId={}, newEmail={}", userId, newEmail);
             return null;
@@ -231,7 +301,9 @@ public class UserService extends BaseService {
         executeWithLog("设置用户启用状态", () -> {
             User user = validateExists(userRepository.findById(userId), "用户", userId);
             user.setEnabled(enabled);
+            revokeTokens(user);
             userRepository.save(user);
+            userCache.invalidate(user);
 
             log.info("用户启用状态更新成功: userId={}, enabled={}", userId, enabled);
             return null;
@@ -255,7 +327,9 @@ public class UserService extends BaseService {
             }
 
             user.setRole(role);
+            revokeTokens(user);
             userRepository.save(user);
+            userCache.invalidate(user);
 
             log.info("用户角色更新成功: userId={}, newRole={}", userId, role);
             return null;
@@ -272,6 +346,39 @@ public class UserService extends BaseService {
         return "USER".equals(role) || "SHOPER".equals(role) || "ADMIN".equals(role);
     }
 
+    /**
+     * 💾 复查唯一性并保存新用户，在registerUser开启的事务中执行
+     */
+    private User persistNewUser(String username, String email, String encodedPassword) {
+        validateUnique(userRepository.existsByUsername(username), "用户名", username);
+        validateUnique(userRepository.existsByEmail(email), "邮箱", email);
+
+        User user = User.builder()
+            .username(username)
+            .email(email)
+            .password(encodedPassword)
+            .role("USER")      // 默认角色
+            .enabled(true)     // 默认启用
+            .build();
+        return userRepository.save(user);
+    }
+
+    /**
+     * 🚫 吊销用户已签发的所有令牌
+     *
+     * 递增用户的令牌版本，事务提交后同步到TokenVersionStore，
+     * 携带旧版本号的JWT会在下一次请求时被拒绝；同时吊销全部刷新令牌，
+     * 避免用旧的刷新令牌换取新版本的访问令牌。
+     *
+     * @param user 需要吊销令牌的用户实体
+     */
+    private void revokeTokens(User user) {
+        int newVersion = (user.getTokenVersion() != null ? user.getTokenVersion() : 0) + 1;
+        user.setTokenVersion(newVersion);
+        tokenVersionStore.updateVersion(user.getId(), newVersion);
+        refreshTokenRepository.revokeAllByUserId(user.getId());
+    }
+
     /**
      * 🔍 检查用户是否存在
      *
@@ -280,7 +387,7 @@ public class UserService extends BaseService {
      */
     @Transactional(readOnly = true)
     public boolean existsById(Long userId) {
-        return userRepository.existsById(userId);
+        return userCache.findById(userId).isPresent();
     }
 
     /**
@@ -291,7 +398,7 @@ public class UserService extends BaseService {
      */
     @Transactional(readOnly = true)
     public boolean existsByUsername(String username) {
-        return userRepository.existsByUsername(username);
+        return userCache.existsByUsername(username);
     }
 
     /**
@@ -309,12 +416,14 @@ public class UserService extends BaseService {
      * 📄 分页查询用户列表
      *
      * 根据查询条件分页获取用户列表，支持用户名模糊搜索、角色筛选、状态筛选等。
+     * query.exactTotal=false时，无筛选条件的列表使用planner估算总数，
+     * 有筛选条件的列表使用按条件短时缓存的计数，响应中totalExact=false。
      *
      * @param query 查询条件DTO
      * @return 分页的用户管理DTO
      */
     @Transactional(readOnly = true)
-    public Page<UserManagementDTO> getUsers(UserQueryRequestDTO query) {
+    public CountedPage<UserManagementDTO> getUsers(UserQueryRequestDTO query) {
         return executeWithLog("分页查询用户列表", () -> {
             // 构建排序参数
             Sort sort = Sort.by(query.getSortDirection().equalsIgnoreCase("desc") ?
@@ -324,53 +433,79 @@ public class UserService extends BaseService {
             // 构建分页参数
             Pageable pageable = PageRequest.of(query.getPage(), query.getSize(), sort);
 
-            // 执行分页查询
-            Page<User> userPage;
-
-            if (query.getUsername() != null && query.getRole() != null && query.getEnabled() != null) {
-                // 三条件组合查询
-                userPage = userRepository.findByUsernameContainingIgnoreCaseAndRoleAndEnabled(
-                    query.getUsername(), query.getRole(), query.getEnabled(), pageable);
-            } else if (query.getUsername() != null && query.getRole() != null) {
-                // 用户名 + 角色
-                userPage = userRepository.findByUsernameContainingIgnoreCaseAndRole(
-                    query.getUsername(), query.getRole(), pageable);
-            } else if (query.getUsername() != null && query.getEnabled() != null) {
-                // 用户名 + 状态
-                userPage = userRepository.findByUsernameContainingIgnoreCaseAndEnabled(
-                    query.getUsername(), query.getEnabled(), pageable);
-            } else if (query.getRole() != null && query.getEnabled() != null) {
-                // 角色 + 状态
-                userPage = userRepository.findByRoleAndEnabled(
-                    query.getRole(), query.getEnabled(), pageable);
-            } else if (query.getUsername() != null) {
-                // 仅用户名
-                userPage = userRepository.findByUsernameContainingIgnoreCase(
-                    query.getUsername(), pageable);
-            } else if (query.getRole() != null) {
-                // 仅角色
-                userPage = userRepository.findByRole(query.getRole(), pageable);
-            } else if (query.getEnabled() != null) {
-                // 仅状态
-                userPage = userRepository.findByEnabled(query.getEnabled(), pageable);
-            } else {
-                // 无条件查询所有
-                userPage = userRepository.findAll(pageable);
-            }
+            // 只查询当前页，总数由PageTotalCounter决定
+            Specification<User> spec = userFilter(query);
+            List<UserManagementDTO> content = pageQueryRepository.findContent(User.class, spec, pageable).stream()
+                .map(this::toManagementDTO)
+                .toList();
+
+            boolean unfiltered = query.getUsername() == null && query.getRole() == null && query.getEnabled() == null;
+            String countKey = "users|username=" + (query.getUsername() != null ? query.getUsername().toLowerCase() : null)
+                + "|role=" + query.getRole() + "|enabled=" + query.getEnabled();
+            return pageTotalCounter.toPage(content, pageable, query.isExactTotal(), countKey,
+                () -> userRepository.count(spec),
+                unfiltered ? () -> pageQueryRepository.estimateRowCount(USER_TABLE) : null);
+        }, query);
+    }
 
-            // 转换为UserManagementDTO
-            return userPage.map(user -> UserManagementDTO.builder()
-                .id(user.getId())
-                .username(user.getUsername())
-                .email(user.getEmail())
-                .role(user.getRole())
-                .enabled(user.getEnabled())
-                .createdAt(user.getCreatedAt())
-                .updatedAt(user.getUpdatedAt())
-                .build());
+    /**
+     * 📜 游标分页查询用户列表
+     *
+     * 与getUsers()使用相同的筛选条件，按 (排序字段, id) 键集翻页，不执行COUNT查询。
+     * 只支持按id或createdAt排序，query中的page被忽略。
+     *
+     * @param query 查询条件DTO
+     * @param cursor 上一页返回的游标，第一页为null
+     * @return 游标分页的用户管理DTO
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserManagementDTO> scrollUsers(UserQueryRequestDTO query, String cursor) {
+        return executeWithLog("游标查询用户列表", () -> {
+            validatePositive(query.getSize(), "每页大小");
+            KeysetCursor position = KeysetCursor.resolve(cursor, query.getSortBy(), query.getSortDirection(), USER_CURSOR_KEYS);
+
+            Specification<User> spec = position.<User>after().and(userFilter(query));
+
+            int size = query.getSize();
+            List<User> rows = userRepository.findBy(spec, q -> q.sortBy(position.sort()).limit(size + 1).all());
+            return CursorPage.fromRows(rows, size,
+                user -> position.next("createdAt".equals(position.getSortBy()) ? user.getCreatedAt() : user.getId(), user.getId()),
+                this::toManagementDTO);
         }, query);
     }
 
+    /**
+     * 🔍 用户列表筛选条件（用户名忽略大小写模糊匹配、角色、启用状态）
+     */
+    private static Specification<User> userFilter(UserQueryRequestDTO query) {
+        return (root, q, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (query.getUsername() != null) {
+                String pattern = "%" + query.getUsername().toLowerCase() + "%";
+                predicates.add(cb.like(cb.lower(root.get("username")), pattern));
+            }
+            if (query.getRole() != null) {
+                predicates.add(cb.equal(root.get("role"), query.getRole()));
+            }
+            if (query.getEnabled() != null) {
+                predicates.add(cb.equal(root.get("enabled"), query.getEnabled()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private UserManagementDTO toManagementDTO(User user) {
+        return UserManagementDTO.builder()
+            .id(user.getId())
+            .username(user.getUsername())
+            .email(user.getEmail())
+            .role(user.getRole())
+            .enabled(user.getEnabled())
+            .createdAt(user.getCreatedAt())
+            .updatedAt(user.getUpdatedAt())
+            .build();
+    }
+
     /**
      * 📊 获取用户统计信息
      *
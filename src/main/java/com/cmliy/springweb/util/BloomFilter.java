@@ -0,0 +1,101 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.util;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import java.nio.charset.StandardCharsets;              // 导入标准字符集
+import java.util.concurrent.atomic.AtomicLongArray;    // 导入原子长整型数组
+
+/**
+ * 🌸 线程安全的字符串布隆过滤器
+ *
+ * 用固定大小的位数组判断"某个键一定不存在"或"可能存在"：
+ * - mightContain返回false：键一定没有被加入过，可以跳过数据库查询
+ * - mightContain返回true：键可能存在（有一定误判率），需要回源确认
+ *
+ * 位数组使用AtomicLongArray，put和mightContain可以在多线程间无锁并发调用。
+ * 哈希采用双重哈希（h1 + i * h2）模拟k个独立哈希函数。
+ */
+public class BloomFilter { // public class: 定义公共类，其他类可以访问
+
+    private final AtomicLongArray bits; // bits: 位数组，每个long存64位
+    private final long bitCount;        // bitCount: 位数组总位数
+    private final int hashFunctions;    // hashFunctions: 哈希函数个数k
+
+    /**
+     * 🏗️ 根据预期元素数和期望误判率创建过滤器
+     *
+     * @param expectedInsertions 预期插入的元素个数
+     * @param falsePositiveRate 期望误判率，例如0.01表示1%
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions); // 至少按1个元素计算
+        double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5); // 限制误判率范围
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2))); // 最优位数 m = -n·ln(p) / (ln2)²
+        this.bitCount = Math.max(64, ((m + 63) / 64) * 64); // 向上取整到64的倍数
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2))); // 最优哈希个数 k = m/n·ln2
+        this.bits = new AtomicLongArray((int) (bitCount / 64)); // 分配位数组
+    }
+
+    /**
+     * ➕ 加入一个键
+     *
+     * @param key 要加入的字符串
+     */
+    public void put(String key) {
+        long hash = hash64(key); // 计算64位哈希
+        int h1 = (int) hash;           // 低32位作为第一个哈希
+        int h2 = (int) (hash >>> 32);  // 高32位作为第二个哈希
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount); // 第i个哈希位置
+            setBit(index); // 置位
+        }
+    }
+
+    /**
+     * 🔍 判断键是否可能存在
+     *
+     * @param key 要检查的字符串
+     * @return boolean: false表示一定不存在，true表示可能存在
+     */
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false; // 任意一位为0即一定不存在
+            }
+        }
+        return true; // 所有位都为1，可能存在
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6); // 所在long的下标
+        long mask = 1L << index;        // 位掩码（移位自动取模64）
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return; // 已经置位
+            }
+        } while (!bits.compareAndSet(word, current, current | mask)); // CAS置位，失败重试
+    }
+
+    /**
+     * FNV-1a 64位哈希，再经过MurmurHash3的fmix64混淆，保证高低32位都分布均匀
+     */
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L; // FNV偏移基数
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L; // FNV质数
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,193 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.util;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import java.util.ArrayList;     // 导入动态数组
+import java.util.HashMap;       // 导入哈希映射
+import java.util.HashSet;       // 导入哈希集合
+import java.util.LinkedHashSet; // 导入保持插入顺序的集合
+import java.util.List;          // 导入列表接口
+import java.util.Map;           // 导入映射接口
+import java.util.Set;           // 导入集合接口
+
+/**
+ * ⏱️ 分层时间轮
+ *
+ * 记录大量"某个时间点到期"的键，按刻度推进时取出到期的键，不需要逐个轮询或维护全局有序结构：
+ * - 第0层每格一个刻度，第i层每格是第i-1层一整圈；到期时间落在哪一层由距离当前时间的远近决定
+ * - 推进到高层某一格的起点时，把格子里的键按剩余时间重新放入低层，最终在第0层到期
+ * - 超出最高层一整圈的键先放在最高层最远的格子，到时再重新分配
+ * - 登记、取消都是O(1)；每个刻度只处理当前指向的格子
+ *
+ * 到期时间向上取整到刻度，键只会晚到期（最多一个刻度），不会提前到期。
+ * 时间由调用方传入（毫秒），本类不启动线程；所有方法加锁，可在多个线程中调用。
+ *
+ * @param <K> 键类型（例如订单ID）
+ */
+public class HierarchicalTimingWheel<K> { // public class: 定义公共类，其他类可以访问
+
+    private final long tickMillis;             // tickMillis: 第0层每格的时长
+    private final int wheelSize;               // wheelSize: 每层的格子数
+    private final long[] levelTicks;           // levelTicks: 每层每格的时长
+    private final Set<K>[][] buckets;          // buckets: [层][格] → 到期时间落在该格的键
+    private final Set<K> due = new LinkedHashSet<>(); // due: 已到期、等待取走的键
+    private final Map<K, Entry<K>> entries = new HashMap<>(); // entries: 键 → 到期时间和所在格子
+    private long currentTime;                  // currentTime: 已推进到的时间，刻度的整数倍
+
+    /**
+     * 一个登记中的键：到期时间（已取整到刻度）和当前所在的格子
+     */
+    private static final class Entry<K> {
+        private final long fireTime; // 到期时间
+        private Set<K> bucket;       // 所在格子，取消时直接移除
+
+        private Entry(long fireTime) {
+            this.fireTime = fireTime;
+        }
+    }
+
+    /**
+     * 🏗️ 创建时间轮
+     *
+     * @param tickMillis 刻度（毫秒），必须大于0
+     * @param wheelSize 每层格子数，至少2
+     * @param levels 层数，至少1；覆盖范围为 tickMillis × wheelSize^levels
+     * @param startMillis 起始时间（毫秒）
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("时间轮参数无效: tickMillis=" + tickMillis
+                    + ", wheelSize=" + wheelSize + ", levels=" + levels);
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levelTicks = new long[levels];
+        this.buckets = new Set[levels][wheelSize];
+        long tick = tickMillis;
+        for (int level = 0; level < levels; level++) {
+            levelTicks[level] = tick;
+            for (int slot = 0; slot < wheelSize; slot++) {
+                buckets[level][slot] = new HashSet<>();
+            }
+            if (level < levels - 1) {
+                tick = Math.multiplyExact(tick, wheelSize); // 上一层一整圈 = 下一层一格，溢出时直接报错
+            }
+        }
+        Math.multiplyExact(tick, (long) wheelSize); // 最高层一整圈也不能溢出
+        this.currentTime = Math.floorDiv(startMillis, tickMillis) * tickMillis; // 对齐到刻度
+    }
+
+    /**
+     * ➕ 登记（或重新登记）一个键
+     *
+     * @param key 键
+     * @param deadlineMillis 到期时间（毫秒）；不晚于当前时间时在下一次advance()中取出
+     */
+    public synchronized void schedule(K key, long deadlineMillis) {
+        Entry<K> previous = entries.remove(key);
+        if (previous != null) {
+            previous.bucket.remove(key); // 重复登记以最后一次为准
+        }
+        long fireTime = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis) * tickMillis; // 向上取整到刻度
+        Entry<K> entry = new Entry<>(fireTime);
+        entries.put(key, entry);
+        place(key, entry);
+    }
+
+    /**
+     * ➖ 取消一个键
+     *
+     * @param key 键
+     * @return true表示键已登记且被移除
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.bucket.remove(key);
+        return true;
+    }
+
+    /**
+     * ⏩ 推进到指定时间，取出所有已到期的键
+     *
+     * @param nowMillis 当前时间（毫秒）；早于已推进到的时间时只取出已到期的键
+     * @return 到期的键，取出后不再登记
+     */
+    public synchronized List<K> advance(long nowMillis) {
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            // 从最高层往下：高层格子分配下来的键如果落在本刻度，同一轮就会在第0层到期
+            for (int level = levelTicks.length - 1; level >= 0; level--) {
+                if (currentTime % levelTicks[level] != 0) {
+                    continue; // 还没走到这一层下一格的起点
+                }
+                Set<K> bucket = buckets[level][slot(currentTime, level)];
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+                List<K> keys = new ArrayList<>(bucket);
+                bucket.clear();
+                for (K key : keys) {
+                    place(key, entries.get(key)); // 按剩余时间重新放入低层，或进入到期集合
+                }
+            }
+        }
+        List<K> expired = new ArrayList<>(due);
+        due.clear();
+        expired.forEach(entries::remove);
+        return expired;
+    }
+
+    /**
+     * 📊 登记中的键数
+     *
+     * @return 尚未取出的键数（包括已到期未取走的）
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 📊 覆盖范围（毫秒），超出的键会在最高层多转几次
+     *
+     * @return tickMillis × wheelSize^levels
+     */
+    public long getSpanMillis() {
+        return span(levelTicks.length - 1);
+    }
+
+    /**
+     * 选择层和格子：能容纳剩余时间的最低层；超出最高层范围时放在最高层最远的格子
+     */
+    private void place(K key, Entry<K> entry) {
+        long delta = entry.fireTime - currentTime;
+        Set<K> bucket;
+        if (delta <= 0) {
+            bucket = due;
+        } else {
+            int top = levelTicks.length - 1;
+            int level = 0;
+            while (level < top && delta >= span(level)) {
+                level++;
+            }
+            // delta不小于下一层的一格，因此格子的起点一定在当前时间之后，推进到起点时正好处理到它
+            long slotTime = delta < span(level)
+                    ? entry.fireTime
+                    : Math.floorDiv(currentTime, levelTicks[top]) * levelTicks[top] + levelTicks[top] * (wheelSize - 1);
+            bucket = buckets[level][slot(slotTime, level)];
+        }
+        bucket.add(key);
+        entry.bucket = bucket;
+    }
+
+    private int slot(long time, int level) {
+        return (int) Math.floorMod(Math.floorDiv(time, levelTicks[level]), (long) wheelSize);
+    }
+
+    private long span(int level) {
+        return levelTicks[level] * wheelSize;
+    }
+}
@@ -6,9 +6,12 @@ import io.jsonwebtoken.*;                               // 导入JWT库的所有
 import io.jsonwebtoken.security.Keys;                 // 导入JWT密钥生成工具
 import org.springframework.stereotype.Component;          // 导入Spring组件注解
 import com.cmliy.springweb.config.AppConfig;            // 导入应用配置类
+import com.cmliy.springweb.security.JwtUserPrincipal;   // 导入JWT认证主体
 
 import javax.crypto.SecretKey;                         // 导入Java加密密钥接口
+import java.nio.charset.StandardCharsets;              // 导入标准字符集
 import java.util.Date;                                 // 导入Java日期类
+import java.util.UUID;                                 // 导入UUID生成器
 import java.util.function.Function;                    // 导入Java函数式接口
 import java.util.Map;                                  // 导入Java Map接口
 import java.util.HashMap;                              // 导入Java HashMap类
@@ -40,16 +43,34 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
      */
     private final AppConfig appConfig; // appConfig: 应用配置类
 
+    /**
+     * 🔑 缓存的签名密钥
+     *
+     * 密钥由配置派生，应用运行期间不会变化，因此只在构造时计算一次，
+     * 避免每次签发或解析令牌都重新执行Keys.hmacShaKeyFor()。
+     */
+    private final SecretKey signingKey; // signingKey: HMAC-SHA256签名密钥
+
+    /**
+     * 🔍 缓存的JWT解析器
+     *
+     * JwtParser构建完成后不可变且线程安全，可以在所有请求线程间共享。
+     */
+    private final JwtParser jwtParser; // jwtParser: 预构建的令牌解析器
+
     /**
      * 🏗️ 构造函数注入
      *
      * 使用构造函数进行依赖注入，确保配置对象在类创建时就已经初始化。
      * 这是Spring Boot推荐的最佳实践，提供更好的不可变性和测试支持。
+     * 同时预先构建签名密钥和解析器，供后续所有请求复用。
      *
      * @param appConfig 应用配置类，包含JWT密钥和过期时间配置
      */
     public JwtUtil(AppConfig appConfig) {
         this.appConfig = appConfig; // 注入应用配置依赖
+        this.signingKey = Keys.hmacShaKeyFor(appConfig.getJwt().getSecret().getBytes(StandardCharsets.UTF_8)); // 只派生一次密钥
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build(); // 只构建一次解析器
     }
 
     // ===== 核心方法 =====
@@ -57,17 +78,47 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
     /**
      * 🔑 获取JWT签名密钥
      *
-     * 使用AppConfig中的密钥字符串生成HMAC-SHA256算法所需的SecretKey对象。
-     * 现在从配置文件读取密钥，避免硬编码敏感信息，提高安全性。
-     *
+     * 返回构造时由AppConfig密钥字符串派生的HMAC-SHA256密钥。
      * 密钥的安全性直接影响JWT令牌的安全性，确保密钥长度至少32字节（256位）。
      *
      * @return SecretKey: 用于JWT签名的密钥对象
      */
     private SecretKey getSigningKey() { // private方法：只在类内部使用
-        // appConfig.getJwt().getSecret(): 从配置中读取JWT密钥
-        // Keys.hmacShaKeyFor(): 根据字节数组生成HMAC-SHA算法的密钥
-        return Keys.hmacShaKeyFor(appConfig.getJwt().getSecret().getBytes()); // 将配置中的密钥转换为字节数组并生成密钥对象
+        return signingKey; // 返回缓存的密钥对象
+    }
+
+    /**
+     * 🔍 解析并验证JWT令牌（每个请求只需调用一次）
+     *
+     * 一次解析同时完成签名校验和过期校验（jjwt在exp早于当前时间时抛出ExpiredJwtException），
+     * 调用方应保存返回的Claims并复用，而不是再调用extractUsername/extractExpiration重复解析。
+     *
+     * @param token: JWT令牌字符串
+     * @return Claims: 已通过签名和过期校验的声明集合
+     * @throws JwtException: 当令牌格式错误、签名无效或已过期时抛出
+     */
+    public Claims parseToken(String token) { // public方法：供过滤器调用
+        return extractAllClaims(token); // 使用缓存的解析器完成一次性校验
+    }
+
+    /**
+     * 🆔 从已解析的声明中读取用户ID
+     *
+     * @param claims: 已验证的JWT声明
+     * @return Long: 用户ID，不存在或无法转换时返回null
+     */
+    public Long getUserId(Claims claims) { // public方法：供其他类调用
+        Object userIdObj = claims.get("userId"); // 读取userId声明
+        if (userIdObj instanceof Number) {
+            return ((Number) userIdObj).longValue(); // 转换为Long类型
+        } else if (userIdObj instanceof String) {
+            try {
+                return Long.parseLong((String) userIdObj); // 字符串转Long
+            } catch (NumberFormatException e) {
+                return null; // 格式错误时返回null
+            }
+        }
+        return null; // 无法转换时返回null
     }
 
     /**
@@ -95,13 +146,7 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
      */
     public Long extractUserId(String token) { // public方法：供其他类调用
         try {
-            Object userIdObj = extractClaim(token, claims -> claims.get("userId")); // 提取userId声明
-            if (userIdObj instanceof Number) {
-                return ((Number) userIdObj).longValue(); // 转换为Long类型
-            } else if (userIdObj instanceof String) {
-                return Long.parseLong((String) userIdObj); // 字符串转Long
-            }
-            return null; // 无法转换时返回null
+            return getUserId(extractAllClaims(token)); // 解析后读取userId声明
         } catch (Exception e) {
             return null; // 异常时返回null
         }
@@ -148,10 +193,8 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
      * @throws JwtException: 当令牌格式错误或签名验证失败时抛出
      */
     private Claims extractAllClaims(String token) { // private方法：只在类内部使用
-        // Jwts.parserBuilder(): 创建JWT解析器构建器
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey()) // 设置签名密钥，用于验证令牌签名
-                .build() // 构建解析器对象
+        // jwtParser: 构造时预构建的线程安全解析器，不再每次重新创建
+        return jwtParser
                 .parseClaimsJws(token) // 解析JWT令牌并验证签名
                 .getBody(); // 获取Payload部分（Claims对象）
     }
@@ -205,6 +248,24 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
         return createTokenWithClaims(userDetails.getUsername(), userId, appConfig.getJwt().getExpiration()); // 调用带claims的令牌创建方法
     }
 
+    /**
+     * 🪪 根据认证主体生成JWT访问令牌
+     *
+     * 令牌携带userId、角色、启用状态和令牌版本，
+     * 过滤器可以据此直接构建JwtUserPrincipal，无需查询数据库。
+     *
+     * @param principal: 登录认证成功后的用户主体
+     * @return String: 生成的JWT令牌字符串
+     */
+    public String generateToken(JwtUserPrincipal principal) { // public方法：供其他类调用
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtUserPrincipal.CLAIM_USER_ID, principal.getUserId());             // 用户ID
+        claims.put(JwtUserPrincipal.CLAIM_ROLE, principal.getRole());                  // 用户角色
+        claims.put(JwtUserPrincipal.CLAIM_ENABLED, principal.isEnabled());             // 启用状态
+        claims.put(JwtUserPrincipal.CLAIM_TOKEN_VERSION, principal.getTokenVersion()); // 令牌版本
+        return createTokenWithClaims(principal.getUsername(), claims, appConfig.getJwt().getExpiration()); // 调用带claims的令牌创建方法
+    }
+
     /**
      * 🔧 创建JWT令牌
      *
@@ -222,6 +283,7 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
         // Jwts.builder(): 创建JWT构建器
         return Jwts.builder()
                 .setSubject(subject)           // 设置subject声明（用户名）
+                .setId(UUID.randomUUID().toString()) // 设置jti声明，登出时按jti吊销
                 .setIssuedAt(now)              // 设置签发时间声明
                 .setExpiration(expiryDate)     // 设置过期时间声明
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256) // 使用HMAC-SHA256算法签名
@@ -240,17 +302,30 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
      * @return String: 生成的JWT令牌字符串
      */
     private String createTokenWithClaims(String subject, Long userId, long expiration) { // private方法：只在类内部使用
-        Date now = new Date(); // 当前时间：签发时间
-        Date expiryDate = new Date(now.getTime() + expiration); // 过期时间：当前时间 + 有效期
-
         // 创建自定义声明
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId); // 添加用户ID到claims
 
+        return createTokenWithClaims(subject, claims, expiration); // 调用通用的带claims令牌创建方法
+    }
+
+    /**
+     * 🔧 创建包含自定义声明的JWT令牌
+     *
+     * @param subject: JWT主题，通常是用户名
+     * @param claims: 自定义声明
+     * @param expiration: 令牌过期时间（毫秒）
+     * @return String: 生成的JWT令牌字符串
+     */
+    private String createTokenWithClaims(String subject, Map<String, Object> claims, long expiration) { // private方法：只在类内部使用
+        Date now = new Date(); // 当前时间：签发时间
+        Date expiryDate = new Date(now.getTime() + expiration); // 过期时间：当前时间 + 有效期
+
         // Jwts.builder(): 创建JWT构建器
         return Jwts.builder()
                 .setClaims(claims)            // 设置自定义声明（包含userId）
                 .setSubject(subject)           // 设置subject声明（用户名）
+                .setId(UUID.randomUUID().toString()) // 设置jti声明，登出时按jti吊销
                 .setIssuedAt(now)              // 设置签发时间声明
                 .setExpiration(expiryDate)     // 设置过期时间声明
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256) // 使用HMAC-SHA256算法签名
@@ -269,15 +344,28 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
      */
     public Boolean validateToken(String token, org.springframework.security.core.userdetails.UserDetails userDetails) { // public方法：供其他类调用
         try { // try-catch: 捕获令牌解析和验证过程中的异常
-            // extractUsername(): 从令牌中提取用户名
-            final String username = extractUsername(token); // 提取令牌中的用户名
-            // 用户名匹配检查 + 过期时间检查
-            return (username.equals(userDetails.getUsername()) && !isTokenExpired(token)); // 验证用户名匹配且未过期
+            return validateClaims(extractAllClaims(token), userDetails); // 只解析一次，再校验声明
         } catch (JwtException | IllegalArgumentException e) { // 捕获JWT相关异常
             return false; // 任何异常都表示令牌无效
         }
     }
 
+    /**
+     * ✅ 验证已解析的JWT声明
+     *
+     * 供已经调用过parseToken()的代码使用，不会再次解析令牌或校验签名。
+     *
+     * @param claims: 已通过签名校验的JWT声明
+     * @param userDetails: Spring Security用户详情对象，用于验证用户名匹配
+     * @return boolean: true表示声明有效，false表示无效
+     */
+    public boolean validateClaims(Claims claims, org.springframework.security.core.userdetails.UserDetails userDetails) { // public方法：供过滤器调用
+        Date expiration = claims.getExpiration(); // 读取过期时间声明
+        return claims.getSubject() != null
+                && claims.getSubject().equals(userDetails.getUsername()) // 用户名匹配检查
+                && (expiration == null || !expiration.before(new Date())); // 过期时间检查
+    }
+
     /**
      * 🕐 获取JWT令牌过期时间配置
      *
@@ -289,4 +377,13 @@ public class JwtUtil { // public class: 定义公共类，其他类可以访问
     public long getExpiration() { // public方法：供其他类调用
         return appConfig.getJwt().getExpiration(); // 返回从配置中读取的过期时间
     }
+
+    /**
+     * 🕐 获取刷新令牌过期时间配置
+     *
+     * @return long: 刷新令牌过期时间（毫秒）
+     */
+    public long getRefreshExpiration() { // public方法：供其他类调用
+        return appConfig.getJwt().getRefreshExpiration(); // 返回从配置中读取的刷新令牌过期时间
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.util;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import jakarta.persistence.criteria.CriteriaBuilder;   // 导入Criteria构建器
+import jakarta.persistence.criteria.Path;              // 导入Criteria属性路径
+import jakarta.persistence.criteria.Predicate;         // 导入Criteria查询条件
+import org.springframework.data.domain.Sort;           // 导入Spring Data排序
+import org.springframework.data.jpa.domain.Specification; // 导入JPA动态查询规格
+
+import java.math.BigDecimal;                            // 导入高精度小数
+import java.nio.charset.StandardCharsets;               // 导入标准字符集
+import java.time.LocalDateTime;                         // 导入Java 8日期时间类
+import java.time.format.DateTimeParseException;         // 导入日期解析异常
+import java.util.Base64;                                // 导入Base64编解码
+import java.util.Map;                                   // 导入Java Map接口
+
+/**
+ * 🔖 键集分页游标
+ *
+ * 记录上一页最后一条记录的排序键值和ID，下一页从这个位置之后"seek"：
+ * - DESC: sortKey < value OR (sortKey = value AND id < lastId)
+ * - ASC:  sortKey > value OR (sortKey = value AND id > lastId)
+ * ID作为第二排序键保证顺序唯一，排序键相同的记录也不会重复或遗漏。
+ *
+ * 对外是Base64URL编码的不透明字符串，内容为 "sortBy|direction|value|id"。
+ * 排序字段必须在调用方给出的白名单中（字段名 → 值类型），且只能是非空的数值或时间列，
+ * 游标中已经包含排序方式，翻页时以游标为准。
+ */
+public final class KeysetCursor { // final class: 不可继承的值对象
+
+    private static final String SEPARATOR = "|"; // SEPARATOR: 游标字段分隔符
+
+    private final String sortBy;            // sortBy: 排序字段（实体属性名）
+    private final Sort.Direction direction; // direction: 排序方向
+    private final Comparable<Object> value; // value: 上一页最后一条记录的排序键值，第一页为null
+    private final Long id;                  // id: 上一页最后一条记录的ID，第一页为null
+
+    private KeysetCursor(String sortBy, Sort.Direction direction, Comparable<Object> value, Long id) {
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * 🔓 解析请求中的游标；没有游标时按排序参数从第一页开始
+     *
+     * @param cursor 客户端传回的游标，第一页为null或空
+     * @param sortBy 排序字段（仅第一页使用）
+     * @param sortDirection 排序方向ASC/DESC（仅第一页使用）
+     * @param allowedKeys 允许的排序字段白名单（字段名 → 值类型）
+     * @return KeysetCursor: 当前页的起始位置
+     * @throws IllegalArgumentException 游标格式错误或排序字段不在白名单中时抛出
+     */
+    public static KeysetCursor resolve(String cursor, String sortBy, String sortDirection,
+                                       Map<String, Class<?>> allowedKeys) {
+        if (cursor == null || cursor.isBlank()) {
+            if (!allowedKeys.containsKey(sortBy)) {
+                throw new IllegalArgumentException("游标分页不支持的排序字段: " + sortBy);
+            }
+            Sort.Direction direction = "ASC".equalsIgnoreCase(sortDirection) ? Sort.Direction.ASC : Sort.Direction.DESC;
+            return new KeysetCursor(sortBy, direction, null, null); // 第一页：没有起始位置
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1); // 白名单字段都是数值或时间，值中不会出现分隔符
+            if (parts.length != 4 || !allowedKeys.containsKey(parts[0])) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new KeysetCursor(parts[0], Sort.Direction.valueOf(parts[1]),
+                    parse(parts[2], allowedKeys.get(parts[0])), Long.valueOf(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) { // 包含Base64和数字格式错误
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 🔖 由本页最后一条记录生成下一页游标
+     *
+     * @param lastValue 最后一条记录的排序键值
+     * @param lastId 最后一条记录的ID
+     * @return String: 不透明游标
+     */
+    public String next(Object lastValue, Long lastId) {
+        String raw = String.join(SEPARATOR, sortBy, direction.name(), String.valueOf(lastValue), String.valueOf(lastId));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 📐 排序：排序字段加ID作为唯一的第二排序键
+     *
+     * @return Sort: 键集分页使用的排序
+     */
+    public Sort sort() {
+        return "id".equals(sortBy) ? Sort.by(direction, "id") : Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * 🔍 "位于游标之后"的查询条件，第一页不附加条件
+     *
+     * @return Specification: 可以与其他过滤条件用and组合
+     */
+    public <T> Specification<T> after() {
+        return (root, query, cb) -> {
+            if (id == null) {
+                return null; // 第一页
+            }
+            Path<Long> idPath = root.get("id");
+            if ("id".equals(sortBy)) {
+                return beyond(cb, idPath, id); // 只按ID排序时不需要第二排序键
+            }
+            Path<Comparable<Object>> keyPath = root.get(sortBy);
+            return cb.or(
+                    beyond(cb, keyPath, value), // 排序键已越过游标
+                    cb.and(cb.equal(keyPath, value), beyond(cb, idPath, id))); // 排序键相同时比较ID
+        };
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    private <Y extends Comparable<? super Y>> Predicate beyond(CriteriaBuilder cb, Path<Y> path, Y bound) {
+        return direction.isDescending() ? cb.lessThan(path, bound) : cb.greaterThan(path, bound); // 按方向决定"之后"
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> parse(String text, Class<?> type) {
+        Object parsed;
+        if (type == LocalDateTime.class) {
+            parsed = LocalDateTime.parse(text);
+        } else if (type == Integer.class) {
+            parsed = Integer.valueOf(text);
+        } else if (type == Long.class) {
+            parsed = Long.valueOf(text);
+        } else if (type == BigDecimal.class) {
+            parsed = new BigDecimal(text);
+        } else {
+            throw new IllegalArgumentException("不支持的游标字段类型: " + type.getSimpleName());
+        }
+        return (Comparable<Object>) parsed;
+    }
+}
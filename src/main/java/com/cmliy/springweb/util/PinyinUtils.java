@@ -0,0 +1,151 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.util;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import net.sourceforge.pinyin4j.PinyinHelper;                                           // 导入汉字转拼音工具
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;                             // 导入拼音大小写选项
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;                         // 导入拼音输出格式
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;                             // 导入声调选项
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;                            // 导入ü的输出选项
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination; // 导入格式组合异常
+
+import java.util.ArrayList;      // 导入动态数组
+import java.util.LinkedHashSet;  // 导入保持插入顺序的集合
+import java.util.List;           // 导入Java List接口
+import java.util.Set;            // 导入Java Set接口
+
+/**
+ * 🀄 拼音工具类
+ *
+ * 把商品名称转成全拼和首字母两种形式，用于拼音输入匹配：
+ * - 全拼："纯棉T恤" → "chunmiantxu"
+ * - 首字母："纯棉T恤" → "cmtx"
+ *
+ * 字母和数字原样转小写保留，空白和标点去掉。
+ * 多音字会产生多个读音组合，最多保留MAX_VARIANTS种，避免名称较长时组合数爆炸。
+ */
+public final class PinyinUtils { // final class: 工具类不可继承
+
+    /**
+     * 每个名称最多保留的读音组合数
+     */
+    public static final int MAX_VARIANTS = 4;
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat(); // FORMAT: 小写、无声调、ü写作v
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinUtils() {
+        // 工具类，不允许实例化
+    }
+
+    /**
+     * 🔤 全拼形式
+     *
+     * @param text 原始文本
+     * @return 全拼组合（多音字产生多个），文本为空时返回空集合
+     */
+    public static Set<String> fullPinyin(String text) {
+        return combine(syllables(text, false));
+    }
+
+    /**
+     * 🔡 首字母形式
+     *
+     * @param text 原始文本
+     * @return 首字母组合（多音字产生多个），文本为空时返回空集合
+     */
+    public static Set<String> initials(String text) {
+        return combine(syllables(text, true));
+    }
+
+    /**
+     * ❓ 判断输入是否可能是拼音（只包含ASCII字母、数字和空白，且至少有一个字母）
+     *
+     * @param text 用户输入
+     * @return 是否按拼音匹配
+     */
+    public static boolean isPinyinInput(String text) {
+        if (text == null) {
+            return false;
+        }
+        boolean hasLetter = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                hasLetter = true;
+            } else if (!(c >= '0' && c <= '9') && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return hasLetter;
+    }
+
+    /**
+     * 每个字符的候选写法：汉字为各读音（或读音首字母），字母数字为自身小写，其他字符跳过
+     */
+    private static List<Set<String>> syllables(String text, boolean initialsOnly) {
+        List<Set<String>> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String[] readings = toPinyin(c);
+            Set<String> options = new LinkedHashSet<>();
+            if (readings != null) {
+                for (String reading : readings) {
+                    if (!reading.isEmpty()) {
+                        options.add(initialsOnly ? reading.substring(0, 1) : reading);
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                options.add(String.valueOf(Character.toLowerCase(c)));
+            }
+            if (!options.isEmpty()) {
+                result.add(options);
+            }
+        }
+        return result;
+    }
+
+    private static String[] toPinyin(char c) {
+        try {
+            return PinyinHelper.toHanyuPinyinStringArray(c, FORMAT); // 非汉字返回null
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            return null; // FORMAT是固定的合法组合，不会发生
+        }
+    }
+
+    /**
+     * 按顺序拼接各字符的候选写法，组合数超过MAX_VARIANTS时只保留前面的组合（第一个读音优先）
+     */
+    private static Set<String> combine(List<Set<String>> syllables) {
+        List<StringBuilder> variants = new ArrayList<>();
+        if (syllables.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        variants.add(new StringBuilder());
+        for (Set<String> options : syllables) {
+            List<StringBuilder> next = new ArrayList<>();
+            for (StringBuilder prefix : variants) {
+                for (String option : options) {
+                    if (next.size() >= MAX_VARIANTS) {
+                        break;
+                    }
+                    next.add(new StringBuilder(prefix).append(option));
+                }
+            }
+            variants = next;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (StringBuilder variant : variants) {
+            result.add(variant.toString());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.util;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import java.util.concurrent.ThreadLocalRandom;        // 导入线程本地随机数
+import java.util.concurrent.atomic.AtomicIntegerArray; // 导入原子整型数组
+
+/**
+ * 🎟️ 分片库存令牌计数器
+ *
+ * 把一份库存预先平均拆到多个分片上，线程随机选一个分片用CAS扣减，
+ * 分片不够时依次尝试其他分片，不加锁，也不会让所有线程争抢同一个计数器。
+ * - 每个分片独占一个缓存行（按16个int间隔存放），避免伪共享
+ * - 所有分片都为0时记下售罄标记，之后的请求只读一个volatile字段就返回
+ * - 单次数量大于任何一个分片的剩余时，跨分片凑齐；凑不齐则把已取走的令牌还回去
+ *
+ * 只负责"还有没有货"的快速判断，真正的库存仍以数据库为准。
+ */
+public class ShardedStock { // public class: 定义公共类，其他类可以访问
+
+    private static final int STRIDE = 16; // 16个int = 64字节，相邻分片不在同一缓存行
+
+    private final AtomicIntegerArray slots; // slots: 分片计数，下标 shard * STRIDE
+    private final int shards;               // shards: 分片数
+    private volatile boolean soldOut;       // soldOut: 售罄标记
+
+    /**
+     * 🏗️ 按总量和分片数创建
+     *
+     * @param total 令牌总数（可售数量）
+     * @param shards 期望的分片数，实际不超过总数
+     */
+    public ShardedStock(int total, int shards) {
+        int available = Math.max(0, total);
+        this.shards = Math.max(1, Math.min(shards, Math.max(1, available))); // 分片数不超过令牌数
+        this.slots = new AtomicIntegerArray(this.shards * STRIDE);
+        int base = available / this.shards;      // 每个分片的基本份额
+        int remainder = available % this.shards; // 余数分给前面的分片
+        for (int i = 0; i < this.shards; i++) {
+            slots.set(i * STRIDE, base + (i < remainder ? 1 : 0));
+        }
+        this.soldOut = available == 0;
+    }
+
+    /**
+     * 🎫 尝试领取令牌
+     *
+     * @param quantity 领取数量，必须大于0
+     * @return true表示已扣减；false表示剩余不足（不一定已售罄）
+     */
+    public boolean tryAcquire(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("领取数量必须大于0");
+        }
+        if (soldOut) {
+            return false; // 已售罄，不再扫描分片
+        }
+        int start = ThreadLocalRandom.current().nextInt(shards); // 随机起点，分散竞争
+        for (int i = 0; i < shards; i++) {
+            int index = ((start + i) % shards) * STRIDE;
+            int current;
+            while ((current = slots.get(index)) >= quantity) {
+                if (slots.compareAndSet(index, current, current - quantity)) {
+                    return true; // 单个分片足够
+                }
+            }
+        }
+        if (quantity > 1) {
+            return acquireAcrossShards(quantity, start);
+        }
+        markSoldOutIfEmpty();
+        return false;
+    }
+
+    /**
+     * ↩️ 归还令牌（写回数据库失败等情况）
+     *
+     * @param quantity 归还数量
+     */
+    public void release(int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        slots.getAndAdd(ThreadLocalRandom.current().nextInt(shards) * STRIDE, quantity);
+        soldOut = false; // 有新令牌，清除售罄标记
+    }
+
+    /**
+     * 🧹 清空所有分片（活动结束或数据库库存已不足）
+     *
+     * @return 清空前剩余的令牌数
+     */
+    public int drain() {
+        soldOut = true; // 先置标记，新请求不再扫描
+        int drained = 0;
+        for (int i = 0; i < shards; i++) {
+            drained += slots.getAndSet(i * STRIDE, 0);
+        }
+        return drained;
+    }
+
+    /**
+     * 📊 当前剩余令牌数（并发下为近似值）
+     *
+     * @return 各分片之和
+     */
+    public int remaining() {
+        int sum = 0;
+        for (int i = 0; i < shards; i++) {
+            sum += slots.get(i * STRIDE);
+        }
+        return sum;
+    }
+
+    /**
+     * 🚫 是否已售罄
+     *
+     * @return 售罄标记
+     */
+    public boolean isSoldOut() {
+        return soldOut;
+    }
+
+    /**
+     * 📊 分片数
+     *
+     * @return 实际分片数
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * 跨分片凑齐数量，凑不齐时全部归还；一个令牌也没有时记下售罄
+     */
+    private boolean acquireAcrossShards(int quantity, int start) {
+        int taken = 0;
+        for (int i = 0; i < shards && taken < quantity; i++) {
+            int index = ((start + i) % shards) * STRIDE;
+            int current;
+            while ((current = slots.get(index)) > 0) {
+                int take = Math.min(current, quantity - taken);
+                if (slots.compareAndSet(index, current, current - take)) {
+                    taken += take;
+                    break;
+                }
+            }
+        }
+        if (taken == quantity) {
+            return true;
+        }
+        if (taken > 0) {
+            slots.getAndAdd(start * STRIDE, taken); // 凑不齐，还回去
+        } else {
+            markSoldOutIfEmpty();
+        }
+        return false;
+    }
+
+    /**
+     * 确认所有分片都为0后才置售罄；置位后再检查一次，与并发的release()交错时不会误判为售罄
+     */
+    private void markSoldOutIfEmpty() {
+        if (remaining() == 0) {
+            soldOut = true;
+            if (remaining() > 0) {
+                soldOut = false;
+            }
+        }
+    }
+}
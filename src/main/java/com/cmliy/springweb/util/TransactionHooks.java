@@ -0,0 +1,36 @@
+// package: Java包声明，用于组织类和避免命名冲突
+package com.cmliy.springweb.util;
+
+// import: 导入其他包中的类，以便在当前类中使用
+import org.springframework.transaction.support.TransactionSynchronization;        // 导入事务同步回调接口
+import org.springframework.transaction.support.TransactionSynchronizationManager; // 导入事务同步管理器
+
+/**
+ * 🔗 事务回调工具类
+ *
+ * 内存中的状态（索引、时间轮、活动表）只应反映已提交的数据：
+ * 存在事务时把操作登记为提交后回调，回滚时不执行；没有事务时立即执行。
+ */
+public final class TransactionHooks { // final class: 工具类不可继承
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * ✅ 在当前事务提交后执行，没有事务时立即执行
+     *
+     * @param operation 要执行的操作
+     */
+    public static void afterCommit(Runnable operation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    operation.run(); // 提交后执行
+                }
+            });
+        } else {
+            operation.run(); // 无事务时立即执行
+        }
+    }
+}
@@ -0,0 +1,77 @@
+-- 商品全文检索与模糊匹配支持
+-- 在Hibernate建表之后执行（spring.jpa.defer-datasource-initialization=true），data.sql之前
+-- 生产环境spring.sql.init.mode=never，需要手动执行本脚本
+
+-- 1. 三元组扩展：为ILIKE '%关键词%'提供GIN索引
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- 2. 中文友好的n-gram切分：去掉空白和标点、转小写后按相邻两个字符切分，空格分隔
+--    例如 '纯棉T恤' -> '纯棉 棉t t恤'；单个字符原样返回
+--    查询端使用同一个函数切分关键词，保证两边的词元一致
+CREATE OR REPLACE FUNCTION product_ngrams(input text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS 'SELECT coalesce(string_agg(substr(s.t, i, 2), '' '' ORDER BY i), '''')
+        FROM (SELECT regexp_replace(lower(coalesce(input, '''')), ''[[:space:][:punct:]]+'', '''', ''g'') AS t) s,
+             generate_series(1, greatest(char_length(s.t) - 1, 1)) AS i
+        WHERE s.t <> ''''';
+
+-- 3. 由数据库维护的检索向量：名称权重A，描述权重B，插入和更新时自动重新计算
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', product_ngrams(product_name)), 'A') ||
+        setweight(to_tsvector('simple', product_ngrams(description)), 'B')
+    ) STORED;
+
+-- 4. 索引
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING GIN (product_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_products_description_trgm ON products USING GIN (description gin_trgm_ops);
+
+-- 5. 规格属性筛选：productData的jsonb_path_ops GIN索引，支撑 @> 包含查询
+CREATE INDEX IF NOT EXISTS idx_products_product_data_path ON products USING GIN (product_data jsonb_path_ops);
+
+-- 6. 包含判断的SQL包装函数，供JPA Criteria调用（Criteria无法直接写 @> 运算符）
+--    单条SELECT的SQL函数会被规划器内联为 data @> filter::jsonb，仍然可以使用上面的GIN索引
+CREATE OR REPLACE FUNCTION product_data_contains(data jsonb, filter text) RETURNS boolean
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS 'SELECT data @> filter::jsonb';
+
+-- 7. 规格数值区间判断：规格值为字符串列表（如 "38"、"8cm"），取每个值开头的数字与区间比较
+--    min_value/max_value为NULL表示不限；这是逐行判断，应与包含条件或列条件一起使用
+CREATE OR REPLACE FUNCTION product_spec_in_range(data jsonb, spec_key text, min_value numeric, max_value numeric)
+    RETURNS boolean
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS 'SELECT EXISTS (
+            SELECT 1
+            FROM jsonb_array_elements_text(
+                     CASE jsonb_typeof(data -> ''specifications'' -> spec_key)
+                         WHEN ''array'' THEN data -> ''specifications'' -> spec_key
+                         ELSE ''[]''::jsonb
+                     END) AS v(value),
+                 substring(v.value from ''^\s*(-?[0-9]+(\.[0-9]+)?)'') AS n(number)
+            WHERE n.number IS NOT NULL
+              AND (min_value IS NULL OR n.number::numeric >= min_value)
+              AND (max_value IS NULL OR n.number::numeric <= max_value))';
+
+-- 8. 分类、品牌生成列（取规格列表的第一个值）及B-tree索引
+--    Hibernate建表时已按实体的columnDefinition创建；这里供手动维护的库（如生产环境）补齐
+ALTER TABLE products ADD COLUMN IF NOT EXISTS category text
+    GENERATED ALWAYS AS (product_data #>> '{specifications,分类,0}') STORED;
+ALTER TABLE products ADD COLUMN IF NOT EXISTS brand text
+    GENERATED ALWAYS AS (product_data #>> '{specifications,品牌,0}') STORED;
+CREATE INDEX IF NOT EXISTS idx_products_category ON products (category, id);
+CREATE INDEX IF NOT EXISTS idx_products_brand ON products (brand, id);
+
+-- 9. 实付单价生成列（折后价，与Product.discountedPrice一致）及B-tree索引
+--    列表和搜索按买家实际支付的价格排序、区间筛选；price/discount每次写入由数据库重算
+ALTER TABLE products ADD COLUMN IF NOT EXISTS effective_price numeric(10,2)
+    GENERATED ALWAYS AS (CASE WHEN discount > 0 THEN round(price * (100 - discount) / 100, 2) ELSE price END) STORED;
+CREATE INDEX IF NOT EXISTS idx_products_effective_price ON products (effective_price, id);
+
+-- 10. 秒杀活动：每个商品同时最多一个进行中的活动（并发开启时由数据库兜底）
+CREATE UNIQUE INDEX IF NOT EXISTS uk_flash_sales_active_product ON flash_sales (product_id) WHERE status = 'ACTIVE';
+
+-- 11. 订单库存预留截止时间：待支付订单超时后自动取消并归还库存
+--     Hibernate建表时已创建该列；这里供手动维护的库补齐，部分索引只覆盖PENDING订单，启动重建时间轮时使用
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS expires_at timestamp(6);
+CREATE INDEX IF NOT EXISTS idx_orders_pending_expires_at ON orders (expires_at) WHERE status = 'PENDING';
@@ -0,0 +1,96 @@
+package com.cmliy.springweb.benchmark;
+
+import com.cmliy.springweb.config.AppConfig;
+import com.cmliy.springweb.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ⏱️ JWT验证路径基准测试
+ *
+ * 对比过滤器改造前后每个请求的令牌处理开销：
+ * - legacyFilterPath: 旧实现，extractUsername + validateToken 共解析3次，每次重建密钥和解析器
+ * - singleParsePath: 新实现，缓存的解析器只解析1次，再基于Claims校验
+ *
+ * 运行方式（先执行 mvn test-compile）：
+ * java -cp target/test-classes:target/classes:<依赖类路径> com.cmliy.springweb.benchmark.JwtVerificationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "mySecretKey123456789012345678901234567890";
+
+    private JwtUtil jwtUtil;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.getJwt().setSecret(SECRET);
+        appConfig.getJwt().setExpiration(86400000L);
+        jwtUtil = new JwtUtil(appConfig);
+        userDetails = User.withUsername("user").password("n/a").roles("USER").build();
+        token = jwtUtil.generateTokenWithUserId(userDetails, 1L);
+    }
+
+    /**
+     * 旧过滤器路径：每次解析都重新派生密钥、重新构建解析器，且同一令牌解析3次
+     */
+    @Benchmark
+    public boolean legacyFilterPath() {
+        String username = legacyParse(token).getSubject();
+        boolean usernameMatches = legacyParse(token).getSubject().equals(userDetails.getUsername())
+                && username.equals(userDetails.getUsername());
+        return usernameMatches && !legacyParse(token).getExpiration().before(new Date());
+    }
+
+    /**
+     * 新过滤器路径：缓存的解析器解析一次，之后只读取Claims
+     */
+    @Benchmark
+    public boolean singleParsePath() {
+        Claims claims = jwtUtil.parseToken(token);
+        return jwtUtil.validateClaims(claims, userDetails);
+    }
+
+    private Claims legacyParse(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
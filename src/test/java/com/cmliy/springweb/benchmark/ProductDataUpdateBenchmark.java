@@ -0,0 +1,202 @@
+package com.cmliy.springweb.benchmark;
+
+import com.cmliy.springweb.SpringWebApplication;
+import com.cmliy.springweb.converter.ProductDataCodec;
+import com.cmliy.springweb.dto.ProductCreateRequestDTO;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.model.ProductData;
+import com.cmliy.springweb.repository.ProductRepository;
+import com.cmliy.springweb.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ⏱️ productData更新路径基准测试
+ *
+ * 在真实PostgreSQL上对比一次更新的端到端耗时（包含事务提交）：
+ * - entitySaveMainImage / entitySaveSpecifications: 加载实体 → 替换ProductData → flush，
+ *   Hibernate序列化整个文档，数据库重写整列JSONB（文档较大时是TOAST外存）
+ * - partialMainImage / partialSpecifications: ProductRepository的jsonb_set局部更新，不加载实体，
+ *   只绑定新的子文档
+ *
+ * galleryImages控制文档大小，50张以上的图库使文档超过TOAST阈值（约2KB）。
+ * 每次调用交替写入两个不同的值，保证每次都是真实的修改。
+ *
+ * ⚠️ 按dev配置启动Spring上下文（不启动Web服务器），ddl-auto=create-drop会重建表结构，
+ * 不要指向正在使用的数据库。使用data.sql中的商家用户（3: shoper）创建测试商品，结束时删除。
+ *
+ * 运行方式（先执行 mvn test-compile）：
+ * java -cp target/test-classes:target/classes:<依赖类路径> com.cmliy.springweb.benchmark.ProductDataUpdateBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDataUpdateBenchmark {
+
+    private static final long SELLER_ID = 3L;
+    private static final String[] MAIN_IMAGES = {
+            "/uploads/images/products/1image20260101120000.jpg",
+            "/uploads/images/products/1image20260101120001.jpg"
+    };
+
+    @Param({"0", "50", "500"})
+    public int galleryImages;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private ProductService productService;
+    private TransactionTemplate transactionTemplate;
+    private Long productId;
+    private List<Map<String, List<String>>> specificationVariants;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringWebApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+        productRepository = context.getBean(ProductRepository.class);
+        productService = context.getBean(ProductService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        ProductCreateRequestDTO request = ProductCreateRequestDTO.builder()
+                .productName("productData基准测试商品-" + System.nanoTime())
+                .description("productData更新路径基准测试")
+                .price(new BigDecimal("99.00"))
+                .discount(BigDecimal.ZERO)
+                .stockQuantity(100)
+                .isAvailable(true)
+                .build();
+        productId = productService.createProduct(request, SELLER_ID).getId();
+
+        ProductData document = sampleDocument(galleryImages);
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setProductData(document);
+            productRepository.flush();
+        });
+        specificationVariants = List.of(document.getSpecifications(), alternateSpecifications(document.getSpecifications()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            productService.deleteProduct(productId, SELLER_ID);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * 实体路径：加载 → 替换主图片 → flush序列化并写回整个文档
+     */
+    @Benchmark
+    public void entitySaveMainImage() {
+        String mainImage = nextMainImage();
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setProductData(product.getProductData().withMainImage(mainImage));
+            productRepository.flush();
+        });
+    }
+
+    /**
+     * 局部更新路径：jsonb_set只改写image_data.main_image
+     */
+    @Benchmark
+    public int partialMainImage() {
+        String mainImage = nextMainImage();
+        return transactionTemplate.execute(status -> productRepository.updateMainImage(productId, SELLER_ID, mainImage));
+    }
+
+    /**
+     * 实体路径：加载 → 替换规格 → flush序列化并写回整个文档
+     */
+    @Benchmark
+    public void entitySaveSpecifications() {
+        Map<String, List<String>> specifications = nextSpecifications();
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setProductData(product.getProductData().withSpecifications(specifications));
+            productRepository.flush();
+        });
+    }
+
+    /**
+     * 局部更新路径：jsonb_set只改写specifications
+     */
+    @Benchmark
+    public int partialSpecifications() {
+        String specifications = ProductDataCodec.writeSpecifications(nextSpecifications());
+        return transactionTemplate.execute(status ->
+                productRepository.updateSpecifications(productId, SELLER_ID, specifications));
+    }
+
+    private String nextMainImage() {
+        return MAIN_IMAGES[(int) (sequence++ & 1)];
+    }
+
+    private Map<String, List<String>> nextSpecifications() {
+        return specificationVariants.get((int) (sequence++ & 1));
+    }
+
+    private static Map<String, List<String>> alternateSpecifications(Map<String, List<String>> specifications) {
+        Map<String, List<String>> alternate = new LinkedHashMap<>(specifications);
+        alternate.put("材质", List.of("棉麻"));
+        return alternate;
+    }
+
+    private static ProductData sampleDocument(int galleryImages) {
+        Map<String, List<String>> specs = new LinkedHashMap<>();
+        specs.put("颜色", List.of("白色", "黑色", "灰色", "蓝色", "粉色"));
+        specs.put("尺寸", List.of("S", "M", "L", "XL", "XXL"));
+        specs.put("材质", List.of("纯棉"));
+        specs.put("分类", List.of("服装"));
+        specs.put("品牌", List.of("基础款"));
+        specs.put("适合场合", List.of("日常", "休闲", "运动"));
+        List<String> gallery = new ArrayList<>();
+        for (int i = 0; i < galleryImages; i++) {
+            gallery.add("/uploads/images/products/1gallery" + i + ".jpg");
+        }
+        ProductData.ImageData imageData = new ProductData.ImageData(
+                "/uploads/images/products/1image20251203120000.jpg", gallery, null, gallery.size());
+        return new ProductData(imageData, specs, null, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ProductDataUpdateBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.cmliy.springweb.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.cmliy.springweb.dto.ProductCreateRequestDTO;
+import com.cmliy.springweb.model.Product;
+import com.cmliy.springweb.repository.OrderRepository;
+import com.cmliy.springweb.repository.ProductRepository;
+
+/**
+ * 🧪 库存并发扣减测试
+ *
+ * 数百个买家同时抢购同一件商品，验证条件UPDATE扣减不会超卖：
+ * 成功的订单数恰好等于初始库存，最终库存为0，销量与成功订单数一致。
+ * 使用data.sql中的测试用户（1: user 买家，3: shoper 商家），需要可用的PostgreSQL。
+ */
+@SpringBootTest
+class ProductStockConcurrencyTests {
+
+    private static final long BUYER_ID = 1L;
+    private static final long SELLER_ID = 3L;
+    private static final int INITIAL_STOCK = 100;
+    private static final int BUYERS = 300;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Long productId;
+
+    @BeforeEach
+    void createProduct() {
+        ProductCreateRequestDTO request = ProductCreateRequestDTO.builder()
+                .productName("并发库存测试商品-" + System.nanoTime())
+                .description("库存并发扣减测试")
+                .price(new BigDecimal("99.00"))
+                .discount(BigDecimal.ZERO)
+                .stockQuantity(INITIAL_STOCK)
+                .isAvailable(true)
+                .build();
+        productId = productService.createProduct(request, SELLER_ID).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll(orderRepository.findByProductId(productId));
+        productService.deleteProduct(productId, SELLER_ID);
+    }
+
+    @Test
+    void parallelBuyersNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>(BUYERS);
+        try {
+            for (int i = 0; i < BUYERS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.createOrder(BUYER_ID, productId, 1);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        // 库存不足或商品已售罄
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+
+            Product product = productRepository.findById(productId).orElseThrow();
+            assertEquals(INITIAL_STOCK, succeeded);
+            assertEquals(0, product.getStockQuantity());
+            assertEquals(INITIAL_STOCK, product.getSalesCount());
+            assertEquals(INITIAL_STOCK, orderRepository.findByProductId(productId).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}